@@ -0,0 +1,221 @@
+package com.example.level1;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Batching front-end for user lookups, in the style of a DataLoader.
+ * Lookups are collected for a short window, or until a maximum number of
+ * distinct IDs is reached, and then answered together with a single
+ * {@link UserRepository#findAllSnapshotsById(java.util.Collection)} call.
+ * N lookups scattered over the window therefore cost about one round trip
+ * instead of N. Repeated IDs within a batch are looked up once.
+ *
+ * Each lookup returns a future that completes with its own copy of the user,
+ * or null if the user does not exist. If the bulk lookup fails, every lookup
+ * in the batch fails with that exception. The time from each lookup to the
+ * completion of its future is recorded in a {@link LatencyHistogram}.
+ */
+public class BatchingUserLoader implements AutoCloseable {
+
+    private static final AtomicInteger LOADER_COUNT = new AtomicInteger();
+
+    private final UserRepository repository;
+    private final long windowNanos;
+    private final int maxBatchSize;
+
+    // Times the batch windows; bulk lookups run on the dispatcher so they never delay a window
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService dispatcher;
+
+    private final Object lock = new Object();
+    private Batch current;
+    private boolean closed;
+
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LongAdder batches = new LongAdder();
+
+    /**
+     * Creates a loader in front of the given repository.
+     *
+     * @param repository the repository to query
+     * @param window how long to collect lookups before a batch is sent
+     * @param unit the unit of the window
+     * @param maxBatchSize the number of distinct IDs that sends a batch right away
+     */
+    public BatchingUserLoader(UserRepository repository, long window, TimeUnit unit, int maxBatchSize) {
+        if (repository == null) {
+            throw new IllegalArgumentException("Repository cannot be null");
+        }
+        if (window < 0 || maxBatchSize < 1) {
+            throw new IllegalArgumentException("Window must not be negative and batch size must be positive");
+        }
+        this.repository = repository;
+        this.windowNanos = unit.toNanos(window);
+        this.maxBatchSize = maxBatchSize;
+
+        int id = LOADER_COUNT.incrementAndGet();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> daemon(runnable, "user-loader-" + id));
+        this.dispatcher = Executors.newCachedThreadPool(runnable -> daemon(runnable, "user-loader-" + id + "-batch"));
+    }
+
+    /**
+     * Looks up a user as part of the next batch.
+     *
+     * @param userId the ID of the user
+     * @return a future completing with the user, or with null if the user does not exist
+     * @throws IllegalStateException if the loader is closed
+     */
+    public CompletableFuture<User> load(String userId) {
+        if (userId == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<User> future = new CompletableFuture<>();
+        Batch full = null;
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("Loader is closed");
+            }
+            if (current == null) {
+                Batch batch = new Batch();
+                batch.timer = scheduler.schedule(() -> flush(batch), windowNanos, TimeUnit.NANOSECONDS);
+                current = batch;
+            }
+            current.add(userId, future);
+            if (current.waiters.size() >= maxBatchSize) {
+                full = current;
+                current = null;
+                full.timer.cancel(false);
+            }
+        }
+        if (full != null) {
+            dispatch(full);
+        }
+        return future;
+    }
+
+    /**
+     * @return the latencies from each lookup to the completion of its future
+     */
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * @return the number of bulk lookups sent to the repository
+     */
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    /**
+     * Sends the pending batch, if any, and stops accepting lookups.
+     * Batches already sent still complete. A batch that was being sent
+     * while the loader closed fails with an IllegalStateException.
+     */
+    @Override
+    public void close() {
+        Batch pending;
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pending = current;
+            current = null;
+        }
+        if (pending != null) {
+            pending.timer.cancel(false);
+            dispatch(pending);
+        }
+        scheduler.shutdown();
+        dispatcher.shutdown();
+    }
+
+    private void flush(Batch batch) {
+        synchronized (lock) {
+            // The batch may already have been sent because it filled up
+            if (current != batch) {
+                return;
+            }
+            current = null;
+        }
+        dispatch(batch);
+    }
+
+    private void dispatch(Batch batch) {
+        batches.increment();
+        try {
+            dispatcher.execute(() -> run(batch));
+        } catch (RejectedExecutionException e) {
+            // close() shut the dispatcher down after this batch was taken, but before it was sent
+            batches.decrement();
+            fail(batch, new IllegalStateException("Loader is closed", e));
+        }
+    }
+
+    private void run(Batch batch) {
+        Map<String, UserSnapshot> found;
+        try {
+            found = repository.findAllSnapshotsById(new ArrayList<>(batch.waiters.keySet()));
+        } catch (RuntimeException | Error e) {
+            fail(batch, e);
+            return;
+        }
+
+        batch.waiters.forEach((userId, waiters) -> {
+            UserSnapshot snapshot = found.get(userId);
+            for (Waiter waiter : waiters) {
+                latencies.record(System.nanoTime() - waiter.startNanos);
+                waiter.future.complete(snapshot != null ? snapshot.toUser() : null);
+            }
+        });
+    }
+
+    private void fail(Batch batch, Throwable failure) {
+        batch.waiters.values().forEach(waiters -> waiters.forEach(waiter -> {
+            latencies.record(System.nanoTime() - waiter.startNanos);
+            waiter.future.completeExceptionally(failure);
+        }));
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * The lookups collected during one window, grouped by ID. Guarded by the loader lock until sent.
+     */
+    private static final class Batch {
+        private final Map<String, List<Waiter>> waiters = new LinkedHashMap<>();
+        private ScheduledFuture<?> timer;
+
+        void add(String userId, CompletableFuture<User> future) {
+            waiters.computeIfAbsent(userId, id -> new ArrayList<>(1)).add(new Waiter(future, System.nanoTime()));
+        }
+    }
+
+    private static final class Waiter {
+        private final CompletableFuture<User> future;
+        private final long startNanos;
+
+        Waiter(CompletableFuture<User> future, long startNanos) {
+            this.future = future;
+            this.startNanos = startNanos;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.level1;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Read-through caching decorator for a UserRepository.
+ * Lookups are served from a bounded {@link SegmentedLruCache} when possible,
+ * and saves and deletes invalidate it. Only a versioned save learns the version
+ * the delegate assigned, so it is the only write that refills the cache.
+ * Misses are cached as well, so repeated lookups of unknown IDs do not
+ * hit the underlying repository either. Users are cached as immutable
+ * snapshots, which snapshot lookups return without copying.
+ */
+public class CachingUserRepository implements UserRepository {
+
+    // Marker stored in the cache for IDs known not to exist
+    private static final UserSnapshot ABSENT = new UserSnapshot(null, null, null, false);
+
+    private final UserRepository delegate;
+    private final SegmentedLruCache<String, UserSnapshot> cache;
+
+    /**
+     * Constructs a caching repository in front of the given repository.
+     *
+     * @param delegate the repository to cache
+     * @param maximumSize the maximum number of cached users (including cached misses)
+     */
+    public CachingUserRepository(UserRepository delegate, int maximumSize) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Delegate repository cannot be null");
+        }
+        this.delegate = delegate;
+        this.cache = new SegmentedLruCache<>(maximumSize);
+    }
+
+    @Override
+    public User findById(String userId) {
+        UserSnapshot snapshot = findSnapshotById(userId);
+        return snapshot != null ? snapshot.toUser() : null;
+    }
+
+    @Override
+    public UserSnapshot findSnapshotById(String userId) {
+        UserSnapshot cached = cache.get(userId);
+        if (cached != null) {
+            return cached == ABSENT ? null : cached;
+        }
+
+        long generation = cache.generation();
+        UserSnapshot loaded = delegate.findSnapshotById(userId);
+        cache.putIfCurrent(userId, loaded == null ? ABSENT : loaded, generation);
+        return loaded;
+    }
+
+    @Override
+    public Map<String, UserSnapshot> findAllSnapshotsById(Collection<String> userIds) {
+        Map<String, UserSnapshot> found = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String userId : userIds) {
+            UserSnapshot cached = cache.get(userId);
+            if (cached == null) {
+                missing.add(userId);
+            } else if (cached != ABSENT) {
+                found.put(userId, cached);
+            }
+        }
+        if (missing.isEmpty()) {
+            return found;
+        }
+
+        // Only the misses go to the delegate, in a single bulk lookup
+        long generation = cache.generation();
+        Map<String, UserSnapshot> loaded = delegate.findAllSnapshotsById(missing);
+        for (String userId : missing) {
+            UserSnapshot snapshot = loaded.get(userId);
+            cache.putIfCurrent(userId, snapshot == null ? ABSENT : snapshot, generation);
+        }
+        found.putAll(loaded);
+        return found;
+    }
+
+    @Override
+    public List<User> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Stream<User> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public UserPage findPage(String continuationToken, int pageSize) {
+        return delegate.findPage(continuationToken, pageSize);
+    }
+
+    @Override
+    public void save(User user) {
+        if (user == null) {
+            throw new IllegalArgumentException("User cannot be null");
+        }
+        saveSnapshot(UserSnapshot.of(user));
+    }
+
+    @Override
+    public void saveSnapshot(UserSnapshot snapshot) {
+        if (snapshot == null) {
+            throw new IllegalArgumentException("User cannot be null");
+        }
+
+        try {
+            delegate.saveSnapshot(snapshot);
+        } catch (RuntimeException e) {
+            // The stored state is unknown now, so drop whatever we had
+            cache.invalidate(snapshot.id());
+            throw e;
+        }
+        // The delegate assigned the stored user a version we do not know, so the next read goes to it
+        cache.invalidate(snapshot.id());
+    }
+
+    @Override
+    public boolean saveIfAbsent(User user) {
+        if (user == null) {
+            throw new IllegalArgumentException("User cannot be null");
+        }
+
+        try {
+            return delegate.saveIfAbsent(user);
+        } finally {
+            // Either way the user exists now, with a version only the delegate knows
+            cache.invalidate(user.getId());
+        }
+    }
+
+    @Override
+    public UserSnapshot saveIfVersion(UserSnapshot snapshot, long expectedVersion) {
+        if (snapshot == null) {
+            throw new IllegalArgumentException("User cannot be null");
+        }
+
+        UserSnapshot stored;
+        try {
+            stored = delegate.saveIfVersion(snapshot, expectedVersion);
+        } catch (RuntimeException e) {
+            cache.invalidate(snapshot.id());
+            throw e;
+        }
+        // A conflict means our copy may be stale, so the caller's next read must go to the delegate
+        cache.invalidate(snapshot.id());
+        if (stored != null) {
+            cache.put(snapshot.id(), stored);
+        }
+        return stored;
+    }
+
+    @Override
+    public void delete(String userId) {
+        try {
+            delegate.delete(userId);
+        } finally {
+            cache.invalidate(userId);
+        }
+    }
+
+    @Override
+    public boolean exists(String userId) {
+        UserSnapshot cached = cache.get(userId);
+        if (cached != null) {
+            return cached != ABSENT;
+        }
+
+        long generation = cache.generation();
+        boolean exists = delegate.exists(userId);
+        if (!exists) {
+            cache.putIfCurrent(userId, ABSENT, generation);
+        }
+        return exists;
+    }
+
+    @Override
+    public boolean isInterruptible() {
+        return delegate.isInterruptible();
+    }
+
+    /**
+     * Gets the cache backing this repository, mainly to inspect its statistics.
+     *
+     * @return the cache
+     */
+    public SegmentedLruCache<String, UserSnapshot> getCache() {
+        return cache;
+    }
+}
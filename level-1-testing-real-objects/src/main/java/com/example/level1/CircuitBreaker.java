@@ -0,0 +1,130 @@
+package com.example.level1;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free circuit breaker.
+ * After a number of consecutive failures the breaker opens and rejects calls
+ * for a cool-down period, so a failing dependency is not hammered while it is
+ * down. After the cool-down a single trial call is let through (half-open):
+ * its success closes the breaker again, its failure re-opens it.
+ *
+ * The whole state lives in one immutable object that is swapped with
+ * compare-and-set, so callers never block each other.
+ */
+public class CircuitBreaker {
+
+    /**
+     * The states of a circuit breaker.
+     */
+    public enum State {
+        /** Calls are let through. */
+        CLOSED,
+        /** Calls are rejected until the cool-down has passed. */
+        OPEN,
+        /** A single trial call is in progress; other calls are rejected. */
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final AtomicReference<Status> status = new AtomicReference<>(new Status(State.CLOSED, 0, 0));
+
+    /**
+     * Creates a closed circuit breaker.
+     *
+     * @param failureThreshold the number of consecutive failures that opens the breaker
+     * @param openDuration how long the breaker stays open before a trial call
+     * @param unit the unit of the open duration
+     */
+    public CircuitBreaker(int failureThreshold, long openDuration, TimeUnit unit) {
+        if (failureThreshold < 1 || openDuration < 0) {
+            throw new IllegalArgumentException("Failure threshold must be positive and open duration not negative");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = unit.toNanos(openDuration);
+    }
+
+    /**
+     * Asks for permission to make a call. Every permitted call must be followed
+     * by {@link #onSuccess()} or {@link #onFailure()}.
+     *
+     * @return true if the call may go ahead
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            Status current = status.get();
+            switch (current.state) {
+                case CLOSED:
+                    return true;
+                case HALF_OPEN:
+                    return false;
+                default:
+                    if (System.nanoTime() - current.openedAt < openNanos) {
+                        return false;
+                    }
+                    // Only the caller that wins this swap gets to make the trial call
+                    if (status.compareAndSet(current, new Status(State.HALF_OPEN, 0, current.openedAt))) {
+                        return true;
+                    }
+            }
+        }
+    }
+
+    /**
+     * Records a successful call, which closes a half-open breaker and resets the failure count.
+     */
+    public void onSuccess() {
+        while (true) {
+            Status current = status.get();
+            // A call let through before the breaker opened says nothing about the dependency now
+            if (current.state == State.OPEN || (current.state == State.CLOSED && current.failures == 0)) {
+                return;
+            }
+            if (status.compareAndSet(current, new Status(State.CLOSED, 0, 0))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Records a failed call, which opens the breaker if it was a trial call
+     * or the failure threshold is reached.
+     */
+    public void onFailure() {
+        while (true) {
+            Status current = status.get();
+            Status next;
+            if (current.state == State.OPEN) {
+                return;
+            } else if (current.state == State.HALF_OPEN || current.failures + 1 >= failureThreshold) {
+                next = new Status(State.OPEN, 0, System.nanoTime());
+            } else {
+                next = new Status(State.CLOSED, current.failures + 1, 0);
+            }
+            if (status.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the current state
+     */
+    public State getState() {
+        return status.get().state;
+    }
+
+    private static final class Status {
+        private final State state;
+        private final int failures;
+        private final long openedAt;
+
+        Status(State state, int failures, long openedAt) {
+            this.state = state;
+            this.failures = failures;
+            this.openedAt = openedAt;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.level1;
+
+/**
+ * Exception thrown when a call is rejected because a circuit breaker is open.
+ */
+public class CircuitOpenException extends RuntimeException {
+    
+    /**
+     * Constructs a new exception with the specified detail message.
+     * 
+     * @param message the detail message
+     */
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.level1;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A point in time by which an operation has to complete.
+ * A deadline can be made current for the calling thread with {@link #call(Supplier)},
+ * which lets code further down the call stack, such as a repository, find out how
+ * much of the time budget is left without every method taking a deadline parameter.
+ * Deadlines nest: within a call, the earlier of the outer and inner deadline applies.
+ */
+public final class Deadline {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Creates a deadline the given amount of time from now.
+     *
+     * @param timeout the time budget
+     * @param unit the unit of the time budget
+     * @return the deadline
+     */
+    public static Deadline after(long timeout, TimeUnit unit) {
+        return new Deadline(System.nanoTime() + unit.toNanos(timeout));
+    }
+
+    /**
+     * Gets the deadline that applies to the calling thread.
+     *
+     * @return the current deadline, or null if there is none
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @return the time left until the deadline in nanoseconds, negative once it has passed
+     */
+    public long remainingNanos() {
+        return deadlineNanos - System.nanoTime();
+    }
+
+    /**
+     * @return true if the deadline has passed
+     */
+    public boolean isExpired() {
+        return remainingNanos() <= 0;
+    }
+
+    /**
+     * Runs an action with this deadline as the current deadline of the calling thread.
+     * If an earlier deadline is already current, that one stays in effect.
+     *
+     * @param action the action to run
+     * @param <T> the type of the result
+     * @return the result of the action
+     */
+    public <T> T call(Supplier<T> action) {
+        Deadline outer = CURRENT.get();
+        CURRENT.set(outer != null && outer.deadlineNanos - deadlineNanos < 0 ? outer : this);
+        try {
+            return action.get();
+        } finally {
+            if (outer != null) {
+                CURRENT.set(outer);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Deadline{remaining=" + TimeUnit.NANOSECONDS.toMillis(remainingNanos()) + "ms}";
+    }
+}
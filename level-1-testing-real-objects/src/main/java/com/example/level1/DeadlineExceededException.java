@@ -0,0 +1,26 @@
+package com.example.level1;
+
+/**
+ * Exception thrown when an operation does not complete before its deadline.
+ */
+public class DeadlineExceededException extends RuntimeException {
+    
+    /**
+     * Constructs a new exception with the specified detail message.
+     * 
+     * @param message the detail message
+     */
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+    
+    /**
+     * Constructs a new exception with the specified detail message and cause.
+     * 
+     * @param message the detail message
+     * @param cause the cause
+     */
+    public DeadlineExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,504 @@
+package com.example.level1;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Persistent implementation of UserRepository backed by a memory-mapped data file.
+ * Users are appended as length-prefixed records; updates append a new record and
+ * mark the old one deleted, so existing bytes are never rewritten apart from a
+ * single status byte. A record only becomes visible once the committed end in the
+ * file header has moved past it, which makes a torn append after a crash harmless.
+ *
+ * An ID to offset hash index is kept off-heap in a second mapped file. After a
+ * clean {@link #close()} it is reused as-is on the next start; after a crash it is
+ * rebuilt by scanning the data file. Space taken by deleted records is reclaimed
+ * with {@link #compact()}.
+ *
+ * Each record carries the version it was stored with. The last version handed
+ * out is kept in the header, so versions are never reused, even after a restart.
+ *
+ * Mappings are limited to 2 GB, so this is suited to data sets up to that size.
+ */
+public class MappedFileUserRepository implements UserRepository, AutoCloseable {
+
+    private static final String DATA_FILE = "users.dat";
+    private static final String INDEX_FILE = "users.idx";
+
+    private static final int MAGIC = 0x55535244; // "USRD"
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_SIZE = 32;
+    private static final int VERSION_OFFSET = 4;
+    private static final int END_OFFSET = 8;
+    private static final int GARBAGE_OFFSET = 16;
+    private static final int LAST_VERSION_OFFSET = 24;
+    private static final int INITIAL_SIZE = 1 << 20;
+
+    // Record layout: int length, byte status, byte active, long version, then id, username and email
+    private static final int STATUS_OFFSET = 4;
+    private static final int ACTIVE_OFFSET = 5;
+    private static final int RECORD_VERSION_OFFSET = 6;
+    private static final int FIELDS_OFFSET = 14;
+    private static final byte LIVE = 1;
+    private static final byte DELETED = 0;
+    private static final short NULL_STRING = -1;
+
+    private final Path dataFile;
+    private final Path indexFile;
+    private final boolean syncWrites;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private FileChannel channel;
+    private MappedByteBuffer data;
+    private int end;
+    private int garbageBytes;
+    private long lastVersion;
+    private MappedHashIndex index;
+    private boolean closed;
+
+    /**
+     * Opens or creates a repository in the given directory, forcing every write to disk.
+     *
+     * @param directory the directory holding the data and index files
+     */
+    public MappedFileUserRepository(Path directory) {
+        this(directory, true);
+    }
+
+    /**
+     * Opens or creates a repository in the given directory.
+     *
+     * @param directory the directory holding the data and index files
+     * @param syncWrites whether each write is forced to disk before it returns;
+     *                   if false, the operating system decides when to write back
+     */
+    public MappedFileUserRepository(Path directory, boolean syncWrites) {
+        this.dataFile = directory.resolve(DATA_FILE);
+        this.indexFile = directory.resolve(INDEX_FILE);
+        this.syncWrites = syncWrites;
+        try {
+            Files.createDirectories(directory);
+            openDataFile();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open user data file " + dataFile, e);
+        }
+
+        index = MappedHashIndex.openIfCurrent(indexFile, end);
+        if (index == null) {
+            rebuildIndex(0);
+        }
+    }
+
+    @Override
+    public User findById(String userId) {
+        if (userId == null) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            int offset = lookup(userId);
+            return offset != 0 ? readUser(offset) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<User> findAll() {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            List<User> result = new ArrayList<>(index.size());
+            for (int offset = HEADER_SIZE; offset < end; offset += data.getInt(offset)) {
+                if (data.get(offset + STATUS_OFFSET) == LIVE) {
+                    result.add(readUser(offset));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void save(User user) {
+        if (user == null || user.getId() == null) {
+            throw new IllegalArgumentException("User and user ID cannot be null");
+        }
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            byte[] id = utf8(user.getId());
+            int offset = append(user, id);
+            int previous = index.put(hash(user.getId()), offset, candidate -> idEquals(candidate, id));
+            if (previous != 0) {
+                markDeleted(previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean saveIfAbsent(User user) {
+        if (user == null || user.getId() == null) {
+            throw new IllegalArgumentException("User and user ID cannot be null");
+        }
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            if (lookup(user.getId()) != 0) {
+                return false;
+            }
+            byte[] id = utf8(user.getId());
+            int offset = append(user, id);
+            index.put(hash(user.getId()), offset, candidate -> idEquals(candidate, id));
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public UserSnapshot saveIfVersion(UserSnapshot snapshot, long expectedVersion) {
+        if (snapshot == null || snapshot.id() == null) {
+            throw new IllegalArgumentException("User and user ID cannot be null");
+        }
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            int current = lookup(snapshot.id());
+            if (current == 0 || data.getLong(current + RECORD_VERSION_OFFSET) != expectedVersion) {
+                return null;
+            }
+            byte[] id = utf8(snapshot.id());
+            int offset = append(snapshot.toUser(), id);
+            index.put(hash(snapshot.id()), offset, candidate -> idEquals(candidate, id));
+            markDeleted(current);
+            return snapshot.withVersion(lastVersion);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(String userId) {
+        if (userId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            byte[] id = utf8(userId);
+            int previous = index.remove(hash(userId), candidate -> idEquals(candidate, id));
+            if (previous != 0) {
+                markDeleted(previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean exists(String userId) {
+        if (userId == null) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            return lookup(userId) != 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of bytes taken by deleted or superseded records
+     */
+    public int getGarbageBytes() {
+        lock.readLock().lock();
+        try {
+            return garbageBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the data file with only the live records and rebuilds the index.
+     * The new file replaces the old one atomically, so a crash during compaction
+     * leaves the previous file intact. The old file stays mapped until the new one
+     * is in place, so a failed compaction leaves the repository as it was.
+     */
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            Path temp = dataFile.resolveSibling(DATA_FILE + ".compact");
+            int liveBytes = end - HEADER_SIZE - garbageBytes;
+            MappedByteBuffer oldData = data;
+            int oldEnd = end;
+            int oldGarbageBytes = garbageBytes;
+            MappedHashIndex oldIndex = index;
+            // Kept open: once moved into place, the temporary file is the data file
+            FileChannel target = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                MappedByteBuffer compacted = target.map(FileChannel.MapMode.READ_WRITE, 0,
+                        Math.max(INITIAL_SIZE, HEADER_SIZE + liveBytes));
+                int position = HEADER_SIZE;
+                for (int offset = HEADER_SIZE; offset < end; offset += data.getInt(offset)) {
+                    if (data.get(offset + STATUS_OFFSET) == LIVE) {
+                        int length = data.getInt(offset);
+                        compacted.put(position, data, offset, length);
+                        position += length;
+                    }
+                }
+                writeHeader(compacted, position, 0, lastVersion);
+                compacted.force();
+
+                data = compacted;
+                end = position;
+                garbageBytes = 0;
+                rebuildIndex(oldIndex.size());
+                Files.move(temp, dataFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException | RuntimeException e) {
+                // The old file is still in place, and the new index is not stamped as current
+                if (index != oldIndex) {
+                    index.close();
+                }
+                index = oldIndex;
+                data = oldData;
+                end = oldEnd;
+                garbageBytes = oldGarbageBytes;
+                target.close();
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+
+            FileChannel oldChannel = channel;
+            channel = target;
+            oldIndex.close();
+            oldChannel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot compact user data file " + dataFile, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Flushes all data and leaves the index in a state the next start can reuse.
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            data.force();
+            index.closeClean(end);
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close user data file " + dataFile, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void openDataFile() throws IOException {
+        channel = FileChannel.open(dataFile, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() == 0) {
+            data = channel.map(FileChannel.MapMode.READ_WRITE, 0, INITIAL_SIZE);
+            writeHeader(data, HEADER_SIZE, 0, 0);
+            data.force();
+        } else {
+            data = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            if (data.getInt(0) != MAGIC || data.getInt(VERSION_OFFSET) != FORMAT_VERSION) {
+                throw new IOException("Not a user data file: " + dataFile);
+            }
+        }
+        end = (int) data.getLong(END_OFFSET);
+        garbageBytes = data.getInt(GARBAGE_OFFSET);
+        lastVersion = data.getLong(LAST_VERSION_OFFSET);
+    }
+
+    private void rebuildIndex(int expectedEntries) {
+        index = MappedHashIndex.create(indexFile, expectedEntries);
+        for (int offset = HEADER_SIZE; offset < end; offset += data.getInt(offset)) {
+            if (data.get(offset + STATUS_OFFSET) != LIVE) {
+                continue;
+            }
+            byte[] id = readBytes(offset + FIELDS_OFFSET);
+            int previous = index.put(hash(new String(id, StandardCharsets.UTF_8)), offset,
+                    candidate -> idEquals(candidate, id));
+            if (previous != 0) {
+                // A crash between appending an update and retiring the old record
+                markDeleted(previous);
+            }
+        }
+    }
+
+    private int lookup(String userId) {
+        byte[] id = utf8(userId);
+        return index.get(hash(userId), candidate -> idEquals(candidate, id));
+    }
+
+    /**
+     * Appends a record for the user, stored with the next version; the user itself is left alone.
+     */
+    private int append(User user, byte[] id) {
+        byte[] username = utf8(user.getUsername());
+        byte[] email = utf8(user.getEmail());
+        int length = FIELDS_OFFSET + fieldSize(id) + fieldSize(username) + fieldSize(email);
+        int offset = end;
+        ensureCapacity((long) offset + length);
+        long version = lastVersion + 1;
+
+        data.putInt(offset, length);
+        data.put(offset + STATUS_OFFSET, LIVE);
+        data.put(offset + ACTIVE_OFFSET, user.isActive() ? (byte) 1 : (byte) 0);
+        data.putLong(offset + RECORD_VERSION_OFFSET, version);
+        int position = putField(offset + FIELDS_OFFSET, id);
+        position = putField(position, username);
+        putField(position, email);
+
+        // The record must be durable before the header points past it
+        if (syncWrites) {
+            data.force(offset, length);
+        }
+        end = offset + length;
+        lastVersion = version;
+        data.putLong(END_OFFSET, end);
+        data.putLong(LAST_VERSION_OFFSET, lastVersion);
+        if (syncWrites) {
+            data.force(END_OFFSET, LAST_VERSION_OFFSET + Long.BYTES - END_OFFSET);
+        }
+        return offset;
+    }
+
+    private void markDeleted(int offset) {
+        data.put(offset + STATUS_OFFSET, DELETED);
+        garbageBytes += data.getInt(offset);
+        data.putInt(GARBAGE_OFFSET, garbageBytes);
+        if (syncWrites) {
+            data.force(offset + STATUS_OFFSET, 1);
+        }
+    }
+
+    private User readUser(int offset) {
+        int position = offset + FIELDS_OFFSET;
+        byte[] id = readBytes(position);
+        position += fieldSize(id);
+        byte[] username = readBytes(position);
+        position += fieldSize(username);
+        byte[] email = readBytes(position);
+        User user = new User(string(id), string(username), string(email), data.get(offset + ACTIVE_OFFSET) == 1);
+        user.setVersion(data.getLong(offset + RECORD_VERSION_OFFSET));
+        return user;
+    }
+
+    private boolean idEquals(int offset, byte[] id) {
+        int position = offset + FIELDS_OFFSET;
+        if (data.getShort(position) != id.length) {
+            return false;
+        }
+        position += Short.BYTES;
+        for (int i = 0; i < id.length; i++) {
+            if (data.get(position + i) != id[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private byte[] readBytes(int position) {
+        short length = data.getShort(position);
+        if (length == NULL_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        data.get(position + Short.BYTES, bytes);
+        return bytes;
+    }
+
+    private int putField(int position, byte[] bytes) {
+        if (bytes == null) {
+            data.putShort(position, NULL_STRING);
+            return position + Short.BYTES;
+        }
+        data.putShort(position, (short) bytes.length);
+        data.put(position + Short.BYTES, bytes);
+        return position + Short.BYTES + bytes.length;
+    }
+
+    private void ensureCapacity(long required) {
+        if (required <= data.capacity()) {
+            return;
+        }
+        if (required > Integer.MAX_VALUE) {
+            throw new IllegalStateException("User data file is full: " + dataFile);
+        }
+        long newSize = Math.min(Integer.MAX_VALUE, Math.max(required, 2L * data.capacity()));
+        try {
+            // Mapping beyond the end of the file grows it
+            data = channel.map(FileChannel.MapMode.READ_WRITE, 0, newSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot grow user data file " + dataFile, e);
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Repository is closed");
+        }
+    }
+
+    private static void writeHeader(MappedByteBuffer buffer, int end, int garbageBytes, long lastVersion) {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(VERSION_OFFSET, FORMAT_VERSION);
+        buffer.putLong(END_OFFSET, end);
+        buffer.putInt(GARBAGE_OFFSET, garbageBytes);
+        buffer.putLong(LAST_VERSION_OFFSET, lastVersion);
+    }
+
+    private static int fieldSize(byte[] bytes) {
+        return Short.BYTES + (bytes != null ? bytes.length : 0);
+    }
+
+    private static byte[] utf8(String value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Value too long to store: " + bytes.length + " bytes");
+        }
+        return bytes;
+    }
+
+    private static String string(byte[] bytes) {
+        return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+    }
+
+    private static int hash(String userId) {
+        int h = userId.hashCode();
+        return h ^ (h >>> 16);
+    }
+}
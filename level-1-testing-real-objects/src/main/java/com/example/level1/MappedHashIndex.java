@@ -0,0 +1,299 @@
+package com.example.level1;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntPredicate;
+
+/**
+ * Open-addressing hash index stored in a memory-mapped file, mapping a key hash
+ * to the offset of a record in a data file. Each slot is a single long holding the
+ * key hash in its upper half and the record offset in its lower half, so lookups
+ * and resizes never touch the Java heap. Keys themselves are not stored; callers
+ * confirm a candidate offset with a predicate that compares the key in the record.
+ *
+ * The header carries a stamp identifying the data file state the index matches.
+ * While the index is in use the stamp is cleared, so an index left behind by a
+ * crash is detected and rebuilt rather than trusted.
+ */
+class MappedHashIndex implements AutoCloseable {
+
+    private static final int MAGIC = 0x55534958; // "USIX"
+    private static final int HEADER_SIZE = 32;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int CAPACITY_OFFSET = 4;
+    private static final int SIZE_OFFSET = 8;
+    private static final int USED_OFFSET = 12;
+    private static final int STAMP_OFFSET = 16;
+
+    private static final int EMPTY = 0;
+    private static final int DELETED = -1;
+    private static final long NO_STAMP = -1L;
+    private static final double MAX_LOAD = 0.6;
+    // Keeps the whole table within a single mapping
+    private static final int MAX_CAPACITY = 1 << 27;
+
+    private final Path file;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int mask;
+    private int size;
+    // Slots that are occupied or hold a deletion marker
+    private int used;
+
+    private MappedHashIndex(Path file, FileChannel channel, MappedByteBuffer buffer) {
+        this.file = file;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = buffer.getInt(CAPACITY_OFFSET);
+        this.mask = capacity - 1;
+        this.size = buffer.getInt(SIZE_OFFSET);
+        this.used = buffer.getInt(USED_OFFSET);
+    }
+
+    /**
+     * Creates a new, empty index file, replacing any existing one.
+     *
+     * @param file the index file
+     * @param expectedEntries the number of entries to size the table for
+     * @return the index, marked as in use
+     */
+    static MappedHashIndex create(Path file, int expectedEntries) {
+        int capacity = tableSizeFor(expectedEntries);
+        try {
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            writeEmpty(temp, capacity);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return open(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create index file " + file, e);
+        }
+    }
+
+    /**
+     * Maps an existing index file if it was cleanly closed against the given data state.
+     *
+     * @param file the index file
+     * @param expectedStamp the stamp describing the current data file state
+     * @return the index, marked as in use, or null if it is missing or stale
+     */
+    static MappedHashIndex openIfCurrent(Path file, long expectedStamp) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            MappedHashIndex index = open(file);
+            if (index.buffer.getInt(MAGIC_OFFSET) != MAGIC
+                    || index.buffer.getLong(STAMP_OFFSET) != expectedStamp) {
+                index.channel.close();
+                return null;
+            }
+            index.buffer.putLong(STAMP_OFFSET, NO_STAMP);
+            index.buffer.force(STAMP_OFFSET, Long.BYTES);
+            return index;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Finds the record offset for a key.
+     *
+     * @param hash the key hash
+     * @param matches tells whether the record at an offset holds the key
+     * @return the record offset, or 0 if the key is not indexed
+     */
+    int get(int hash, IntPredicate matches) {
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            long slot = slot(i);
+            int offset = (int) slot;
+            if (offset == EMPTY) {
+                return EMPTY;
+            }
+            if (offset != DELETED && (int) (slot >>> 32) == hash && matches.test(offset)) {
+                return offset;
+            }
+        }
+    }
+
+    /**
+     * Points a key at a new record offset.
+     *
+     * @param hash the key hash
+     * @param offset the record offset, must be positive
+     * @param matches tells whether the record at an offset holds the key
+     * @return the previous record offset, or 0 if the key was not indexed
+     */
+    int put(int hash, int offset, IntPredicate matches) {
+        if (used + 1 > capacity * MAX_LOAD) {
+            // Grow when genuinely full, otherwise just clear out the deletion markers
+            boolean grow = size + 1 > capacity * MAX_LOAD / 2;
+            if (grow && capacity == MAX_CAPACITY) {
+                throw new IllegalStateException("Index is full: " + file);
+            }
+            resize(grow ? capacity * 2 : capacity);
+        }
+
+        int firstDeleted = -1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            long slot = slot(i);
+            int existing = (int) slot;
+            if (existing == EMPTY) {
+                if (firstDeleted >= 0) {
+                    setSlot(firstDeleted, hash, offset);
+                } else {
+                    setSlot(i, hash, offset);
+                    used++;
+                }
+                size++;
+                writeCounts();
+                return EMPTY;
+            }
+            if (existing == DELETED) {
+                if (firstDeleted < 0) {
+                    firstDeleted = i;
+                }
+            } else if ((int) (slot >>> 32) == hash && matches.test(existing)) {
+                setSlot(i, hash, offset);
+                return existing;
+            }
+        }
+    }
+
+    /**
+     * Removes a key from the index.
+     *
+     * @param hash the key hash
+     * @param matches tells whether the record at an offset holds the key
+     * @return the removed record offset, or 0 if the key was not indexed
+     */
+    int remove(int hash, IntPredicate matches) {
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            long slot = slot(i);
+            int offset = (int) slot;
+            if (offset == EMPTY) {
+                return EMPTY;
+            }
+            if (offset != DELETED && (int) (slot >>> 32) == hash && matches.test(offset)) {
+                setSlot(i, 0, DELETED);
+                size--;
+                writeCounts();
+                return offset;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Flushes the index and records the data file state it matches,
+     * so the next open can map it instead of rebuilding it.
+     *
+     * @param stamp the stamp describing the current data file state
+     */
+    void closeClean(long stamp) {
+        buffer.force();
+        buffer.putLong(STAMP_OFFSET, stamp);
+        buffer.force(STAMP_OFFSET, Long.BYTES);
+        close();
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close index file " + file, e);
+        }
+    }
+
+    private long slot(int i) {
+        return buffer.getLong(HEADER_SIZE + i * Long.BYTES);
+    }
+
+    private void setSlot(int i, int hash, int offset) {
+        buffer.putLong(HEADER_SIZE + i * Long.BYTES, ((long) hash << 32) | (offset & 0xFFFFFFFFL));
+    }
+
+    private void writeCounts() {
+        buffer.putInt(SIZE_OFFSET, size);
+        buffer.putInt(USED_OFFSET, used);
+    }
+
+    private void resize(int newCapacity) {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            writeEmpty(temp, newCapacity);
+            try (FileChannel tempChannel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer target = tempChannel.map(FileChannel.MapMode.READ_WRITE, 0, tempChannel.size());
+                int newMask = newCapacity - 1;
+                for (int i = 0; i < capacity; i++) {
+                    long slot = slot(i);
+                    int offset = (int) slot;
+                    if (offset == EMPTY || offset == DELETED) {
+                        continue;
+                    }
+                    // Hashes live in the slots, so rehashing never reads the data file
+                    int j = (int) (slot >>> 32) & newMask;
+                    while (target.getLong(HEADER_SIZE + j * Long.BYTES) != 0) {
+                        j = (j + 1) & newMask;
+                    }
+                    target.putLong(HEADER_SIZE + j * Long.BYTES, slot);
+                }
+                target.putInt(SIZE_OFFSET, size);
+                target.putInt(USED_OFFSET, size);
+                target.putLong(STAMP_OFFSET, NO_STAMP);
+                target.force();
+            }
+            // The old table stays mapped until the new one is, so a failure here leaves it in use
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            FileChannel newChannel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer newBuffer;
+            try {
+                newBuffer = newChannel.map(FileChannel.MapMode.READ_WRITE, 0, newChannel.size());
+            } catch (IOException e) {
+                newChannel.close();
+                throw e;
+            }
+            channel.close();
+            channel = newChannel;
+            buffer = newBuffer;
+            capacity = newCapacity;
+            mask = newCapacity - 1;
+            used = size;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot resize index file " + file, e);
+        }
+    }
+
+    private static MappedHashIndex open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        return new MappedHashIndex(file, channel, buffer);
+    }
+
+    private static void writeEmpty(Path file, int capacity) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_SIZE + (long) capacity * Long.BYTES);
+            buffer.putInt(MAGIC_OFFSET, MAGIC);
+            buffer.putInt(CAPACITY_OFFSET, capacity);
+            buffer.putLong(STAMP_OFFSET, NO_STAMP);
+            buffer.force();
+        }
+    }
+
+    private static int tableSizeFor(int expectedEntries) {
+        int needed = (int) Math.min(MAX_CAPACITY, (long) Math.ceil(Math.max(16, expectedEntries) / MAX_LOAD));
+        return Integer.highestOneBit(needed - 1) << 1;
+    }
+}
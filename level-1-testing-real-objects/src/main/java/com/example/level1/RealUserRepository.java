@@ -1,10 +1,17 @@
 package com.example.level1;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Random;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Real implementation of UserRepository that simulates database operations.
@@ -13,29 +20,49 @@ import java.util.Random;
  */
 public class RealUserRepository implements UserRepository {
     
-    // Map to simulate a database store
-    private final Map<String, User> users = new HashMap<>();
+    // Pages are sized up front, but never beyond this: a huge page size need not mean many users
+    private static final int MAX_PAGE_PRESIZE = 1_024;
+    
+    // Map to simulate a database store, kept sorted by ID to support keyset paging.
+    // Users are stored as immutable snapshots, so reads can share them without copying.
+    private final NavigableMap<String, UserSnapshot> users = new ConcurrentSkipListMap<>();
+    
+    // Source of user versions; shared by all IDs so a version is never reused after a delete
+    private final AtomicLong versions = new AtomicLong();
     
     // Random generator for simulating latency and errors
     private final Random random = new Random();
     
     @Override
     public User findById(String userId) {
+        UserSnapshot snapshot = findSnapshotById(userId);
+        
+        // Return a mutable copy to avoid unintended modifications
+        return snapshot != null ? snapshot.toUser() : null;
+    }
+    
+    @Override
+    public UserSnapshot findSnapshotById(String userId) {
         // Simulate database access latency
         simulateLatency();
         
-        // Return a copy of the user to avoid unintended modifications
-        User original = users.get(userId);
-        if (original == null) {
-            return null;
-        }
+        // Snapshots are immutable, so the stored instance can be shared
+        return userId != null ? users.get(userId) : null;
+    }
+    
+    @Override
+    public Map<String, UserSnapshot> findAllSnapshotsById(Collection<String> userIds) {
+        // Simulate database access latency, once for the whole set like an IN query
+        simulateLatency();
         
-        return new User(
-            original.getId(),
-            original.getUsername(),
-            original.getEmail(),
-            original.isActive()
-        );
+        Map<String, UserSnapshot> found = new HashMap<>();
+        for (String userId : userIds) {
+            UserSnapshot snapshot = userId != null ? users.get(userId) : null;
+            if (snapshot != null) {
+                found.put(userId, snapshot);
+            }
+        }
+        return found;
     }
     
     @Override
@@ -44,35 +71,114 @@ public class RealUserRepository implements UserRepository {
         simulateLatency();
         
         // Return copies of users to avoid unintended modifications
-        List<User> userList = new ArrayList<>();
-        for (User original : users.values()) {
-            userList.add(new User(
-                original.getId(),
-                original.getUsername(),
-                original.getEmail(),
-                original.isActive()
-            ));
+        List<User> userList = new ArrayList<>(users.size());
+        for (UserSnapshot snapshot : users.values()) {
+            userList.add(snapshot.toUser());
         }
         
         return userList;
     }
     
+    @Override
+    public List<UserSnapshot> findAllSnapshots() {
+        // Simulate database access latency
+        simulateLatency();
+        
+        return new ArrayList<>(users.values());
+    }
+    
+    @Override
+    public Stream<User> streamAll() {
+        // Simulate database access latency
+        simulateLatency();
+        
+        // Snapshot the references only; copies are made as the stream is consumed
+        UserSnapshot[] snapshot = users.values().toArray(new UserSnapshot[0]);
+        return StreamSupport.stream(new UserSpliterator<>(snapshot, UserSnapshot::toUser), false);
+    }
+    
+    @Override
+    public UserPage findPage(String continuationToken, int pageSize) {
+        UserPage.checkPageSize(pageSize);
+        String afterId = UserPage.decodeToken(continuationToken);
+        
+        // Simulate database access latency
+        simulateLatency();
+        
+        // Seek straight to the position after the last ID already returned
+        NavigableMap<String, UserSnapshot> remaining = afterId != null ? users.tailMap(afterId, false) : users;
+        List<User> page = new ArrayList<>(Math.min(pageSize, MAX_PAGE_PRESIZE));
+        boolean hasMore = false;
+        for (UserSnapshot snapshot : remaining.values()) {
+            if (page.size() == pageSize) {
+                hasMore = true;
+                break;
+            }
+            page.add(snapshot.toUser());
+        }
+        
+        return UserPage.of(page, hasMore);
+    }
+    
     @Override
     public void save(User user) {
         if (user == null) {
             throw new IllegalArgumentException("User cannot be null");
         }
+        if (user.getId() == null) {
+            throw new IllegalArgumentException("User ID cannot be null");
+        }
+        
+        // Simulate database access latency
+        simulateLatency();
+        
+        // Store a snapshot of the user to avoid unintended modifications
+        users.put(user.getId(), UserSnapshot.of(user).withVersion(versions.incrementAndGet()));
+    }
+    
+    @Override
+    public boolean saveIfAbsent(User user) {
+        if (user == null || user.getId() == null) {
+            throw new IllegalArgumentException("User and user ID cannot be null");
+        }
+        
+        // Simulate database access latency
+        simulateLatency();
+        
+        // Check and insert in one atomic step, like an INSERT against a primary key
+        UserSnapshot snapshot = UserSnapshot.of(user).withVersion(versions.incrementAndGet());
+        return users.putIfAbsent(user.getId(), snapshot) == null;
+    }
+    
+    @Override
+    public void saveSnapshot(UserSnapshot snapshot) {
+        if (snapshot == null || snapshot.id() == null) {
+            throw new IllegalArgumentException("User and user ID cannot be null");
+        }
         
         // Simulate database access latency
         simulateLatency();
         
-        // Store a copy of the user to avoid unintended modifications
-        users.put(user.getId(), new User(
-            user.getId(),
-            user.getUsername(),
-            user.getEmail(),
-            user.isActive()
-        ));
+        users.put(snapshot.id(), snapshot.withVersion(versions.incrementAndGet()));
+    }
+    
+    @Override
+    public UserSnapshot saveIfVersion(UserSnapshot snapshot, long expectedVersion) {
+        if (snapshot == null || snapshot.id() == null) {
+            throw new IllegalArgumentException("User and user ID cannot be null");
+        }
+        
+        // Simulate database access latency
+        simulateLatency();
+        
+        UserSnapshot current = users.get(snapshot.id());
+        if (current == null || current.version() != expectedVersion) {
+            return null;
+        }
+        
+        // Lock-free compare-and-set: fails if any other writer replaced or removed the user meanwhile
+        UserSnapshot updated = snapshot.withVersion(versions.incrementAndGet());
+        return users.replace(snapshot.id(), current, updated) ? updated : null;
     }
     
     @Override
@@ -80,7 +186,9 @@ public class RealUserRepository implements UserRepository {
         // Simulate database access latency
         simulateLatency();
         
-        users.remove(userId);
+        if (userId != null) {
+            users.remove(userId);
+        }
     }
     
     @Override
@@ -93,19 +201,33 @@ public class RealUserRepository implements UserRepository {
             throw new RuntimeException("Database connection lost");
         }
         
-        return users.containsKey(userId);
+        return userId != null && users.containsKey(userId);
+    }
+    
+    @Override
+    public boolean isInterruptible() {
+        // Only the simulated latency blocks, and its sleep stops cleanly when interrupted
+        return true;
     }
     
     /**
-     * Helper method to simulate database latency
+     * Helper method to simulate database latency.
+     * Like a database driver given a query timeout, it gives up as soon as the
+     * caller's current {@link Deadline} passes instead of waiting out the delay.
      */
     private void simulateLatency() {
+        // Add a delay of 100-300ms to simulate database access
+        long latencyNanos = TimeUnit.MILLISECONDS.toNanos(100 + random.nextInt(200));
+        Deadline deadline = Deadline.current();
+        long budgetNanos = deadline != null ? deadline.remainingNanos() : Long.MAX_VALUE;
         try {
-            // Add a delay of 100-300ms to simulate database access
-            Thread.sleep(100 + random.nextInt(200));
+            TimeUnit.NANOSECONDS.sleep(Math.max(0, Math.min(latencyNanos, budgetNanos)));
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new RuntimeException("Simulated database operation was interrupted", e);
         }
+        if (budgetNanos < latencyNanos) {
+            throw new DeadlineExceededException("Deadline exceeded during simulated database operation");
+        }
     }
 } 
\ No newline at end of file
@@ -0,0 +1,364 @@
+package com.example.level1;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Resilience decorator for a flaky UserRepository.
+ * Single-user reads (findById, findSnapshotById and exists) get three layers:
+ * <ul>
+ *   <li>a circuit breaker, which rejects calls with a {@link CircuitOpenException}
+ *       while the repository keeps failing;</li>
+ *   <li>retries with full-jitter exponential backoff, limited by a retry budget so
+ *       that retries can only add a fixed fraction to the load on the repository;</li>
+ *   <li>hedging: if an attempt has not answered within the observed p95 latency,
+ *       a duplicate request is sent and the first successful answer wins. Latency
+ *       is measured from submission, so it includes time spent queued for a thread,
+ *       and no duplicate is sent while every thread is busy, as it would only queue
+ *       behind the attempts it is meant to race. The losing attempt is only
+ *       interrupted if the repository says that is safe; otherwise it runs to the end.</li>
+ * </ul>
+ * Read attempts run on a fixed pool shared by all callers, who wait for the
+ * first answer, so no threads are created per request. Writes are not retried or hedged, as repeating them is not
+ * always safe, but they do go through the circuit breaker. Bulk reads and scans
+ * are passed through unchanged.
+ */
+public class ResilientUserRepository implements UserRepository, AutoCloseable {
+
+    // Bounds of the full-jitter backoff between attempts
+    private static final long BASE_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+
+    // Hedging only starts once the latency percentiles are based on enough samples
+    private static final int MIN_HEDGE_SAMPLES = 20;
+
+    // The retry budget is kept in thousandths of a retry and can save up at most this many retries
+    private static final long MAX_RETRY_CREDIT = 10 * 1000L;
+
+    private final UserRepository delegate;
+    private final int maxAttempts;
+    private final long creditPerCall;
+    private final CircuitBreaker circuitBreaker;
+
+    // Attempts run here while the caller waits, so a slow one can be raced by a hedge
+    private final ThreadPoolExecutor attempts;
+
+    private final AtomicLong retryCredit = new AtomicLong(MAX_RETRY_CREDIT);
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+
+    /**
+     * Creates a resilient repository with 3 attempts per call, a retry budget of 10%
+     * of calls, a breaker that opens for one second after 5 consecutive failures,
+     * and 16 threads for attempts.
+     *
+     * @param delegate the repository to protect
+     */
+    public ResilientUserRepository(UserRepository delegate) {
+        this(delegate, 3, 0.1, new CircuitBreaker(5, 1, TimeUnit.SECONDS), 16);
+    }
+
+    /**
+     * Creates a resilient repository.
+     *
+     * @param delegate the repository to protect
+     * @param maxAttempts the maximum number of attempts per call, including the first
+     * @param retryBudgetRatio the number of retries allowed per call, on average
+     * @param circuitBreaker the circuit breaker guarding the repository
+     * @param threads the number of threads shared by all attempts of all callers
+     */
+    public ResilientUserRepository(UserRepository delegate, int maxAttempts, double retryBudgetRatio,
+            CircuitBreaker circuitBreaker, int threads) {
+        if (delegate == null || circuitBreaker == null) {
+            throw new IllegalArgumentException("Delegate repository and circuit breaker cannot be null");
+        }
+        if (maxAttempts < 1 || retryBudgetRatio < 0 || threads < 1) {
+            throw new IllegalArgumentException("Attempts and threads must be positive and the retry budget not negative");
+        }
+        this.delegate = delegate;
+        this.maxAttempts = maxAttempts;
+        this.creditPerCall = Math.round(retryBudgetRatio * 1000);
+        this.circuitBreaker = circuitBreaker;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.attempts = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                runnable -> daemon(runnable, "resilient-repository-" + threadCount.incrementAndGet()));
+    }
+
+    @Override
+    public User findById(String userId) {
+        UserSnapshot snapshot = findSnapshotById(userId);
+        return snapshot != null ? snapshot.toUser() : null;
+    }
+
+    @Override
+    public UserSnapshot findSnapshotById(String userId) {
+        return call(() -> delegate.findSnapshotById(userId));
+    }
+
+    @Override
+    public boolean exists(String userId) {
+        return call(() -> delegate.exists(userId));
+    }
+
+    @Override
+    public boolean isInterruptible() {
+        return delegate.isInterruptible();
+    }
+
+    @Override
+    public Map<String, UserSnapshot> findAllSnapshotsById(Collection<String> userIds) {
+        return delegate.findAllSnapshotsById(userIds);
+    }
+
+    @Override
+    public List<User> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<UserSnapshot> findAllSnapshots() {
+        return delegate.findAllSnapshots();
+    }
+
+    @Override
+    public Stream<User> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public UserPage findPage(String continuationToken, int pageSize) {
+        return delegate.findPage(continuationToken, pageSize);
+    }
+
+    @Override
+    public void save(User user) {
+        guarded(() -> {
+            delegate.save(user);
+            return null;
+        });
+    }
+
+    @Override
+    public void saveSnapshot(UserSnapshot snapshot) {
+        guarded(() -> {
+            delegate.saveSnapshot(snapshot);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean saveIfAbsent(User user) {
+        return guarded(() -> delegate.saveIfAbsent(user));
+    }
+
+    @Override
+    public UserSnapshot saveIfVersion(UserSnapshot snapshot, long expectedVersion) {
+        return guarded(() -> delegate.saveIfVersion(snapshot, expectedVersion));
+    }
+
+    @Override
+    public void delete(String userId) {
+        guarded(() -> {
+            delegate.delete(userId);
+            return null;
+        });
+    }
+
+    /**
+     * @return the circuit breaker guarding the repository
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * @return the latencies of successful read attempts, from submission to answer,
+     *         which determine the hedging delay
+     */
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * @return the number of retried read attempts
+     */
+    public long getRetryCount() {
+        return retries.sum();
+    }
+
+    /**
+     * @return the number of hedged requests sent
+     */
+    public long getHedgeCount() {
+        return hedges.sum();
+    }
+
+    /**
+     * Stops the threads used for attempts. Attempts in progress are interrupted if
+     * the repository allows it, and otherwise left to finish.
+     */
+    @Override
+    public void close() {
+        if (delegate.isInterruptible()) {
+            attempts.shutdownNow();
+        } else {
+            attempts.shutdown();
+        }
+    }
+
+    private <T> T call(Supplier<T> read) {
+        creditRetryBudget();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return guarded(() -> hedged(read));
+            } catch (CircuitOpenException | IllegalArgumentException | DeadlineExceededException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                if (Thread.currentThread().isInterrupted() || attempt >= maxAttempts || !withdrawRetry()) {
+                    throw e;
+                }
+            }
+            retries.increment();
+            backOff(attempt);
+        }
+    }
+
+    private <T> T guarded(Supplier<T> call) {
+        if (!circuitBreaker.tryAcquire()) {
+            throw new CircuitOpenException("Repository calls are suspended after repeated failures");
+        }
+        try {
+            T result = call.get();
+            circuitBreaker.onSuccess();
+            return result;
+        } catch (IllegalArgumentException e) {
+            // A rejected argument is the caller's fault, not a sign of an unhealthy repository
+            circuitBreaker.onSuccess();
+            throw e;
+        } catch (RuntimeException | Error e) {
+            circuitBreaker.onFailure();
+            throw e;
+        }
+    }
+
+    private <T> T hedged(Supplier<T> read) {
+        CompletableFuture<T> winner = new CompletableFuture<>();
+        AtomicInteger running = new AtomicInteger(1);
+        // Attempts run on pool threads, so the caller's deadline has to be carried over
+        Deadline deadline = Deadline.current();
+        Supplier<T> timedRead = deadline != null ? () -> deadline.call(read) : read;
+        long submitted = System.nanoTime();
+        Future<?> primary = attempts.submit(() -> attempt(timedRead, submitted, winner, running));
+        Future<?> hedge = null;
+        try {
+            long delay = hedgeDelayNanos();
+            if (delay > 0) {
+                try {
+                    return winner.get(delay, TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    // The primary is in the tail; race it against a duplicate if a thread is free to run it
+                    if (hasIdleThread() && running.getAndIncrement() > 0) {
+                        hedges.increment();
+                        long hedgeSubmitted = System.nanoTime();
+                        hedge = attempts.submit(() -> attempt(timedRead, hedgeSubmitted, winner, running));
+                    }
+                }
+            }
+            // Wait no longer than the caller's deadline allows
+            if (deadline != null) {
+                try {
+                    return winner.get(Math.max(0, deadline.remainingNanos()), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    throw new DeadlineExceededException("Deadline exceeded while waiting for the repository", e);
+                }
+            }
+            return winner.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the repository", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            // Stop whichever attempt lost; it has nothing left to contribute. Interrupting it
+            // mid-call could break the repository for everyone, such as by closing a FileChannel.
+            boolean interrupt = delegate.isInterruptible();
+            primary.cancel(interrupt);
+            if (hedge != null) {
+                hedge.cancel(interrupt);
+            }
+        }
+    }
+
+    private <T> void attempt(Supplier<T> read, long submitted, CompletableFuture<T> winner, AtomicInteger running) {
+        try {
+            T result = read.get();
+            // Queueing counts too: it is part of how long the caller waits for an attempt
+            latencies.record(System.nanoTime() - submitted);
+            winner.complete(result);
+        } catch (RuntimeException | Error e) {
+            // The call only fails once every attempt racing for it has failed
+            if (running.decrementAndGet() == 0) {
+                winner.completeExceptionally(e);
+            }
+        }
+    }
+
+    private boolean hasIdleThread() {
+        return attempts.getActiveCount() < attempts.getMaximumPoolSize() && attempts.getQueue().isEmpty();
+    }
+
+    private long hedgeDelayNanos() {
+        return latencies.getCount() < MIN_HEDGE_SAMPLES ? 0 : latencies.getPercentile(95);
+    }
+
+    private void creditRetryBudget() {
+        retryCredit.getAndUpdate(credit -> Math.min(MAX_RETRY_CREDIT, credit + creditPerCall));
+    }
+
+    private boolean withdrawRetry() {
+        while (true) {
+            long credit = retryCredit.get();
+            if (credit < 1000) {
+                return false;
+            }
+            if (retryCredit.compareAndSet(credit, credit - 1000)) {
+                return true;
+            }
+        }
+    }
+
+    private static void backOff(int attempt) {
+        long ceiling = Math.min(MAX_BACKOFF_NANOS, BASE_BACKOFF_NANOS << Math.min(attempt, 20));
+        LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(ceiling + 1));
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
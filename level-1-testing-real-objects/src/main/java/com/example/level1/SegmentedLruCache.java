@@ -0,0 +1,207 @@
+package com.example.level1;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size-bounded cache using a segmented LRU (SLRU) eviction policy.
+ * New entries enter a probationary segment and are promoted to the
+ * protected segment on their second hit. Evictions always come from the
+ * probationary segment, so a burst of one-off lookups cannot flush the
+ * frequently used entries.
+ *
+ * All structural operations are guarded by a single lock, while the
+ * statistics counters are lock-free so they can be read at any time.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class SegmentedLruCache<K, V> {
+
+    private final int maximumSize;
+    private final int protectedCapacity;
+
+    // Both segments are kept in access order: the eldest entry is the LRU one
+    private final LinkedHashMap<K, V> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, V> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Object lock = new Object();
+
+    // Bumped on every invalidation so that in-flight loads can detect they are stale
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a cache holding at most {@code maximumSize} entries.
+     * Roughly 80% of the capacity is reserved for the protected segment.
+     *
+     * @param maximumSize the maximum number of entries, at least 2
+     */
+    public SegmentedLruCache(int maximumSize) {
+        if (maximumSize < 2) {
+            throw new IllegalArgumentException("Maximum size must be at least 2");
+        }
+        this.maximumSize = maximumSize;
+        this.protectedCapacity = Math.max(1, (int) (maximumSize * 0.8));
+    }
+
+    /**
+     * Looks up a key, promoting it to the protected segment on a probationary hit.
+     *
+     * @param key the key to look up
+     * @return the cached value, or null if the key is not cached
+     */
+    public V get(K key) {
+        synchronized (lock) {
+            V value = protectedSegment.get(key);
+            if (value != null) {
+                hits.increment();
+                return value;
+            }
+
+            value = probation.remove(key);
+            if (value == null) {
+                misses.increment();
+                return null;
+            }
+
+            hits.increment();
+            promote(key, value);
+            return value;
+        }
+    }
+
+    /**
+     * Inserts or replaces the value for a key.
+     * Existing entries keep their segment; new entries start on probation.
+     *
+     * @param key the key
+     * @param value the value, must not be null
+     */
+    public void put(K key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Cached value cannot be null");
+        }
+        synchronized (lock) {
+            if (protectedSegment.containsKey(key)) {
+                protectedSegment.put(key, value);
+                return;
+            }
+            probation.put(key, value);
+            evictProbation();
+        }
+    }
+
+    /**
+     * Returns the current generation, to be passed to {@link #putIfCurrent}
+     * once a value loaded outside the cache lock is ready.
+     *
+     * @return the current invalidation generation
+     */
+    public long generation() {
+        synchronized (lock) {
+            return generation;
+        }
+    }
+
+    /**
+     * Inserts a value only if no invalidation happened since {@code expectedGeneration}
+     * was read. This stops a slow load from overwriting a newer write.
+     *
+     * @param key the key
+     * @param value the loaded value
+     * @param expectedGeneration the generation observed before loading
+     * @return true if the value was cached
+     */
+    public boolean putIfCurrent(K key, V value, long expectedGeneration) {
+        synchronized (lock) {
+            if (generation != expectedGeneration) {
+                return false;
+            }
+            put(key, value);
+            return true;
+        }
+    }
+
+    /**
+     * Removes a key from the cache.
+     *
+     * @param key the key to remove
+     */
+    public void invalidate(K key) {
+        synchronized (lock) {
+            generation++;
+            if (protectedSegment.remove(key) == null) {
+                probation.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Removes every entry from the cache. Statistics are kept.
+     */
+    public void invalidateAll() {
+        synchronized (lock) {
+            generation++;
+            protectedSegment.clear();
+            probation.clear();
+        }
+    }
+
+    /**
+     * @return the number of cached entries
+     */
+    public int size() {
+        synchronized (lock) {
+            return protectedSegment.size() + probation.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the ratio of hits to lookups, or 0 if there were no lookups
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    private void promote(K key, V value) {
+        protectedSegment.put(key, value);
+        if (protectedSegment.size() > protectedCapacity) {
+            // Demote the protected LRU entry back to probation, giving it another chance
+            Iterator<Map.Entry<K, V>> eldest = protectedSegment.entrySet().iterator();
+            Map.Entry<K, V> demoted = eldest.next();
+            eldest.remove();
+            probation.put(demoted.getKey(), demoted.getValue());
+            evictProbation();
+        }
+    }
+
+    private void evictProbation() {
+        // Probation may use whatever the protected segment leaves free
+        Iterator<Map.Entry<K, V>> eldest = probation.entrySet().iterator();
+        while (probation.size() + protectedSegment.size() > maximumSize && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+}
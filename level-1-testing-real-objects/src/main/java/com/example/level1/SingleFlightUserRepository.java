@@ -0,0 +1,228 @@
+package com.example.level1;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Request-coalescing decorator for a UserRepository.
+ * Concurrent findById and exists calls for the same ID share a single
+ * in-flight lookup: the first caller (the leader) queries the delegate and
+ * every caller that arrives while that query runs waits for its result
+ * instead of issuing its own. Lookups are not cached beyond their flight;
+ * once a lookup completes, the next call queries the delegate again.
+ *
+ * A failed lookup fails every caller that shared it with the same exception.
+ * If the leader is interrupted or runs out of time, only the leader fails; the
+ * callers waiting on it start a new lookup. A write removes the in-flight lookups of its user,
+ * so callers arriving after the write never get a result read before it.
+ */
+public class SingleFlightUserRepository implements UserRepository {
+
+    private final UserRepository delegate;
+    private final ConcurrentMap<String, CompletableFuture<UserSnapshot>> findsInFlight = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CompletableFuture<Boolean>> existsInFlight = new ConcurrentHashMap<>();
+    private final LongAdder sharedLookups = new LongAdder();
+
+    /**
+     * Constructs a coalescing repository in front of the given repository.
+     *
+     * @param delegate the repository to query
+     */
+    public SingleFlightUserRepository(UserRepository delegate) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Delegate repository cannot be null");
+        }
+        this.delegate = delegate;
+    }
+
+    @Override
+    public User findById(String userId) {
+        UserSnapshot snapshot = findSnapshotById(userId);
+        // Every caller gets its own mutable copy of the shared result
+        return snapshot != null ? snapshot.toUser() : null;
+    }
+
+    @Override
+    public UserSnapshot findSnapshotById(String userId) {
+        if (userId == null) {
+            return delegate.findSnapshotById(null);
+        }
+        return coalesce(findsInFlight, userId, delegate::findSnapshotById);
+    }
+
+    @Override
+    public Map<String, UserSnapshot> findAllSnapshotsById(Collection<String> userIds) {
+        return delegate.findAllSnapshotsById(userIds);
+    }
+
+    @Override
+    public List<User> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<UserSnapshot> findAllSnapshots() {
+        return delegate.findAllSnapshots();
+    }
+
+    @Override
+    public Stream<User> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public UserPage findPage(String continuationToken, int pageSize) {
+        return delegate.findPage(continuationToken, pageSize);
+    }
+
+    @Override
+    public void save(User user) {
+        try {
+            delegate.save(user);
+        } finally {
+            forget(user != null ? user.getId() : null);
+        }
+    }
+
+    @Override
+    public void saveSnapshot(UserSnapshot snapshot) {
+        try {
+            delegate.saveSnapshot(snapshot);
+        } finally {
+            forget(snapshot != null ? snapshot.id() : null);
+        }
+    }
+
+    @Override
+    public boolean saveIfAbsent(User user) {
+        try {
+            return delegate.saveIfAbsent(user);
+        } finally {
+            forget(user != null ? user.getId() : null);
+        }
+    }
+
+    @Override
+    public UserSnapshot saveIfVersion(UserSnapshot snapshot, long expectedVersion) {
+        try {
+            return delegate.saveIfVersion(snapshot, expectedVersion);
+        } finally {
+            forget(snapshot != null ? snapshot.id() : null);
+        }
+    }
+
+    @Override
+    public void delete(String userId) {
+        try {
+            delegate.delete(userId);
+        } finally {
+            forget(userId);
+        }
+    }
+
+    @Override
+    public boolean exists(String userId) {
+        if (userId == null) {
+            return delegate.exists(null);
+        }
+        return coalesce(existsInFlight, userId, delegate::exists);
+    }
+
+    @Override
+    public boolean isInterruptible() {
+        return delegate.isInterruptible();
+    }
+
+    /**
+     * @return the number of calls that were answered by another caller's lookup
+     */
+    public long getSharedLookupCount() {
+        return sharedLookups.sum();
+    }
+
+    private <T> T coalesce(ConcurrentMap<String, CompletableFuture<T>> inFlight, String userId,
+            Function<String, T> lookup) {
+        while (true) {
+            CompletableFuture<T> flight = new CompletableFuture<>();
+            CompletableFuture<T> leader = inFlight.putIfAbsent(userId, flight);
+            if (leader == null) {
+                return lead(inFlight, userId, flight, lookup);
+            }
+
+            sharedLookups.increment();
+            try {
+                // Wait no longer than the caller's deadline allows
+                Deadline deadline = Deadline.current();
+                return deadline != null
+                        ? leader.get(Math.max(0, deadline.remainingNanos()), TimeUnit.NANOSECONDS)
+                        : leader.get();
+            } catch (TimeoutException e) {
+                throw new DeadlineExceededException("Deadline exceeded while waiting for a shared lookup", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for a shared lookup", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof AbandonedLookupException) {
+                    // The leader gave up, which says nothing about this caller; try again
+                    continue;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new RuntimeException(cause);
+            }
+        }
+    }
+
+    private static <T> T lead(ConcurrentMap<String, CompletableFuture<T>> inFlight, String userId,
+            CompletableFuture<T> flight, Function<String, T> lookup) {
+        T result;
+        try {
+            result = lookup.apply(userId);
+        } catch (RuntimeException | Error e) {
+            // Unregister before completing, so nobody joins a flight that has already landed
+            inFlight.remove(userId, flight);
+            // The leader's interrupt or deadline says nothing about whether the waiters can succeed
+            flight.completeExceptionally(Thread.currentThread().isInterrupted() || e instanceof DeadlineExceededException
+                    ? AbandonedLookupException.INSTANCE
+                    : e);
+            throw e;
+        }
+        inFlight.remove(userId, flight);
+        flight.complete(result);
+        return result;
+    }
+
+    private void forget(String userId) {
+        if (userId != null) {
+            findsInFlight.remove(userId);
+            existsInFlight.remove(userId);
+        }
+    }
+
+    /**
+     * Signals waiters that the leader was interrupted and they should retry.
+     */
+    private static final class AbandonedLookupException extends RuntimeException {
+
+        static final AbandonedLookupException INSTANCE = new AbandonedLookupException();
+
+        private AbandonedLookupException() {
+            super("Lookup abandoned by an interrupted caller", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.level1;
+
+/**
+ * Controls when a {@link WriteAheadLog} forces appended records to disk.
+ */
+public enum SyncPolicy {
+
+    /**
+     * Every write waits until its record is on disk. Concurrent writers share
+     * a single force through group commit.
+     */
+    EVERY_WRITE,
+
+    /**
+     * Writes return immediately and the log is forced on a fixed interval,
+     * so a crash can lose up to one interval of writes.
+     */
+    INTERVAL,
+
+    /**
+     * The log is never forced explicitly; the operating system writes it back
+     * in its own time. A process crash loses nothing, a power failure might.
+     */
+    OS
+}
@@ -0,0 +1,199 @@
+package com.example.level1;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timer wheel for large numbers of short timeouts that are mostly cancelled.
+ * Timeouts are hashed by their expiry tick into a ring of buckets that a single
+ * thread visits once per tick. Scheduling only appends to a lock-free queue and
+ * cancelling only flips a flag, so both are cheap enough to do on every request;
+ * a cancelled timeout is dropped the next time its bucket comes round. Timeouts
+ * fire at most one tick late, and their tasks run on the wheel thread, so they
+ * must be short, such as interrupting a thread.
+ */
+public class TimerWheel implements AutoCloseable {
+
+    private static final AtomicInteger WHEEL_COUNT = new AtomicInteger();
+
+    private final long tickNanos;
+    private final int mask;
+    private final List<Timeout>[] buckets;
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final Thread worker;
+    private final long startNanos;
+    private volatile boolean closed;
+
+    /**
+     * Creates a wheel with a one millisecond tick and 512 buckets.
+     */
+    public TimerWheel() {
+        this(1, TimeUnit.MILLISECONDS, 512);
+    }
+
+    /**
+     * Creates a wheel and starts its thread.
+     *
+     * @param tick the resolution of the wheel
+     * @param unit the unit of the tick
+     * @param wheelSize the number of buckets, rounded up to a power of two
+     */
+    @SuppressWarnings("unchecked")
+    public TimerWheel(long tick, TimeUnit unit, int wheelSize) {
+        if (tick <= 0 || wheelSize < 1 || wheelSize > 1 << 20) {
+            throw new IllegalArgumentException("Tick must be positive and wheel size between 1 and 2^20");
+        }
+        this.tickNanos = unit.toNanos(tick);
+        int size = wheelSize == 1 ? 1 : Integer.highestOneBit(wheelSize - 1) << 1;
+        this.mask = size - 1;
+        this.buckets = new List[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ArrayList<>();
+        }
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, "timer-wheel-" + WHEEL_COUNT.incrementAndGet());
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Schedules a task to run once after a delay.
+     *
+     * @param task the task to run; it runs on the wheel thread and must be short
+     * @param delay the delay
+     * @param unit the unit of the delay
+     * @return a handle that can cancel the timeout
+     * @throws IllegalStateException if the wheel is closed
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (closed) {
+            throw new IllegalStateException("Timer wheel is closed");
+        }
+        Timeout timeout = new Timeout(task, System.nanoTime() + Math.max(0, unit.toNanos(delay)));
+        scheduled.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Stops the wheel thread. Pending timeouts never fire.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        worker.interrupt();
+    }
+
+    private void run() {
+        long tick = 0;
+        while (!closed) {
+            long tickEnd = startNanos + (tick + 1) * tickNanos;
+            long wait;
+            while (!closed && (wait = tickEnd - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, wait);
+            }
+            transferScheduled(tick);
+            expire(buckets[(int) (tick & mask)], tick);
+            tick++;
+        }
+    }
+
+    private void transferScheduled(long currentTick) {
+        Timeout timeout;
+        while ((timeout = scheduled.poll()) != null) {
+            if (timeout.isCancelled()) {
+                continue;
+            }
+            // Ticks are counted from the start; anything already due goes into the current bucket
+            long expiryTick = Math.max(currentTick, (timeout.deadlineNanos - startNanos) / tickNanos);
+            timeout.remainingRounds = (expiryTick - currentTick) / buckets.length;
+            buckets[(int) (expiryTick & mask)].add(timeout);
+        }
+    }
+
+    private void expire(List<Timeout> bucket, long currentTick) {
+        for (Iterator<Timeout> it = bucket.iterator(); it.hasNext(); ) {
+            Timeout timeout = it.next();
+            if (timeout.isCancelled()) {
+                it.remove();
+            } else if (timeout.remainingRounds > 0) {
+                timeout.remainingRounds--;
+            } else {
+                it.remove();
+                timeout.fire();
+            }
+        }
+    }
+
+    /**
+     * Handle of a scheduled task.
+     */
+    public static final class Timeout {
+
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int FIRING = 2;
+        private static final int FIRED = 3;
+
+        private final Runnable task;
+        private final long deadlineNanos;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        // Only touched by the wheel thread
+        private long remainingRounds;
+
+        private Timeout(Runnable task, long deadlineNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * Cancels the timeout if it has not fired yet. If it is firing right now,
+         * waits until its task has finished, so that when this method returns the
+         * task has either run completely or will never run.
+         *
+         * @return true if the timeout was cancelled, false if its task ran
+         */
+        public boolean cancel() {
+            if (state.compareAndSet(PENDING, CANCELLED)) {
+                return true;
+            }
+            while (state.get() == FIRING) {
+                Thread.onSpinWait();
+            }
+            return state.get() == CANCELLED;
+        }
+
+        /**
+         * @return true if the task has run
+         */
+        public boolean isExpired() {
+            return state.get() == FIRED;
+        }
+
+        /**
+         * @return true if the timeout was cancelled
+         */
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        private void fire() {
+            if (!state.compareAndSet(PENDING, FIRING)) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                // A failing task must not stop the wheel
+            } finally {
+                state.set(FIRED);
+            }
+        }
+    }
+}
@@ -1,6 +1,12 @@
 package com.example.level1;
 
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for User data operations.
@@ -16,6 +22,39 @@ public interface UserRepository {
      */
     User findById(String userId);
     
+    /**
+     * Finds a user by their unique identifier, returning an immutable snapshot.
+     * Implementations that store snapshots can return the stored instance
+     * directly instead of copying it. The default implementation snapshots
+     * the result of findById.
+     * 
+     * @param userId The user's unique identifier
+     * @return The user snapshot if found, null otherwise
+     */
+    default UserSnapshot findSnapshotById(String userId) {
+        User user = findById(userId);
+        return user != null ? UserSnapshot.of(user) : null;
+    }
+    
+    /**
+     * Finds several users by their identifiers at once, returning immutable snapshots.
+     * Implementations that can answer the whole set in one round trip should
+     * override this; the default implementation looks up each ID separately.
+     * 
+     * @param userIds The identifiers of the users to find
+     * @return The snapshots of the users that were found, keyed by ID
+     */
+    default Map<String, UserSnapshot> findAllSnapshotsById(Collection<String> userIds) {
+        Map<String, UserSnapshot> found = new HashMap<>();
+        for (String userId : userIds) {
+            UserSnapshot snapshot = findSnapshotById(userId);
+            if (snapshot != null) {
+                found.put(userId, snapshot);
+            }
+        }
+        return found;
+    }
+    
     /**
      * Retrieves all users from the repository
      * 
@@ -23,6 +62,56 @@ public interface UserRepository {
      */
     List<User> findAll();
     
+    /**
+     * Retrieves all users as immutable snapshots, which implementations
+     * may share with the caller instead of copying.
+     * 
+     * @return A list of all users
+     */
+    default List<UserSnapshot> findAllSnapshots() {
+        return findAll().stream()
+                .map(UserSnapshot::of)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Streams all users from the repository.
+     * Unlike {@link #findAll()}, implementations may produce users lazily,
+     * so callers that filter or aggregate never hold the whole table at once.
+     * The returned stream is sequential and can be switched to parallel.
+     * The default implementation simply streams the result of findAll.
+     * 
+     * @return a stream of all users
+     */
+    default Stream<User> streamAll() {
+        return findAll().stream();
+    }
+    
+    /**
+     * Retrieves one page of users ordered by ID, continuing after the position
+     * encoded in the continuation token. The default implementation sorts the
+     * result of findAll; implementations backed by a sorted index seek directly
+     * to the requested position instead.
+     * 
+     * @param continuationToken The token from the previous page, or null for the first page
+     * @param pageSize The maximum number of users to return
+     * @return The requested page of users
+     * @throws IllegalArgumentException if the token is malformed or the page size is not positive
+     */
+    default UserPage findPage(String continuationToken, int pageSize) {
+        UserPage.checkPageSize(pageSize);
+        String afterId = UserPage.decodeToken(continuationToken);
+        
+        List<User> remaining = findAll().stream()
+                .filter(user -> afterId == null || user.getId().compareTo(afterId) > 0)
+                .sorted(Comparator.comparing(User::getId))
+                .limit(pageSize + 1L)
+                .collect(Collectors.toList());
+        
+        boolean hasMore = remaining.size() > pageSize;
+        return UserPage.of(hasMore ? remaining.subList(0, pageSize) : remaining, hasMore);
+    }
+    
     /**
      * Saves a user to the repository
      * If the user already exists (same ID), it will be updated
@@ -31,6 +120,59 @@ public interface UserRepository {
      */
     void save(User user);
     
+    /**
+     * Saves an immutable user snapshot to the repository
+     * If the user already exists (same ID), it will be updated
+     * 
+     * @param snapshot The user snapshot to save
+     */
+    default void saveSnapshot(UserSnapshot snapshot) {
+        save(snapshot.toUser());
+    }
+    
+    /**
+     * Saves a user only if no user with the same ID exists yet.
+     * Implementations check and insert atomically, in a single round trip,
+     * so concurrent inserts of the same ID can not both succeed.
+     * The default implementation checks with exists and then saves, which
+     * takes two round trips and is not atomic.
+     * 
+     * @param user The user to insert
+     * @return true if the user was inserted, false if a user with the same ID already exists
+     */
+    default boolean saveIfAbsent(User user) {
+        if (exists(user.getId())) {
+            return false;
+        }
+        save(user);
+        return true;
+    }
+    
+    /**
+     * Saves a user snapshot only if the stored user still has the expected version,
+     * in the manner of a compare-and-set. This lets callers detect that another
+     * writer changed or deleted the user since it was read, instead of silently
+     * overwriting that change. On success the stored user gets a new, higher version.
+     * 
+     * The default implementation compares and saves in two separate steps, so it
+     * is not atomic; implementations that can compare and set atomically should
+     * override it.
+     * 
+     * @param snapshot The user snapshot to save; its own version is ignored
+     * @param expectedVersion The version the stored user must currently have
+     * @return The stored snapshot with its new version, or null if the user
+     *         does not exist or its version did not match
+     */
+    default UserSnapshot saveIfVersion(UserSnapshot snapshot, long expectedVersion) {
+        UserSnapshot current = findSnapshotById(snapshot.id());
+        if (current == null || current.version() != expectedVersion) {
+            return null;
+        }
+        UserSnapshot updated = snapshot.withVersion(expectedVersion + 1);
+        saveSnapshot(updated);
+        return updated;
+    }
+    
     /**
      * Deletes a user from the repository
      * 
@@ -48,4 +190,17 @@ public interface UserRepository {
      * @throws RuntimeException occasionally to simulate database errors
      */
     boolean exists(String userId);
+    
+    /**
+     * Tells whether a caller blocked in this repository may be interrupted when
+     * its deadline passes. That is only safe where blocking calls stop cleanly on
+     * an interrupt: an interrupt during FileChannel I/O closes the channel for good.
+     * Without it, deadlines are only enforced between repository calls.
+     * The default implementation returns false.
+     * 
+     * @return true if callers may be interrupted at their deadline
+     */
+    default boolean isInterruptible() {
+        return false;
+    }
 } 
\ No newline at end of file
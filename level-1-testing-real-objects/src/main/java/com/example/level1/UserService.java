@@ -1,7 +1,13 @@
 package com.example.level1;
 
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service class that contains business logic for user operations.
@@ -9,18 +15,40 @@ import java.util.stream.Collectors;
  */
 public class UserService {
     
+    // Read-modify-write updates are retried this often when they lose a version conflict
+    private static final int MAX_UPDATE_ATTEMPTS = 10;
+    
+    // Bounds of the randomized exponential backoff between conflicting attempts
+    private static final long MIN_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    
     private final UserRepository repository;
     
+    // Interrupts callers whose deadline passes, if the repository allows it; null means the shared default wheel
+    private final TimerWheel timer;
+    
     /**
      * Constructs a new UserService with the specified repository.
      * 
      * @param repository the repository to use for data access
      */
     public UserService(UserRepository repository) {
+        this(repository, null);
+    }
+    
+    /**
+     * Constructs a new UserService with the specified repository and deadline timer.
+     * 
+     * @param repository the repository to use for data access
+     * @param timer the timer wheel interrupting callers of an interruptible repository
+     *              at their deadline, or null to use a shared one
+     */
+    public UserService(UserRepository repository, TimerWheel timer) {
         if (repository == null) {
             throw new IllegalArgumentException("Repository cannot be null");
         }
         this.repository = repository;
+        this.timer = timer;
     }
     
     /**
@@ -40,6 +68,8 @@ public class UserService {
     
     /**
      * Creates a new user.
+     * The existence check and the insert are a single atomic repository call,
+     * so concurrent creations of the same user can not both succeed.
      * 
      * @param user the user to create
      * @throws IllegalArgumentException if the user already exists
@@ -49,39 +79,55 @@ public class UserService {
             throw new IllegalArgumentException("User and user ID cannot be null");
         }
         
+        boolean inserted;
         try {
-            if (repository.exists(user.getId())) {
-                throw new IllegalArgumentException("User already exists: " + user.getId());
-            }
+            inserted = repository.saveIfAbsent(user);
         } catch (RuntimeException e) {
             if (e instanceof IllegalArgumentException) {
                 throw e;
             }
             // Wrap other repository exceptions
-            throw new UserServiceException("Error checking if user exists", e);
+            throw new UserServiceException("Error creating user", e);
         }
         
-        repository.save(user);
+        if (!inserted) {
+            throw new IllegalArgumentException("User already exists: " + user.getId());
+        }
     }
     
     /**
      * Updates an existing user.
+     * A user read from the repository carries the version it was read at, and is
+     * only written if the stored user still has that version, so a stale copy can
+     * not overwrite a change made since. A user with version 0 was never read
+     * from a versioning repository and replaces whatever is stored.
+     * Either way the user is only written if it still exists at that point, so an
+     * update racing with a delete can not bring the user back.
      * 
      * @param user the user to update
      * @throws UserNotFoundException if the user does not exist
+     * @throws UserVersionConflictException if the user was changed since its version was read
      */
     public void updateUser(User user) {
         if (user == null || user.getId() == null) {
             throw new IllegalArgumentException("User and user ID cannot be null");
         }
         
-        // Check if user exists
-        User existingUser = repository.findById(user.getId());
-        if (existingUser == null) {
-            throw new UserNotFoundException("Cannot update non-existent user: " + user.getId());
+        UserSnapshot updated = UserSnapshot.of(user);
+        long expectedVersion = user.getVersion();
+        if (expectedVersion == 0) {
+            update(user.getId(), existing -> updated, "Cannot update non-existent user: ");
+            return;
         }
         
-        repository.save(user);
+        if (repository.saveIfVersion(updated, expectedVersion) == null) {
+            checkDeadline();
+            if (repository.findSnapshotById(user.getId()) == null) {
+                throw new UserNotFoundException("Cannot update non-existent user: " + user.getId());
+            }
+            throw new UserVersionConflictException("User " + user.getId()
+                    + " was changed after version " + expectedVersion + " was read");
+        }
     }
     
     /**
@@ -103,9 +149,19 @@ public class UserService {
      * @return a list of all active users
      */
     public List<User> getActiveUsers() {
-        return repository.findAll().stream()
-                .filter(User::isActive)
-                .collect(Collectors.toList());
+        return streamActiveUsers(false).collect(Collectors.toList());
+    }
+    
+    /**
+     * Streams all active users without loading the whole user table first.
+     * 
+     * @param parallel whether the pipeline should run in parallel
+     * @return a lazy stream of the active users
+     */
+    public Stream<User> streamActiveUsers(boolean parallel) {
+        Stream<User> users = repository.streamAll();
+        return (parallel ? users.parallel() : users)
+                .filter(User::isActive);
     }
     
     /**
@@ -115,9 +171,221 @@ public class UserService {
      * @throws UserNotFoundException if the user is not found
      */
     public void deactivateUser(String userId) {
-        User user = getUserById(userId);
-        user.setActive(false);
-        repository.save(user);
+        update(userId, user -> user.withActive(false), "User not found: ");
+    }
+    
+    /**
+     * Gets a user by their ID, giving up when the deadline passes.
+     * 
+     * @param userId the ID of the user to retrieve
+     * @param deadline the deadline for the whole operation
+     * @return the user
+     * @throws UserNotFoundException if the user is not found
+     * @throws DeadlineExceededException if the deadline passes first
+     */
+    public User getUserById(String userId, Deadline deadline) {
+        return withDeadline(deadline, () -> getUserById(userId));
+    }
+    
+    /**
+     * Creates a new user, giving up when the deadline passes.
+     * 
+     * @param user the user to create
+     * @param deadline the deadline for the whole operation
+     * @throws IllegalArgumentException if the user already exists
+     * @throws DeadlineExceededException if the deadline passes first
+     */
+    public void createUser(User user, Deadline deadline) {
+        withDeadline(deadline, () -> {
+            createUser(user);
+            return null;
+        });
+    }
+    
+    /**
+     * Updates an existing user, giving up when the deadline passes.
+     * 
+     * @param user the user to update
+     * @param deadline the deadline for the whole operation
+     * @throws UserNotFoundException if the user does not exist
+     * @throws DeadlineExceededException if the deadline passes first
+     */
+    public void updateUser(User user, Deadline deadline) {
+        withDeadline(deadline, () -> {
+            updateUser(user);
+            return null;
+        });
+    }
+    
+    /**
+     * Deletes a user by their ID, giving up when the deadline passes.
+     * 
+     * @param userId the ID of the user to delete
+     * @param deadline the deadline for the whole operation
+     * @throws DeadlineExceededException if the deadline passes first
+     */
+    public void deleteUser(String userId, Deadline deadline) {
+        withDeadline(deadline, () -> {
+            deleteUser(userId);
+            return null;
+        });
+    }
+    
+    /**
+     * Gets all active users, giving up when the deadline passes.
+     * 
+     * @param deadline the deadline for the whole operation
+     * @return a list of all active users
+     * @throws DeadlineExceededException if the deadline passes first
+     */
+    public List<User> getActiveUsers(Deadline deadline) {
+        return withDeadline(deadline, this::getActiveUsers);
+    }
+    
+    /**
+     * Deactivates a user, giving up when the deadline passes.
+     * 
+     * @param userId the ID of the user to deactivate
+     * @param deadline the deadline for the whole operation
+     * @throws UserNotFoundException if the user is not found
+     * @throws DeadlineExceededException if the deadline passes first
+     */
+    public void deactivateUser(String userId, Deadline deadline) {
+        withDeadline(deadline, () -> {
+            deactivateUser(userId);
+            return null;
+        });
+    }
+    
+    /**
+     * Runs an operation under a deadline.
+     * The deadline is made current for the calling thread, so repositories can
+     * limit their own waits to the remaining budget, and it is checked before and
+     * after the operation and between its repository calls. A write that
+     * completed after its deadline passed is still reported as exceeded.
+     * 
+     * Only if the repository is interruptible does a timer also interrupt the
+     * calling thread when the deadline passes, as a backstop for calls that do not
+     * look at the deadline; the interrupt is cleared again before this method returns.
+     * Other repositories, such as those writing through a FileChannel, are never
+     * interrupted, since an interrupt would close their channel.
+     * 
+     * @param deadline the deadline for the whole operation
+     * @param operation the operation to run
+     * @return the result of the operation
+     * @throws DeadlineExceededException if the deadline passes before the operation completes
+     */
+    private <T> T withDeadline(Deadline deadline, Supplier<T> operation) {
+        if (deadline == null) {
+            throw new IllegalArgumentException("Deadline cannot be null");
+        }
+        if (deadline.isExpired()) {
+            throw new DeadlineExceededException("Deadline exceeded before the operation started");
+        }
+        
+        Thread caller = Thread.currentThread();
+        TimerWheel.Timeout timeout = repository.isInterruptible()
+                ? timer().schedule(caller::interrupt, deadline.remainingNanos(), TimeUnit.NANOSECONDS)
+                : null;
+        boolean expired = false;
+        try {
+            T result = deadline.call(operation);
+            if (deadline.isExpired()) {
+                throw new DeadlineExceededException("Deadline exceeded");
+            }
+            return result;
+        } catch (DeadlineExceededException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            expired = timeout != null && !timeout.cancel();
+            if (expired) {
+                throw new DeadlineExceededException("Deadline exceeded", e);
+            }
+            throw e;
+        } finally {
+            // Swallow the interrupt if the timer fired; it was only meant for this operation
+            if (timeout != null && (expired || !timeout.cancel())) {
+                Thread.interrupted();
+            }
+        }
+    }
+    
+    private TimerWheel timer() {
+        return timer != null ? timer : DefaultTimer.WHEEL;
+    }
+    
+    /**
+     * Applies a read-modify-write update to a user with optimistic concurrency control.
+     * The user is read, modified and written back with a versioned compare-and-set.
+     * If another writer got there first, the update is applied again to the newer
+     * state after a randomized, exponentially growing backoff, so concurrent writers
+     * neither lose each other's changes nor have to hold a lock.
+     * 
+     * @param userId the ID of the user to update
+     * @param update the modification to apply to the current state of the user
+     * @param notFoundMessage the message prefix used if the user does not exist
+     * @return the stored state of the user after the update
+     * @throws UserNotFoundException if the user does not exist
+     * @throws UserServiceException if the update kept conflicting with other writers
+     */
+    private UserSnapshot update(String userId, UnaryOperator<UserSnapshot> update, String notFoundMessage) {
+        for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
+            checkDeadline();
+            UserSnapshot current = repository.findSnapshotById(userId);
+            if (current == null) {
+                throw new UserNotFoundException(notFoundMessage + userId);
+            }
+            
+            UserSnapshot updated = update.apply(current);
+            if (updated == current) {
+                return current;
+            }
+            checkDeadline();
+            UserSnapshot stored = repository.saveIfVersion(updated, current.version());
+            if (stored != null) {
+                return stored;
+            }
+            
+            // Only back off before another attempt, not before giving up
+            if (attempt + 1 < MAX_UPDATE_ATTEMPTS) {
+                backOff(attempt);
+            }
+        }
+        throw new UserServiceException("Too many concurrent updates of user: " + userId, null);
+    }
+    
+    /**
+     * Holder of the timer wheel shared by all services without their own, created on first use.
+     */
+    private static final class DefaultTimer {
+        static final TimerWheel WHEEL = new TimerWheel();
+    }
+    
+    /**
+     * Fails if the current deadline, if any, has passed. Called between the
+     * repository calls of an operation, so that it stops at the first one after
+     * its deadline without having to be interrupted.
+     */
+    private static void checkDeadline() {
+        Deadline deadline = Deadline.current();
+        if (deadline != null && deadline.isExpired()) {
+            throw new DeadlineExceededException("Deadline exceeded");
+        }
+    }
+    
+    private static void backOff(int attempt) {
+        long ceiling = Math.min(MAX_BACKOFF_NANOS, MIN_BACKOFF_NANOS << attempt);
+        long pauseNanos = ThreadLocalRandom.current().nextLong(MIN_BACKOFF_NANOS, ceiling + 1);
+        // Never sleep past the deadline; the next attempt checks it
+        Deadline deadline = Deadline.current();
+        if (deadline != null) {
+            pauseNanos = Math.min(pauseNanos, Math.max(0, deadline.remainingNanos()));
+        }
+        LockSupport.parkNanos(pauseNanos);
+        if (Thread.currentThread().isInterrupted()) {
+            throw new UserServiceException("Interrupted while retrying a conflicting update",
+                    new InterruptedException());
+        }
     }
 }
 
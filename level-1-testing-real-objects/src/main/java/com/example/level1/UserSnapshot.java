@@ -0,0 +1,82 @@
+package com.example.level1;
+
+/**
+ * Immutable representation of a user.
+ * Unlike {@link User}, a snapshot can be shared freely between a repository and
+ * its callers, so repositories can hand out their stored instances without the
+ * defensive copy a mutable User needs. Changes are made by deriving a new
+ * snapshot with one of the {@code with} methods.
+ *
+ * @param id User identifier
+ * @param username User's username
+ * @param email User's email address
+ * @param active Whether the user is active
+ * @param version The version the repository assigned when the user was last stored
+ */
+public record UserSnapshot(String id, String username, String email, boolean active, long version) {
+
+    /**
+     * Creates an unversioned snapshot.
+     *
+     * @param id User identifier
+     * @param username User's username
+     * @param email User's email address
+     * @param active Whether the user is active
+     */
+    public UserSnapshot(String id, String username, String email, boolean active) {
+        this(id, username, email, active, 0);
+    }
+
+    /**
+     * Takes a snapshot of the current state of a mutable user.
+     *
+     * @param user the user to copy
+     * @return the snapshot
+     */
+    public static UserSnapshot of(User user) {
+        return new UserSnapshot(user.getId(), user.getUsername(), user.getEmail(), user.isActive(), user.getVersion());
+    }
+
+    /**
+     * @param active the new active status
+     * @return this snapshot if the status is unchanged, otherwise a copy with the new status
+     */
+    public UserSnapshot withActive(boolean active) {
+        return active == this.active ? this : new UserSnapshot(id, username, email, active, version);
+    }
+
+    /**
+     * @param email the new email address
+     * @return a copy of this snapshot with the new email address
+     */
+    public UserSnapshot withEmail(String email) {
+        return new UserSnapshot(id, username, email, active, version);
+    }
+
+    /**
+     * @param username the new username
+     * @return a copy of this snapshot with the new username
+     */
+    public UserSnapshot withUsername(String username) {
+        return new UserSnapshot(id, username, email, active, version);
+    }
+
+    /**
+     * @param version the new version
+     * @return this snapshot if the version is unchanged, otherwise a copy with the new version
+     */
+    public UserSnapshot withVersion(long version) {
+        return version == this.version ? this : new UserSnapshot(id, username, email, active, version);
+    }
+
+    /**
+     * Creates a new mutable user with the values of this snapshot.
+     *
+     * @return the mutable user
+     */
+    public User toUser() {
+        User user = new User(id, username, email, active);
+        user.setVersion(version);
+        return user;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.level1;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Spliterator over a snapshot of stored users.
+ * The snapshot only holds references; each entry is turned into a User by a
+ * mapping function (typically a defensive copy) as it is traversed, so a stream
+ * never materializes more copies than its pipeline keeps.
+ *
+ * Splits halve the remaining range, so sizes are exact at every level and
+ * parallel streams get balanced work.
+ *
+ * @param <T> the type of the stored entries
+ */
+class UserSpliterator<T> implements Spliterator<User> {
+
+    private final T[] users;
+    private final Function<? super T, User> mapper;
+    private int index;
+    private final int fence;
+
+    /**
+     * Creates a spliterator over the whole snapshot.
+     *
+     * @param users the snapshot of stored users, must not contain nulls
+     * @param mapper the function applied to each entry when it is traversed
+     */
+    UserSpliterator(T[] users, Function<? super T, User> mapper) {
+        this(users, mapper, 0, users.length);
+    }
+
+    private UserSpliterator(T[] users, Function<? super T, User> mapper, int origin, int fence) {
+        this.users = users;
+        this.mapper = mapper;
+        this.index = origin;
+        this.fence = fence;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super User> action) {
+        if (index >= fence) {
+            return false;
+        }
+        action.accept(mapper.apply(users[index++]));
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super User> action) {
+        int i = index;
+        index = fence;
+        for (; i < fence; i++) {
+            action.accept(mapper.apply(users[i]));
+        }
+    }
+
+    @Override
+    public Spliterator<User> trySplit() {
+        int mid = (index + fence) >>> 1;
+        if (mid <= index) {
+            return null;
+        }
+        Spliterator<User> prefix = new UserSpliterator<>(users, mapper, index, mid);
+        index = mid;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return fence - index;
+    }
+
+    @Override
+    public int characteristics() {
+        return SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+}
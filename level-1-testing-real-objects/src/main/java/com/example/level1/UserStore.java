@@ -0,0 +1,529 @@
+package com.example.level1;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Compact, mostly off-heap UserRepository for very large user tables.
+ * Strings are stored as UTF-8 bytes in a direct buffer arena, and each row is a
+ * fixed-size entry of offsets and lengths in a second direct buffer. Email
+ * domains are dictionary-encoded, so the thousands of users sharing a domain
+ * store it once. The active flags live in a bitset.
+ *
+ * Besides the regular repository methods, which return ordinary User copies,
+ * {@link #forEach} and {@link #forEachActive} hand out a single reusable flyweight
+ * view that reads straight from the buffers. Scans therefore allocate nothing per
+ * row unless the caller asks for a field's String value.
+ *
+ * Updates append new string bytes and leave the old ones behind, so an arena
+ * under heavy update churn grows until the store is rebuilt.
+ */
+public class UserStore implements UserRepository {
+
+    // Row entry: id offset/length, username offset/length, email local part offset/length, domain code, id hash,
+    // version
+    private static final int ID_OFFSET = 0;
+    private static final int ID_LENGTH = 4;
+    private static final int USERNAME_OFFSET = 8;
+    private static final int USERNAME_LENGTH = 12;
+    private static final int LOCAL_OFFSET = 16;
+    private static final int LOCAL_LENGTH = 20;
+    private static final int DOMAIN_CODE = 24;
+    private static final int ID_HASH = 28;
+    private static final int VERSION = 32;
+    private static final int ROW_SIZE = 40;
+
+    private static final int NULL_LENGTH = -1;
+    private static final int NO_DOMAIN = -1;
+    private static final int EMPTY_SLOT = 0;
+    private static final int DELETED_SLOT = -1;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private ByteBuffer arena;
+    private ByteBuffer rows;
+    private int arenaEnd;
+    private int rowCount;
+
+    // Source of user versions; shared by all IDs so a version is never reused after a delete
+    private long lastVersion;
+
+    private final BitSet live = new BitSet();
+    private final BitSet active = new BitSet();
+
+    // Email domain dictionary
+    private final Map<String, Integer> domainCodes = new HashMap<>();
+    private final List<byte[]> domains = new ArrayList<>();
+
+    // Open-addressing table of row numbers + 1, keyed by the hash of the ID bytes
+    private int[] table = new int[64];
+    private int tableUsed;
+
+    /**
+     * Creates a store sized for a modest number of users; it grows as needed.
+     */
+    public UserStore() {
+        this(1024);
+    }
+
+    /**
+     * Creates a store sized for the expected number of users.
+     *
+     * @param expectedUsers the number of users to preallocate space for
+     */
+    public UserStore(int expectedUsers) {
+        int capacity = Math.max(16, expectedUsers);
+        this.rows = ByteBuffer.allocateDirect(capacity * ROW_SIZE);
+        this.arena = ByteBuffer.allocateDirect(capacity * 32);
+    }
+
+    @Override
+    public User findById(String userId) {
+        if (userId == null) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            int row = findRow(utf8(userId));
+            return row >= 0 ? materialize(row) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<User> findAll() {
+        lock.readLock().lock();
+        try {
+            List<User> result = new ArrayList<>(live.cardinality());
+            for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+                result.add(materialize(row));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void save(User user) {
+        if (user == null || user.getId() == null) {
+            throw new IllegalArgumentException("User and user ID cannot be null");
+        }
+        byte[] id = utf8(user.getId());
+        lock.writeLock().lock();
+        try {
+            int row = findRow(id);
+            if (row < 0) {
+                row = newRow(id);
+            }
+            writeFields(row, user);
+            active.set(row, user.isActive());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean saveIfAbsent(User user) {
+        if (user == null || user.getId() == null) {
+            throw new IllegalArgumentException("User and user ID cannot be null");
+        }
+        byte[] id = utf8(user.getId());
+        lock.writeLock().lock();
+        try {
+            if (findRow(id) >= 0) {
+                return false;
+            }
+            int row = newRow(id);
+            writeFields(row, user);
+            active.set(row, user.isActive());
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public UserSnapshot saveIfVersion(UserSnapshot snapshot, long expectedVersion) {
+        if (snapshot == null || snapshot.id() == null) {
+            throw new IllegalArgumentException("User and user ID cannot be null");
+        }
+        byte[] id = utf8(snapshot.id());
+        lock.writeLock().lock();
+        try {
+            int row = findRow(id);
+            if (row < 0 || versionOf(row) != expectedVersion) {
+                return null;
+            }
+            writeFields(row, snapshot.toUser());
+            active.set(row, snapshot.active());
+            return snapshot.withVersion(lastVersion);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(String userId) {
+        if (userId == null) {
+            return;
+        }
+        byte[] id = utf8(userId);
+        lock.writeLock().lock();
+        try {
+            int slot = findSlot(id, hash(id));
+            if (slot >= 0) {
+                int row = table[slot] - 1;
+                table[slot] = DELETED_SLOT;
+                live.clear(row);
+                active.clear(row);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean exists(String userId) {
+        if (userId == null) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            return findRow(utf8(userId)) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Visits every user through a shared flyweight view.
+     * The view is only valid inside the callback and must not be retained
+     * or modified; copy it if it has to outlive the call.
+     *
+     * @param action receives the view, positioned on each user in turn
+     */
+    public void forEach(Consumer<? super User> action) {
+        scan(live, action);
+    }
+
+    /**
+     * Visits every active user through a shared flyweight view.
+     * Inactive users are skipped using the active bitset alone.
+     *
+     * @param action receives the view, positioned on each active user in turn
+     */
+    public void forEachActive(Consumer<? super User> action) {
+        scan(active, action);
+    }
+
+    /**
+     * @return the number of active users, counted from the bitset
+     */
+    public int countActive() {
+        lock.readLock().lock();
+        try {
+            return active.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of users in the store
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return live.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of distinct email domains in the dictionary
+     */
+    public int getDomainCount() {
+        lock.readLock().lock();
+        try {
+            return domains.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void scan(BitSet rowsToVisit, Consumer<? super User> action) {
+        lock.readLock().lock();
+        try {
+            View view = new View();
+            for (int row = rowsToVisit.nextSetBit(0); row >= 0; row = rowsToVisit.nextSetBit(row + 1)) {
+                view.row = row;
+                action.accept(view);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int newRow(byte[] id) {
+        if ((long) (rowCount + 1) * ROW_SIZE > rows.capacity()) {
+            rows = grow(rows, (long) (rowCount + 1) * ROW_SIZE);
+        }
+        int row = rowCount++;
+        int base = row * ROW_SIZE;
+        int idHash = hash(id);
+        rows.putInt(base + ID_OFFSET, appendBytes(id));
+        rows.putInt(base + ID_LENGTH, id.length);
+        rows.putInt(base + ID_HASH, idHash);
+        insertSlot(row, idHash);
+        live.set(row);
+        return row;
+    }
+
+    /**
+     * Writes the user's fields to the row, under the next version.
+     */
+    private void writeFields(int row, User user) {
+        int base = row * ROW_SIZE;
+        rows.putLong(base + VERSION, ++lastVersion);
+        byte[] username = utf8(user.getUsername());
+        rows.putInt(base + USERNAME_OFFSET, username != null ? appendBytes(username) : 0);
+        rows.putInt(base + USERNAME_LENGTH, username != null ? username.length : NULL_LENGTH);
+
+        String email = user.getEmail();
+        int at = email != null ? email.lastIndexOf('@') : -1;
+        byte[] local = utf8(at >= 0 ? email.substring(0, at) : email);
+        rows.putInt(base + LOCAL_OFFSET, local != null ? appendBytes(local) : 0);
+        rows.putInt(base + LOCAL_LENGTH, local != null ? local.length : NULL_LENGTH);
+        rows.putInt(base + DOMAIN_CODE, at >= 0 ? domainCode(email.substring(at + 1)) : NO_DOMAIN);
+    }
+
+    private int domainCode(String domain) {
+        Integer code = domainCodes.get(domain);
+        if (code == null) {
+            code = domains.size();
+            domains.add(domain.getBytes(StandardCharsets.UTF_8));
+            domainCodes.put(domain, code);
+        }
+        return code;
+    }
+
+    private int appendBytes(byte[] bytes) {
+        if ((long) arenaEnd + bytes.length > arena.capacity()) {
+            arena = grow(arena, (long) arenaEnd + bytes.length);
+        }
+        int offset = arenaEnd;
+        arena.put(offset, bytes);
+        arenaEnd += bytes.length;
+        return offset;
+    }
+
+    private int findRow(byte[] id) {
+        int slot = findSlot(id, hash(id));
+        return slot >= 0 ? table[slot] - 1 : -1;
+    }
+
+    private int findSlot(byte[] id, int idHash) {
+        int mask = table.length - 1;
+        for (int i = idHash & mask; ; i = (i + 1) & mask) {
+            int entry = table[i];
+            if (entry == EMPTY_SLOT) {
+                return -1;
+            }
+            if (entry != DELETED_SLOT && idMatches(entry - 1, id, idHash)) {
+                return i;
+            }
+        }
+    }
+
+    private void insertSlot(int row, int idHash) {
+        if ((tableUsed + 1) * 2 > table.length) {
+            rehash();
+        }
+        int mask = table.length - 1;
+        int i = idHash & mask;
+        while (table[i] != EMPTY_SLOT && table[i] != DELETED_SLOT) {
+            i = (i + 1) & mask;
+        }
+        if (table[i] == EMPTY_SLOT) {
+            tableUsed++;
+        }
+        table[i] = row + 1;
+    }
+
+    private void rehash() {
+        int liveRows = live.cardinality();
+        int[] newTable = new int[Math.max(64, Integer.highestOneBit(Math.max(1, liveRows) * 4 - 1) << 1)];
+        int mask = newTable.length - 1;
+        for (int entry : table) {
+            if (entry == EMPTY_SLOT || entry == DELETED_SLOT) {
+                continue;
+            }
+            int i = rows.getInt((entry - 1) * ROW_SIZE + ID_HASH) & mask;
+            while (newTable[i] != EMPTY_SLOT) {
+                i = (i + 1) & mask;
+            }
+            newTable[i] = entry;
+        }
+        table = newTable;
+        tableUsed = liveRows;
+    }
+
+    private boolean idMatches(int row, byte[] id, int idHash) {
+        int base = row * ROW_SIZE;
+        if (rows.getInt(base + ID_HASH) != idHash || rows.getInt(base + ID_LENGTH) != id.length) {
+            return false;
+        }
+        int offset = rows.getInt(base + ID_OFFSET);
+        for (int i = 0; i < id.length; i++) {
+            if (arena.get(offset + i) != id[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private User materialize(int row) {
+        User user = new User(idOf(row), usernameOf(row), emailOf(row), active.get(row));
+        user.setVersion(versionOf(row));
+        return user;
+    }
+
+    private long versionOf(int row) {
+        return rows.getLong(row * ROW_SIZE + VERSION);
+    }
+
+    private String idOf(int row) {
+        int base = row * ROW_SIZE;
+        return decode(rows.getInt(base + ID_OFFSET), rows.getInt(base + ID_LENGTH));
+    }
+
+    private String usernameOf(int row) {
+        int base = row * ROW_SIZE;
+        return decode(rows.getInt(base + USERNAME_OFFSET), rows.getInt(base + USERNAME_LENGTH));
+    }
+
+    private String emailOf(int row) {
+        int base = row * ROW_SIZE;
+        int localLength = rows.getInt(base + LOCAL_LENGTH);
+        if (localLength == NULL_LENGTH) {
+            return null;
+        }
+        int code = rows.getInt(base + DOMAIN_CODE);
+        byte[] domain = code != NO_DOMAIN ? domains.get(code) : null;
+        byte[] email = new byte[localLength + (domain != null ? domain.length + 1 : 0)];
+        arena.get(rows.getInt(base + LOCAL_OFFSET), email, 0, localLength);
+        if (domain != null) {
+            email[localLength] = '@';
+            System.arraycopy(domain, 0, email, localLength + 1, domain.length);
+        }
+        return new String(email, StandardCharsets.UTF_8);
+    }
+
+    private String decode(int offset, int length) {
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        arena.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, long required) {
+        long newCapacity = Math.max(required, 2L * buffer.capacity());
+        if (newCapacity > Integer.MAX_VALUE) {
+            if (required > Integer.MAX_VALUE) {
+                throw new IllegalStateException("User store is full");
+            }
+            newCapacity = Integer.MAX_VALUE;
+        }
+        ByteBuffer grown = ByteBuffer.allocateDirect((int) newCapacity);
+        grown.put(0, buffer, 0, buffer.capacity());
+        return grown;
+    }
+
+    private static byte[] utf8(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int hash(byte[] bytes) {
+        int h = 0x811C9DC5;
+        for (byte b : bytes) {
+            h = (h ^ b) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Flyweight User positioned on a row of the store. Getters decode on demand;
+     * {@link #isActive()} reads the bitset and never allocates.
+     */
+    private final class View extends User {
+        private int row;
+
+        @Override
+        public String getId() {
+            return idOf(row);
+        }
+
+        @Override
+        public String getUsername() {
+            return usernameOf(row);
+        }
+
+        @Override
+        public String getEmail() {
+            return emailOf(row);
+        }
+
+        @Override
+        public boolean isActive() {
+            return active.get(row);
+        }
+
+        @Override
+        public long getVersion() {
+            return versionOf(row);
+        }
+
+        @Override
+        public void setId(String id) {
+            throw new UnsupportedOperationException("Store views are read-only");
+        }
+
+        @Override
+        public void setUsername(String username) {
+            throw new UnsupportedOperationException("Store views are read-only");
+        }
+
+        @Override
+        public void setEmail(String email) {
+            throw new UnsupportedOperationException("Store views are read-only");
+        }
+
+        @Override
+        public void setActive(boolean active) {
+            throw new UnsupportedOperationException("Store views are read-only");
+        }
+
+        @Override
+        public void setVersion(long version) {
+            throw new UnsupportedOperationException("Store views are read-only");
+        }
+
+        @Override
+        public String toString() {
+            return materialize(row).toString();
+        }
+    }
+}
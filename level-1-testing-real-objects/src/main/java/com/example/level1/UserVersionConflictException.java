@@ -0,0 +1,27 @@
+package com.example.level1;
+
+/**
+ * Exception thrown when a user was changed by another writer after it was read,
+ * so writing it would overwrite that change.
+ */
+public class UserVersionConflictException extends RuntimeException {
+    
+    /**
+     * Constructs a new exception with the specified detail message.
+     * 
+     * @param message the detail message
+     */
+    public UserVersionConflictException(String message) {
+        super(message);
+    }
+    
+    /**
+     * Constructs a new exception with the specified detail message and cause.
+     * 
+     * @param message the detail message
+     * @param cause the cause
+     */
+    public UserVersionConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+} 
\ No newline at end of file
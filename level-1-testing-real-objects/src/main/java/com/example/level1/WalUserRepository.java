@@ -0,0 +1,253 @@
+package com.example.level1;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory UserRepository made durable by a {@link WriteAheadLog}.
+ * Every save and delete is logged as a binary record before it is acknowledged,
+ * and the log is replayed on startup to restore the users. How long a write waits
+ * for the disk is decided by the log's {@link SyncPolicy}; with
+ * {@link SyncPolicy#EVERY_WRITE}, concurrent writers share forces through
+ * group commit instead of paying one each.
+ *
+ * Every record carries a version taken from a single counter, so replay restores
+ * the users' versions and the counter never hands out a version twice.
+ */
+public class WalUserRepository implements UserRepository, AutoCloseable {
+
+    private static final byte SAVE = 1;
+    private static final byte DELETE = 2;
+    private static final short NULL_STRING = -1;
+
+    private final Map<String, User> users = new ConcurrentHashMap<>();
+    private final AtomicLong versions = new AtomicLong();
+    private final WriteAheadLog log;
+
+    /**
+     * Opens a repository on the given log file, replaying any existing records.
+     *
+     * @param logFile the log file
+     * @param policy when writes are forced to disk
+     * @param syncIntervalMillis the force interval for {@link SyncPolicy#INTERVAL}, ignored otherwise
+     */
+    public WalUserRepository(Path logFile, SyncPolicy policy, long syncIntervalMillis) {
+        this.log = new WriteAheadLog(logFile, policy, syncIntervalMillis);
+        log.replay(this::apply);
+    }
+
+    /**
+     * Opens a repository on the given log file, forcing every write to disk.
+     *
+     * @param logFile the log file
+     */
+    public WalUserRepository(Path logFile) {
+        this(logFile, SyncPolicy.EVERY_WRITE, 0);
+    }
+
+    @Override
+    public User findById(String userId) {
+        User user = userId != null ? users.get(userId) : null;
+        return user != null ? copyOf(user) : null;
+    }
+
+    @Override
+    public List<User> findAll() {
+        List<User> result = new ArrayList<>(users.size());
+        for (User user : users.values()) {
+            result.add(copyOf(user));
+        }
+        return result;
+    }
+
+    @Override
+    public void save(User user) {
+        if (user == null || user.getId() == null) {
+            throw new IllegalArgumentException("User and user ID cannot be null");
+        }
+        User copy = copyOf(user);
+        long[] sequence = new long[1];
+        // Logging inside compute keeps log order and map order identical per user
+        users.compute(copy.getId(), (id, previous) -> {
+            copy.setVersion(versions.incrementAndGet());
+            sequence[0] = log.append(SAVE, encode(copy));
+            return copy;
+        });
+        log.commit(sequence[0]);
+    }
+
+    @Override
+    public boolean saveIfAbsent(User user) {
+        if (user == null || user.getId() == null) {
+            throw new IllegalArgumentException("User and user ID cannot be null");
+        }
+        User copy = copyOf(user);
+        long[] sequence = new long[1];
+        // Only a user that is actually inserted gets logged
+        users.computeIfAbsent(copy.getId(), id -> {
+            copy.setVersion(versions.incrementAndGet());
+            sequence[0] = log.append(SAVE, encode(copy));
+            return copy;
+        });
+        if (sequence[0] == 0) {
+            return false;
+        }
+        log.commit(sequence[0]);
+        return true;
+    }
+
+    @Override
+    public UserSnapshot saveIfVersion(UserSnapshot snapshot, long expectedVersion) {
+        if (snapshot == null || snapshot.id() == null) {
+            throw new IllegalArgumentException("User and user ID cannot be null");
+        }
+        long[] sequence = new long[1];
+        UserSnapshot[] stored = new UserSnapshot[1];
+        // Compare and set in one compute, so no other writer of the user can come in between
+        users.compute(snapshot.id(), (id, previous) -> {
+            if (previous == null || previous.getVersion() != expectedVersion) {
+                return previous;
+            }
+            stored[0] = snapshot.withVersion(versions.incrementAndGet());
+            User updated = stored[0].toUser();
+            sequence[0] = log.append(SAVE, encode(updated));
+            return updated;
+        });
+        if (stored[0] == null) {
+            return null;
+        }
+        log.commit(sequence[0]);
+        return stored[0];
+    }
+
+    @Override
+    public void delete(String userId) {
+        if (userId == null) {
+            return;
+        }
+        long[] sequence = new long[1];
+        users.compute(userId, (id, previous) -> {
+            if (previous != null) {
+                sequence[0] = log.append(DELETE, encodeDelete(id, versions.incrementAndGet()));
+            }
+            return null;
+        });
+        if (sequence[0] != 0) {
+            log.commit(sequence[0]);
+        }
+    }
+
+    @Override
+    public boolean exists(String userId) {
+        return userId != null && users.containsKey(userId);
+    }
+
+    /**
+     * Gets the log behind this repository, mainly to inspect how often it was forced.
+     *
+     * @return the write-ahead log
+     */
+    public WriteAheadLog getLog() {
+        return log;
+    }
+
+    /**
+     * Forces outstanding writes to disk and closes the log.
+     */
+    @Override
+    public void close() {
+        log.close();
+    }
+
+    private void apply(byte type, ByteBuffer payload) {
+        if (type == SAVE) {
+            String id = readString(payload);
+            String username = readString(payload);
+            String email = readString(payload);
+            User user = new User(id, username, email, payload.get() == 1);
+            user.setVersion(payload.getLong());
+            users.put(id, user);
+            replayed(user.getVersion());
+        } else if (type == DELETE) {
+            users.remove(readString(payload));
+            replayed(payload.getLong());
+        } else {
+            throw new IllegalStateException("Unknown log record type: " + type);
+        }
+    }
+
+    private void replayed(long version) {
+        if (version > versions.get()) {
+            versions.set(version);
+        }
+    }
+
+    private static ByteBuffer encode(User user) {
+        byte[] id = utf8(user.getId());
+        byte[] username = utf8(user.getUsername());
+        byte[] email = utf8(user.getEmail());
+        ByteBuffer buffer = ByteBuffer.allocate(fieldSize(id) + fieldSize(username) + fieldSize(email)
+                + 1 + Long.BYTES);
+        putString(buffer, id);
+        putString(buffer, username);
+        putString(buffer, email);
+        buffer.put(user.isActive() ? (byte) 1 : (byte) 0);
+        buffer.putLong(user.getVersion());
+        return buffer.flip();
+    }
+
+    // A delete uses up a version too, so a user created again after a restart gets a new one
+    private static ByteBuffer encodeDelete(String userId, long version) {
+        byte[] id = utf8(userId);
+        ByteBuffer buffer = ByteBuffer.allocate(fieldSize(id) + Long.BYTES);
+        putString(buffer, id);
+        buffer.putLong(version);
+        return buffer.flip();
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putShort(NULL_STRING);
+        } else {
+            buffer.putShort((short) bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        short length = buffer.getShort();
+        if (length == NULL_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int fieldSize(byte[] bytes) {
+        return Short.BYTES + (bytes != null ? bytes.length : 0);
+    }
+
+    private static byte[] utf8(String value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Value too long to store: " + bytes.length + " bytes");
+        }
+        return bytes;
+    }
+
+    private static User copyOf(User user) {
+        User copy = new User(user.getId(), user.getUsername(), user.getEmail(), user.isActive());
+        copy.setVersion(user.getVersion());
+        return copy;
+    }
+}
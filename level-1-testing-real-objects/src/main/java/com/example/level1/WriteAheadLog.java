@@ -0,0 +1,275 @@
+package com.example.level1;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of binary records with configurable durability.
+ * Each record is framed as an int payload length, an int CRC32 checksum and a
+ * type byte followed by the payload, so a record torn by a crash is detected
+ * on replay and cut off.
+ *
+ * With {@link SyncPolicy#EVERY_WRITE}, writers that arrive while a force is in
+ * progress queue up behind it and are then covered together by the next force
+ * (group commit), so the number of forces grows much slower than the number of
+ * concurrent writers.
+ *
+ * As with any {@link FileChannel}, interrupting a thread while it writes or
+ * forces closes the log, so writers should not be interrupted.
+ */
+public class WriteAheadLog implements AutoCloseable {
+
+    private static final int FRAME_HEADER = Integer.BYTES + Integer.BYTES + 1;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final SyncPolicy policy;
+    private final ScheduledExecutorService syncer;
+
+    private final Object appendLock = new Object();
+    private final Object syncLock = new Object();
+    // Sequence number of the last appended record, guarded by appendLock
+    private long appendedSequence;
+    // Sequence number of the last record known to be on disk
+    private volatile long durableSequence;
+    private volatile long syncCount;
+    private volatile boolean closed;
+
+    /**
+     * Opens or creates a log file.
+     *
+     * @param file the log file
+     * @param policy when appended records are forced to disk
+     * @param syncIntervalMillis the force interval for {@link SyncPolicy#INTERVAL}, ignored otherwise
+     */
+    public WriteAheadLog(Path file, SyncPolicy policy, long syncIntervalMillis) {
+        if (policy == SyncPolicy.INTERVAL && syncIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Sync interval must be positive: " + syncIntervalMillis);
+        }
+        this.file = file;
+        this.policy = policy;
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open log file " + file, e);
+        }
+
+        if (policy == SyncPolicy.INTERVAL) {
+            syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "wal-sync-" + file.getFileName());
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncer.scheduleWithFixedDelay(this::syncQuietly, syncIntervalMillis, syncIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            syncer = null;
+        }
+    }
+
+    /**
+     * Reads every intact record from the start of the log and positions the log
+     * for appending after the last one. A torn or corrupt tail is truncated.
+     * Must be called once, before the first append.
+     *
+     * @param consumer receives the type and payload of each record in log order
+     */
+    public void replay(BiConsumer<Byte, ByteBuffer> consumer) {
+        synchronized (appendLock) {
+            try {
+                long position = 0;
+                long size = channel.size();
+                ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER);
+                while (position + FRAME_HEADER <= size) {
+                    header.clear();
+                    readFully(header, position);
+                    header.flip();
+                    int length = header.getInt();
+                    int checksum = header.getInt();
+                    byte type = header.get();
+                    if (length < 0 || position + FRAME_HEADER + length > size) {
+                        break;
+                    }
+
+                    ByteBuffer payload = ByteBuffer.allocate(length);
+                    readFully(payload, position + FRAME_HEADER);
+                    payload.flip();
+                    if (checksum(type, payload) != checksum) {
+                        break;
+                    }
+                    consumer.accept(type, payload);
+                    position += FRAME_HEADER + length;
+                }
+
+                if (position < size) {
+                    channel.truncate(position);
+                    channel.force(false);
+                }
+                channel.position(position);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot replay log file " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Appends a record without waiting for it to reach the disk.
+     * Callers follow up with {@link #commit(long)} once they no longer hold
+     * any locks of their own, so that concurrent writers can share one force.
+     *
+     * @param type the record type
+     * @param payload the record payload, read from its position to its limit
+     * @return the sequence number of the record
+     */
+    public long append(byte type, ByteBuffer payload) {
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER + payload.remaining());
+        frame.putInt(payload.remaining());
+        frame.putInt(checksum(type, payload));
+        frame.put(type);
+        frame.put(payload);
+        frame.flip();
+
+        long sequence;
+        synchronized (appendLock) {
+            ensureOpen();
+            try {
+                while (frame.hasRemaining()) {
+                    channel.write(frame);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot append to log file " + file, e);
+            }
+            sequence = ++appendedSequence;
+        }
+        return sequence;
+    }
+
+    /**
+     * Completes a write according to the sync policy: with
+     * {@link SyncPolicy#EVERY_WRITE} this blocks until the record is on disk,
+     * otherwise it returns immediately.
+     *
+     * @param sequence the sequence number returned by {@link #append}
+     */
+    public void commit(long sequence) {
+        if (policy == SyncPolicy.EVERY_WRITE) {
+            awaitDurable(sequence);
+        }
+    }
+
+    /**
+     * Blocks until every record up to the given sequence number is on disk.
+     * If another thread is already forcing, this waits for it and then forces
+     * once on behalf of everyone who arrived in the meantime.
+     *
+     * @param sequence the sequence number to wait for
+     */
+    public void awaitDurable(long sequence) {
+        if (durableSequence >= sequence) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (durableSequence >= sequence) {
+                // Covered by the force of the thread we queued behind
+                return;
+            }
+            long target;
+            synchronized (appendLock) {
+                target = appendedSequence;
+            }
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot force log file " + file, e);
+            }
+            syncCount++;
+            durableSequence = target;
+        }
+    }
+
+    /**
+     * Forces everything appended so far to disk.
+     */
+    public void sync() {
+        long target;
+        synchronized (appendLock) {
+            target = appendedSequence;
+        }
+        awaitDurable(target);
+    }
+
+    /**
+     * @return how many times the log has been forced to disk
+     */
+    public long getSyncCount() {
+        return syncCount;
+    }
+
+    /**
+     * Forces outstanding records to disk and closes the log.
+     */
+    @Override
+    public void close() {
+        if (syncer != null) {
+            // No interrupts: interrupting a thread inside force would close the channel
+            syncer.shutdown();
+        }
+        synchronized (syncLock) {
+            synchronized (appendLock) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                try {
+                    channel.force(false);
+                    channel.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot close log file " + file, e);
+                }
+            }
+        }
+    }
+
+    private void syncQuietly() {
+        try {
+            if (!closed) {
+                sync();
+            }
+        } catch (RuntimeException e) {
+            // The next interval retries; writers are not blocked on this thread
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Log is closed: " + file);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Unexpected end of log file " + file);
+            }
+        }
+    }
+
+    private static int checksum(byte type, ByteBuffer payload) {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload.duplicate());
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.level1;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the DataLoader-style BatchingUserLoader.
+ */
+@DisplayName("BatchingUserLoader tests")
+class BatchingUserLoaderTest {
+
+    /**
+     * Repository that records the ID sets of its bulk lookups.
+     */
+    private static class RecordingRepository implements UserRepository {
+        private final Map<String, User> users = new ConcurrentHashMap<>();
+        private final List<Collection<String>> bulkLookups = new CopyOnWriteArrayList<>();
+        private volatile RuntimeException failure;
+
+        @Override
+        public Map<String, UserSnapshot> findAllSnapshotsById(Collection<String> userIds) {
+            bulkLookups.add(userIds);
+            if (failure != null) {
+                throw failure;
+            }
+            return UserRepository.super.findAllSnapshotsById(userIds);
+        }
+
+        @Override
+        public User findById(String userId) {
+            return users.get(userId);
+        }
+
+        @Override
+        public List<User> findAll() {
+            return new ArrayList<>(users.values());
+        }
+
+        @Override
+        public void save(User user) {
+            users.put(user.getId(), user);
+        }
+
+        @Override
+        public void delete(String userId) {
+            users.remove(userId);
+        }
+
+        @Override
+        public boolean exists(String userId) {
+            return users.containsKey(userId);
+        }
+    }
+
+    private RecordingRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new RecordingRepository();
+        repository.save(new User("1", "john", "john@example.com"));
+        repository.save(new User("2", "alice", "alice@example.com"));
+    }
+
+    @Test
+    @DisplayName("Should answer lookups within one window with one bulk lookup")
+    void testBatchesWithinWindow() {
+        try (BatchingUserLoader loader = new BatchingUserLoader(repository, 50, TimeUnit.MILLISECONDS, 100)) {
+            // When
+            CompletableFuture<User> john = loader.load("1");
+            CompletableFuture<User> alice = loader.load("2");
+            CompletableFuture<User> johnAgain = loader.load("1");
+            CompletableFuture<User> missing = loader.load("missing");
+
+            // Then
+            assertEquals("john", john.join().getUsername());
+            assertEquals("alice", alice.join().getUsername());
+            assertNotSame(john.join(), johnAgain.join());
+            assertNull(missing.join());
+            assertEquals(1, repository.bulkLookups.size());
+            assertEquals(3, repository.bulkLookups.get(0).size());
+            assertEquals(4, loader.getLatencies().getCount());
+        }
+    }
+
+    @Test
+    @DisplayName("Should send a batch as soon as it is full")
+    void testMaxBatchSize() {
+        try (BatchingUserLoader loader = new BatchingUserLoader(repository, 1, TimeUnit.HOURS, 2)) {
+            // When
+            CompletableFuture<User> john = loader.load("1");
+            CompletableFuture<User> alice = loader.load("2");
+
+            // Then
+            assertEquals("john", john.orTimeout(5, TimeUnit.SECONDS).join().getUsername());
+            assertEquals("alice", alice.join().getUsername());
+            assertEquals(1, loader.getBatchCount());
+        }
+    }
+
+    @Test
+    @DisplayName("Should fail every lookup in a failed batch")
+    void testFailedBatch() {
+        repository.failure = new RuntimeException("Database connection lost");
+        try (BatchingUserLoader loader = new BatchingUserLoader(repository, 10, TimeUnit.MILLISECONDS, 100)) {
+            // When
+            CompletableFuture<User> john = loader.load("1");
+            CompletableFuture<User> alice = loader.load("2");
+
+            // Then
+            CompletionException e = assertThrows(CompletionException.class, john::join);
+            assertEquals("Database connection lost", e.getCause().getMessage());
+            assertThrows(CompletionException.class, alice::join);
+        }
+    }
+
+    @Test
+    @DisplayName("Should send pending lookups on close and reject new ones")
+    void testClose() {
+        BatchingUserLoader loader = new BatchingUserLoader(repository, 1, TimeUnit.HOURS, 100);
+        CompletableFuture<User> john = loader.load("1");
+
+        loader.close();
+
+        assertEquals("john", john.orTimeout(5, TimeUnit.SECONDS).join().getUsername());
+        assertThrows(IllegalStateException.class, () -> loader.load("2"));
+    }
+
+    @Test
+    @DisplayName("Should complete every lookup that races with close")
+    void testCloseWhileLoading() throws Exception {
+        for (int round = 0; round < 50; round++) {
+            // Given - lookups sent by the window timer or by full batches while the loader closes
+            BatchingUserLoader loader = new BatchingUserLoader(repository, 0, TimeUnit.MILLISECONDS,
+                    round % 2 == 0 ? 1 : 100);
+            List<CompletableFuture<User>> futures = new CopyOnWriteArrayList<>();
+            AtomicReference<RuntimeException> rejection = new AtomicReference<>();
+            Thread caller = new Thread(() -> {
+                try {
+                    while (true) {
+                        futures.add(loader.load("1"));
+                    }
+                } catch (RuntimeException e) {
+                    rejection.set(e);
+                }
+            });
+            caller.start();
+
+            // When
+            Thread.sleep(1);
+            loader.close();
+            caller.join(5_000);
+
+            // Then
+            assertInstanceOf(IllegalStateException.class, rejection.get());
+            for (CompletableFuture<User> future : futures) {
+                try {
+                    assertEquals("john", future.orTimeout(5, TimeUnit.SECONDS).join().getUsername());
+                } catch (CompletionException e) {
+                    assertInstanceOf(IllegalStateException.class, e.getCause());
+                }
+            }
+        }
+    }
+
+    @Test
+    @Tag("performance")
+    @DisplayName("Measures scattered lookups against the real repository")
+    void measureBatchedLatency() {
+        RealUserRepository real = new RealUserRepository();
+        for (int i = 0; i < 10; i++) {
+            real.saveSnapshot(new UserSnapshot(String.valueOf(i), "user" + i, "user" + i + "@example.com", true));
+        }
+
+        try (BatchingUserLoader loader = new BatchingUserLoader(real, 20, TimeUnit.MILLISECONDS, 100)) {
+            long startTime = System.currentTimeMillis();
+            List<CompletableFuture<User>> results = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                results.add(loader.load(String.valueOf(i)));
+            }
+            results.forEach(CompletableFuture::join);
+            long elapsed = System.currentTimeMillis() - startTime;
+
+            System.out.println("10 scattered lookups took " + elapsed + "ms in "
+                    + loader.getBatchCount() + " batch(es): " + loader.getLatencies());
+            assertTrue(elapsed < 1000, "Batched lookups should take about one round trip");
+        }
+    }
+}
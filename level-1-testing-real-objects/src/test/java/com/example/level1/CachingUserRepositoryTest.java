@@ -0,0 +1,188 @@
+package com.example.level1;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the read-through CachingUserRepository decorator.
+ */
+@DisplayName("CachingUserRepository tests")
+class CachingUserRepositoryTest {
+
+    // Minimal in-memory repository that counts how often it is hit
+    private static class CountingRepository implements UserRepository {
+        private final Map<String, User> users = new HashMap<>();
+        private int findCalls;
+        private int existsCalls;
+
+        @Override
+        public User findById(String userId) {
+            findCalls++;
+            User user = users.get(userId);
+            return user == null ? null
+                    : new User(user.getId(), user.getUsername(), user.getEmail(), user.isActive());
+        }
+
+        @Override
+        public List<User> findAll() {
+            return new ArrayList<>(users.values());
+        }
+
+        @Override
+        public void save(User user) {
+            users.put(user.getId(), user);
+        }
+
+        @Override
+        public void delete(String userId) {
+            users.remove(userId);
+        }
+
+        @Override
+        public boolean exists(String userId) {
+            existsCalls++;
+            return users.containsKey(userId);
+        }
+    }
+
+    private CountingRepository backing;
+    private CachingUserRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        backing = new CountingRepository();
+        backing.save(new User("1", "john", "john@example.com"));
+        backing.save(new User("2", "alice", "alice@example.com"));
+        repository = new CachingUserRepository(backing, 10);
+    }
+
+    @Test
+    @DisplayName("Should serve repeated lookups from the cache")
+    void testReadThrough() {
+        repository.findById("1");
+        repository.findById("1");
+        User user = repository.findById("1");
+
+        assertEquals("john", user.getUsername());
+        assertEquals(1, backing.findCalls);
+        assertEquals(2, repository.getCache().getHitCount());
+        assertEquals(1, repository.getCache().getMissCount());
+    }
+
+    @Test
+    @DisplayName("Should not leak mutations of returned users into the cache")
+    void testReturnsCopies() {
+        repository.findById("1").setActive(false);
+
+        assertTrue(repository.findById("1").isActive());
+    }
+
+    @Test
+    @DisplayName("Should cache misses")
+    void testNegativeCaching() {
+        assertNull(repository.findById("missing"));
+        assertNull(repository.findById("missing"));
+        assertFalse(repository.exists("missing"));
+
+        assertEquals(1, backing.findCalls);
+        assertEquals(0, backing.existsCalls);
+    }
+
+    @Test
+    @DisplayName("Should invalidate on save and delete")
+    void testInvalidation() {
+        assertNull(repository.findById("3"));
+
+        repository.save(new User("3", "bob", "bob@example.com"));
+        assertEquals("bob", repository.findById("3").getUsername());
+        assertEquals("bob", repository.findById("3").getUsername());
+        assertEquals(2, backing.findCalls);
+
+        repository.delete("3");
+        assertNull(repository.findById("3"));
+        assertEquals(3, backing.findCalls);
+    }
+
+    @Test
+    @DisplayName("Should return the version the delegate assigned after a write")
+    void testVersionsAfterWrites() {
+        // Given
+        UserService service = new UserService(new CachingUserRepository(new RealUserRepository(), 10));
+        service.createUser(new User("1", "john", "john@example.com"));
+
+        // When
+        User read = service.getUserById("1");
+        service.updateUser(new User("1", "john", "john@other.org"));
+
+        // Then a copy read before the update is rejected instead of overwriting it
+        assertTrue(read.getVersion() > 0);
+        read.setActive(false);
+        assertThrows(UserVersionConflictException.class, () -> service.updateUser(read));
+        assertEquals("john@other.org", service.getUserById("1").getEmail());
+    }
+
+    @Test
+    @DisplayName("Should stay within the configured size")
+    void testBoundedEviction() {
+        CachingUserRepository small = new CachingUserRepository(backing, 4);
+        for (int i = 0; i < 20; i++) {
+            small.findById("user-" + i);
+        }
+
+        assertEquals(4, small.getCache().size());
+        assertEquals(16, small.getCache().getEvictionCount());
+    }
+
+    @Test
+    @DisplayName("Should keep frequently used users when scanning many one-off IDs")
+    void testScanResistance() {
+        CachingUserRepository small = new CachingUserRepository(backing, 5);
+        small.findById("1");
+        small.findById("1"); // second hit promotes to the protected segment
+
+        for (int i = 0; i < 20; i++) {
+            small.findById("scan-" + i);
+        }
+        int callsBefore = backing.findCalls;
+        small.findById("1");
+
+        assertEquals(callsBefore, backing.findCalls);
+    }
+
+    @Test
+    @Tag("performance")
+    @DisplayName("Compares repeated lookups against the raw real repository")
+    void benchmarkAgainstRealRepository() {
+        RealUserRepository real = new RealUserRepository();
+        real.save(new User("1", "john", "john@example.com"));
+        CachingUserRepository cached = new CachingUserRepository(real, 100);
+
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 5; i++) {
+            real.findById("1");
+        }
+        long rawTime = System.currentTimeMillis() - start;
+
+        start = System.currentTimeMillis();
+        for (int i = 0; i < 5; i++) {
+            cached.findById("1");
+        }
+        long cachedTime = System.currentTimeMillis() - start;
+
+        System.out.println("Raw repository: " + rawTime + "ms, cached repository: " + cachedTime
+                + "ms, hit rate: " + cached.getCache().getHitRate());
+
+        // Only the first cached lookup pays the simulated latency
+        assertTrue(cachedTime < rawTime);
+        assertEquals(0.8, cached.getCache().getHitRate(), 0.001);
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.level1;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for deadlines and their propagation through UserService.
+ */
+@DisplayName("Deadline tests")
+class DeadlineTest {
+
+    /**
+     * Repository whose lookups hang until interrupted, which it allows.
+     */
+    private static class HangingRepository implements UserRepository {
+        @Override
+        public User findById(String userId) {
+            try {
+                Thread.sleep(Long.MAX_VALUE);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Simulated database operation was interrupted", e);
+            }
+            return null;
+        }
+
+        @Override
+        public List<User> findAll() {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public void save(User user) {
+        }
+
+        @Override
+        public void delete(String userId) {
+        }
+
+        @Override
+        public boolean exists(String userId) {
+            return false;
+        }
+
+        @Override
+        public boolean isInterruptible() {
+            return true;
+        }
+    }
+
+    @TempDir
+    Path directory;
+
+    private TimerWheel timer;
+
+    @BeforeEach
+    void setUp() {
+        timer = new TimerWheel();
+    }
+
+    @AfterEach
+    void tearDown() {
+        timer.close();
+    }
+
+    @Test
+    @DisplayName("Should keep the earlier of two nested deadlines current")
+    void testNesting() {
+        Deadline outer = Deadline.after(1, TimeUnit.SECONDS);
+        Deadline inner = Deadline.after(1, TimeUnit.HOURS);
+
+        Deadline seen = outer.call(() -> inner.call(Deadline::current));
+
+        assertSame(outer, seen);
+        assertNull(Deadline.current());
+    }
+
+    @Test
+    @DisplayName("Should cut a slow repository call short at the deadline")
+    void testRepositoryHonorsDeadline() {
+        // Given
+        RealUserRepository repository = new RealUserRepository();
+        repository.save(new User("1", "john", "john@example.com"));
+        UserService service = new UserService(repository, timer);
+
+        // When
+        long startTime = System.currentTimeMillis();
+        assertThrows(DeadlineExceededException.class,
+                () -> service.getUserById("1", Deadline.after(50, TimeUnit.MILLISECONDS)));
+        long elapsed = System.currentTimeMillis() - startTime;
+
+        // Then the call did not wait out the 100-300ms latency
+        assertTrue(elapsed < 100, "Took " + elapsed + "ms");
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    @DisplayName("Should interrupt a hanging repository call at the deadline")
+    void testHangingCallIsInterrupted() {
+        // Given
+        UserService service = new UserService(new HangingRepository(), timer);
+
+        // When/Then
+        DeadlineExceededException e = assertThrows(DeadlineExceededException.class,
+                () -> service.getUserById("1", Deadline.after(20, TimeUnit.MILLISECONDS)));
+        assertNotNull(e.getCause());
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    @DisplayName("Should leave a write-ahead-logged repository writable after a deadline passes")
+    void testDeadlineDoesNotCloseLog() {
+        Path logFile = directory.resolve("users.wal");
+        // Given a repository whose inserts work for 50ms before they log
+        try (WalUserRepository repository = new WalUserRepository(logFile) {
+            @Override
+            public boolean saveIfAbsent(User user) {
+                long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50);
+                while (System.nanoTime() - end < 0) {
+                    Thread.onSpinWait();
+                }
+                return super.saveIfAbsent(user);
+            }
+        }) {
+            UserService service = new UserService(repository, timer);
+
+            // When the deadline passes before the insert reaches the log
+            assertThrows(DeadlineExceededException.class,
+                    () -> service.createUser(new User("1", "john", "john@example.com"),
+                            Deadline.after(20, TimeUnit.MILLISECONDS)));
+
+            // Then the log was not closed under the writer, so it still takes writes
+            assertFalse(Thread.currentThread().isInterrupted());
+            service.createUser(new User("2", "alice", "alice@example.com"));
+            assertEquals("alice", repository.findById("2").getUsername());
+        }
+
+        try (WalUserRepository reopened = new WalUserRepository(logFile)) {
+            assertEquals(2, reopened.findAll().size());
+        }
+    }
+
+    @Test
+    @DisplayName("Should complete normally within the deadline")
+    void testWithinDeadline() {
+        // Given
+        RealUserRepository repository = new RealUserRepository();
+        repository.save(new User("1", "john", "john@example.com"));
+        UserService service = new UserService(repository, timer);
+
+        // When
+        User user = service.getUserById("1", Deadline.after(1, TimeUnit.SECONDS));
+
+        // Then
+        assertEquals("john", user.getUsername());
+        assertFalse(Thread.currentThread().isInterrupted());
+        assertThrows(DeadlineExceededException.class,
+                () -> service.deactivateUser("1", Deadline.after(0, TimeUnit.SECONDS)));
+    }
+}
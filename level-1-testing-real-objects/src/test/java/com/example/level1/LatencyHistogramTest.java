@@ -0,0 +1,53 @@
+package com.example.level1;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the log-linear LatencyHistogram.
+ */
+@DisplayName("LatencyHistogram tests")
+class LatencyHistogramTest {
+
+    @Test
+    @DisplayName("Should report percentiles within the bucket precision")
+    void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 10_000; i++) {
+            histogram.record(i * 1_000);
+        }
+
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(5_000_000, histogram.getPercentile(50), 5_000_000 * 0.04);
+        assertEquals(9_500_000, histogram.getPercentile(95), 9_500_000 * 0.04);
+        assertEquals(10_000_000, histogram.getPercentile(100));
+        assertEquals(5_000_500, histogram.getMean(), 1);
+    }
+
+    @Test
+    @DisplayName("Should count small values exactly")
+    void testSmallValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(3);
+        histogram.record(-5);
+        histogram.record(40);
+
+        assertEquals(0, histogram.getPercentile(0));
+        assertEquals(3, histogram.getPercentile(50));
+        assertEquals(40, histogram.getPercentile(99));
+    }
+
+    @Test
+    @DisplayName("Should be empty after a reset")
+    void testReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(Long.MAX_VALUE);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(99));
+        assertThrows(IllegalArgumentException.class, () -> histogram.getPercentile(101));
+    }
+}
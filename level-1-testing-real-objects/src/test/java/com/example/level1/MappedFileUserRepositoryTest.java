@@ -0,0 +1,169 @@
+package com.example.level1;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for the memory-mapped, file-backed MappedFileUserRepository.
+ */
+@DisplayName("MappedFileUserRepository tests")
+class MappedFileUserRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should store, update and delete users")
+    void testCrudOperations() {
+        try (MappedFileUserRepository repository = new MappedFileUserRepository(directory)) {
+            repository.save(new User("1", "john", "john@example.com"));
+            repository.save(new User("2", "alice", null, false));
+            repository.save(new User("1", "johnny", "johnny@example.com"));
+            repository.delete("2");
+
+            User john = repository.findById("1");
+            assertEquals("johnny", john.getUsername());
+            assertEquals("johnny@example.com", john.getEmail());
+            assertTrue(john.isActive());
+            assertNull(repository.findById("2"));
+            assertFalse(repository.exists("2"));
+            assertEquals(1, repository.findAll().size());
+        }
+    }
+
+    @Test
+    @DisplayName("Should only insert users that do not exist yet")
+    void testSaveIfAbsent() {
+        try (MappedFileUserRepository repository = new MappedFileUserRepository(directory)) {
+            assertTrue(repository.saveIfAbsent(new User("1", "john", "john@example.com")));
+            assertFalse(repository.saveIfAbsent(new User("1", "impostor", "impostor@example.com")));
+
+            assertEquals("john", repository.findById("1").getUsername());
+            assertEquals(0, repository.getGarbageBytes());
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject stale versions and keep versions across a restart")
+    void testSaveIfVersion() {
+        UserSnapshot read;
+        try (MappedFileUserRepository repository = new MappedFileUserRepository(directory)) {
+            repository.save(new User("1", "john", "john@example.com"));
+            read = repository.findSnapshotById("1");
+            repository.save(new User("1", "john", "john@other.org"));
+
+            assertNull(repository.saveIfVersion(read.withActive(false), read.version()));
+            assertTrue(repository.findById("1").getVersion() > read.version());
+        }
+
+        try (MappedFileUserRepository reopened = new MappedFileUserRepository(directory)) {
+            UserSnapshot fresh = reopened.findSnapshotById("1");
+            assertTrue(fresh.version() > read.version());
+
+            UserSnapshot stored = reopened.saveIfVersion(fresh.withActive(false), fresh.version());
+            assertNotNull(stored);
+            assertEquals(stored.version(), reopened.findById("1").getVersion());
+            assertFalse(reopened.findById("1").isActive());
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep users across a clean restart")
+    void testCleanRestart() {
+        try (MappedFileUserRepository repository = new MappedFileUserRepository(directory)) {
+            repository.save(new User("1", "john", "john@example.com"));
+            repository.save(new User("2", "alice", "alice@example.com", false));
+        }
+
+        try (MappedFileUserRepository reopened = new MappedFileUserRepository(directory)) {
+            assertEquals("john", reopened.findById("1").getUsername());
+            assertFalse(reopened.findById("2").isActive());
+        }
+    }
+
+    @Test
+    @DisplayName("Should rebuild the index after a crash")
+    void testRecoveryWithoutClose() throws Exception {
+        MappedFileUserRepository crashed = new MappedFileUserRepository(directory);
+        crashed.save(new User("1", "john", "john@example.com"));
+        crashed.save(new User("2", "alice", "alice@example.com"));
+        crashed.delete("1");
+        // No close: the index file is still marked as in use
+
+        try (MappedFileUserRepository recovered = new MappedFileUserRepository(directory)) {
+            assertNull(recovered.findById("1"));
+            assertEquals("alice", recovered.findById("2").getUsername());
+        }
+        assertTrue(Files.exists(directory.resolve("users.idx")));
+    }
+
+    @Test
+    @DisplayName("Should reclaim space taken by deleted users")
+    void testCompaction() {
+        try (MappedFileUserRepository repository = new MappedFileUserRepository(directory, false)) {
+            for (int i = 0; i < 1_000; i++) {
+                repository.save(new User(String.valueOf(i), "user" + i, "user" + i + "@example.com"));
+            }
+            for (int i = 0; i < 1_000; i += 2) {
+                repository.delete(String.valueOf(i));
+            }
+            assertTrue(repository.getGarbageBytes() > 0);
+
+            repository.compact();
+
+            assertEquals(0, repository.getGarbageBytes());
+            assertEquals(500, repository.findAll().size());
+            assertNull(repository.findById("10"));
+            assertEquals("user11", repository.findById("11").getUsername());
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep working after a failed compaction")
+    void testFailedCompaction() throws IOException {
+        try (MappedFileUserRepository repository = new MappedFileUserRepository(directory, false)) {
+            for (int i = 0; i < 100; i++) {
+                repository.save(new User(String.valueOf(i), "user" + i, "user" + i + "@example.com"));
+            }
+            repository.delete("0");
+
+            // A directory in the way of the new index makes the compaction fail after the data is copied
+            Path blocker = Files.createDirectories(directory.resolve("users.idx.tmp"));
+            Files.createFile(blocker.resolve("in-the-way"));
+            assertThrows(UncheckedIOException.class, repository::compact);
+
+            assertTrue(repository.getGarbageBytes() > 0);
+            assertEquals(99, repository.findAll().size());
+            assertEquals("user1", repository.findById("1").getUsername());
+            repository.save(new User("100", "user100", "user100@example.com"));
+        }
+
+        try (MappedFileUserRepository reopened = new MappedFileUserRepository(directory, false)) {
+            assertEquals(100, reopened.findAll().size());
+            assertEquals("user100", reopened.findById("100").getUsername());
+        }
+    }
+
+    @Test
+    @DisplayName("Should grow the data file and index beyond their initial size")
+    void testGrowth() {
+        try (MappedFileUserRepository repository = new MappedFileUserRepository(directory, false)) {
+            for (int i = 0; i < 50_000; i++) {
+                repository.save(new User("user-" + i, "user" + i, "user" + i + "@example.com"));
+            }
+        }
+
+        try (MappedFileUserRepository reopened = new MappedFileUserRepository(directory, false)) {
+            assertEquals("user49999", reopened.findById("user-49999").getUsername());
+            assertEquals(50_000, reopened.findAll().size());
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.level1;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the retrying, hedging and circuit-breaking ResilientUserRepository.
+ */
+@DisplayName("ResilientUserRepository tests")
+class ResilientUserRepositoryTest {
+
+    /**
+     * Repository whose exists() fails a configurable number of times and can stall.
+     */
+    private static class FlakyRepository implements UserRepository {
+        private final Map<String, User> users = new ConcurrentHashMap<>();
+        private final AtomicInteger existsCalls = new AtomicInteger();
+        private final AtomicInteger failuresLeft = new AtomicInteger();
+        private final CountDownLatch stallEnded = new CountDownLatch(1);
+        private volatile long stallMillis;
+        private volatile boolean interruptible;
+        private volatile boolean stallInterrupted;
+
+        @Override
+        public boolean exists(String userId) {
+            int call = existsCalls.incrementAndGet();
+            if (failuresLeft.getAndDecrement() > 0) {
+                throw new RuntimeException("Database connection lost");
+            }
+            // Only the first call stalls, so a hedged duplicate answers quickly
+            if (call == 1 && stallMillis > 0) {
+                try {
+                    Thread.sleep(stallMillis);
+                } catch (InterruptedException e) {
+                    stallInterrupted = true;
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Simulated database operation was interrupted", e);
+                } finally {
+                    stallEnded.countDown();
+                }
+            }
+            return users.containsKey(userId);
+        }
+
+        @Override
+        public boolean isInterruptible() {
+            return interruptible;
+        }
+
+        @Override
+        public User findById(String userId) {
+            return users.get(userId);
+        }
+
+        @Override
+        public List<User> findAll() {
+            return new ArrayList<>(users.values());
+        }
+
+        @Override
+        public void save(User user) {
+            users.put(user.getId(), user);
+        }
+
+        @Override
+        public void delete(String userId) {
+            users.remove(userId);
+        }
+    }
+
+    @Test
+    @DisplayName("Should retry transient failures")
+    void testRetries() {
+        FlakyRepository flaky = new FlakyRepository();
+        flaky.save(new User("1", "john", "john@example.com"));
+        flaky.failuresLeft.set(2);
+
+        try (ResilientUserRepository repository = new ResilientUserRepository(flaky)) {
+            assertTrue(repository.exists("1"));
+            assertEquals(3, flaky.existsCalls.get());
+            assertEquals(2, repository.getRetryCount());
+        }
+    }
+
+    @Test
+    @DisplayName("Should stop retrying when the retry budget is spent")
+    void testRetryBudget() {
+        FlakyRepository flaky = new FlakyRepository();
+        flaky.failuresLeft.set(Integer.MAX_VALUE);
+        CircuitBreaker neverOpens = new CircuitBreaker(Integer.MAX_VALUE, 1, TimeUnit.SECONDS);
+
+        try (ResilientUserRepository repository = new ResilientUserRepository(flaky, 3, 0.0, neverOpens, 2)) {
+            for (int i = 0; i < 20; i++) {
+                assertThrows(RuntimeException.class, () -> repository.exists("1"));
+            }
+            // The budget starts with 10 saved retries and earns nothing at a ratio of 0
+            assertEquals(10, repository.getRetryCount());
+            assertEquals(30, flaky.existsCalls.get());
+        }
+    }
+
+    @Test
+    @DisplayName("Should open the circuit after repeated failures and close it after a good trial call")
+    void testCircuitBreaker() throws InterruptedException {
+        FlakyRepository flaky = new FlakyRepository();
+        flaky.failuresLeft.set(3);
+        CircuitBreaker breaker = new CircuitBreaker(3, 50, TimeUnit.MILLISECONDS);
+
+        try (ResilientUserRepository repository = new ResilientUserRepository(flaky, 1, 0.0, breaker, 2)) {
+            for (int i = 0; i < 3; i++) {
+                assertThrows(RuntimeException.class, () -> repository.exists("1"));
+            }
+            assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+            assertThrows(CircuitOpenException.class, () -> repository.exists("1"));
+            assertEquals(3, flaky.existsCalls.get());
+
+            Thread.sleep(60);
+            assertFalse(repository.exists("1"));
+            assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        }
+    }
+
+    @Test
+    @DisplayName("Should hedge an attempt that is slower than the p95")
+    void testHedging() {
+        FlakyRepository flaky = new FlakyRepository();
+        flaky.save(new User("1", "john", "john@example.com"));
+        flaky.stallMillis = 10_000;
+
+        try (ResilientUserRepository repository = new ResilientUserRepository(flaky)) {
+            // Pretend the repository usually answers within a millisecond
+            for (int i = 0; i < 100; i++) {
+                repository.getLatencies().record(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+
+            long startTime = System.currentTimeMillis();
+            assertTrue(repository.exists("1"));
+            long elapsed = System.currentTimeMillis() - startTime;
+
+            assertEquals(1, repository.getHedgeCount());
+            assertTrue(elapsed < 5_000, "The hedged request should win over the stalled one");
+        }
+    }
+
+    @Test
+    @DisplayName("Should let the losing attempt finish unless the repository may be interrupted")
+    void testLoserInterruptedOnlyIfAllowed() throws InterruptedException {
+        for (boolean interruptible : new boolean[] {false, true}) {
+            FlakyRepository flaky = new FlakyRepository();
+            flaky.save(new User("1", "john", "john@example.com"));
+            flaky.stallMillis = 300;
+            flaky.interruptible = interruptible;
+
+            try (ResilientUserRepository repository = new ResilientUserRepository(flaky)) {
+                for (int i = 0; i < 100; i++) {
+                    repository.getLatencies().record(TimeUnit.MILLISECONDS.toNanos(1));
+                }
+
+                assertTrue(repository.exists("1"));
+                assertEquals(1, repository.getHedgeCount());
+                assertTrue(flaky.stallEnded.await(5, TimeUnit.SECONDS));
+                assertEquals(interruptible, flaky.stallInterrupted);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should not hedge while every thread is busy")
+    void testNoHedgeWithoutIdleThread() {
+        FlakyRepository flaky = new FlakyRepository();
+        flaky.save(new User("1", "john", "john@example.com"));
+        flaky.stallMillis = 100;
+        CircuitBreaker breaker = new CircuitBreaker(5, 1, TimeUnit.SECONDS);
+
+        try (ResilientUserRepository repository = new ResilientUserRepository(flaky, 3, 0.1, breaker, 1)) {
+            for (int i = 0; i < 100; i++) {
+                repository.getLatencies().record(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+
+            // The stalled primary holds the only thread, so a hedge could only queue behind it
+            assertTrue(repository.exists("1"));
+            assertEquals(0, repository.getHedgeCount());
+            assertEquals(1, flaky.existsCalls.get());
+        }
+    }
+
+    @Test
+    @Tag("performance")
+    @DisplayName("Measures exists() failures against the real repository")
+    void measureFailureRate() {
+        RealUserRepository real = new RealUserRepository();
+        real.save(new User("1", "john", "john@example.com"));
+
+        int rawFailures = 0;
+        int resilientFailures = 0;
+        try (ResilientUserRepository resilient = new ResilientUserRepository(real)) {
+            for (int i = 0; i < 20; i++) {
+                try {
+                    real.exists("1");
+                } catch (RuntimeException e) {
+                    rawFailures++;
+                }
+                try {
+                    resilient.exists("1");
+                } catch (RuntimeException e) {
+                    resilientFailures++;
+                }
+            }
+            System.out.println("exists() failed " + rawFailures + "/20 times raw and " + resilientFailures
+                    + "/20 times with retries (" + resilient.getRetryCount() + " retries, "
+                    + resilient.getHedgeCount() + " hedges): " + resilient.getLatencies());
+        }
+        assertTrue(resilientFailures <= rawFailures || resilientFailures <= 1);
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.level1;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the request-coalescing SingleFlightUserRepository.
+ */
+@DisplayName("SingleFlightUserRepository tests")
+class SingleFlightUserRepositoryTest {
+
+    /**
+     * Repository whose lookups block until released, so tests control how calls overlap.
+     */
+    private static class GatedRepository implements UserRepository {
+        private final Map<String, User> users = new ConcurrentHashMap<>();
+        private final AtomicInteger findCalls = new AtomicInteger();
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private volatile CountDownLatch gate = new CountDownLatch(1);
+        private volatile RuntimeException failure;
+
+        @Override
+        public User findById(String userId) {
+            findCalls.incrementAndGet();
+            entered.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Simulated database operation was interrupted", e);
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return users.get(userId);
+        }
+
+        @Override
+        public List<User> findAll() {
+            return new ArrayList<>(users.values());
+        }
+
+        @Override
+        public void save(User user) {
+            users.put(user.getId(), user);
+        }
+
+        @Override
+        public void delete(String userId) {
+            users.remove(userId);
+        }
+
+        @Override
+        public boolean exists(String userId) {
+            return users.containsKey(userId);
+        }
+    }
+
+    private GatedRepository backing;
+    private SingleFlightUserRepository repository;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        backing = new GatedRepository();
+        backing.save(new User("1", "john", "john@example.com"));
+        repository = new SingleFlightUserRepository(backing);
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private List<Future<User>> lookUpConcurrently(int callers) throws InterruptedException {
+        List<Future<User>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            results.add(executor.submit(() -> repository.findById("1")));
+        }
+        // Wait until the leader is inside the delegate and everyone else had time to join it
+        assertTrue(backing.entered.await(5, TimeUnit.SECONDS));
+        while (repository.getSharedLookupCount() < callers - 1) {
+            Thread.sleep(1);
+        }
+        return results;
+    }
+
+    @Test
+    @DisplayName("Should share one lookup between concurrent callers")
+    void testCoalescesConcurrentLookups() throws Exception {
+        // Given
+        List<Future<User>> results = lookUpConcurrently(8);
+
+        // When
+        backing.gate.countDown();
+
+        // Then
+        List<User> users = new ArrayList<>();
+        for (Future<User> result : results) {
+            users.add(result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, backing.findCalls.get());
+        assertTrue(users.stream().allMatch(user -> "john".equals(user.getUsername())));
+        assertNotSame(users.get(0), users.get(1));
+    }
+
+    @Test
+    @DisplayName("Should fail every caller that shared a failed lookup")
+    void testPropagatesFailures() throws Exception {
+        // Given
+        List<Future<User>> results = lookUpConcurrently(4);
+        backing.failure = new RuntimeException("Database connection lost");
+
+        // When
+        backing.gate.countDown();
+
+        // Then
+        for (Future<User> result : results) {
+            Exception e = assertThrows(Exception.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertEquals("Database connection lost", e.getCause().getMessage());
+        }
+        assertEquals(1, backing.findCalls.get());
+    }
+
+    @Test
+    @DisplayName("Should let waiters retry when the leader is interrupted")
+    void testLeaderInterruption() throws Exception {
+        // Given a leader that is interrupted while the lookup is in flight
+        Thread leader = new Thread(() -> assertThrows(RuntimeException.class, () -> repository.findById("1")));
+        leader.start();
+        assertTrue(backing.entered.await(5, TimeUnit.SECONDS));
+        Future<User> waiter = executor.submit(() -> repository.findById("1"));
+        while (repository.getSharedLookupCount() < 1) {
+            Thread.sleep(1);
+        }
+
+        // When
+        CountDownLatch retryGate = new CountDownLatch(0);
+        CountDownLatch abandonedGate = backing.gate;
+        backing.gate = retryGate;
+        leader.interrupt();
+        leader.join(5000);
+
+        // Then
+        assertEquals("john", waiter.get(5, TimeUnit.SECONDS).getUsername());
+        assertEquals(2, backing.findCalls.get());
+        assertEquals(1, abandonedGate.getCount());
+    }
+
+    @Test
+    @DisplayName("Should not hand out lookups that started before a write")
+    void testWritesDetachInFlightLookups() throws Exception {
+        // Given
+        Future<User> before = lookUpConcurrently(1).get(0);
+
+        // When
+        repository.delete("1");
+        backing.gate.countDown();
+
+        // Then
+        assertNull(repository.findById("1"));
+        before.get(5, TimeUnit.SECONDS);
+        assertEquals(2, backing.findCalls.get());
+    }
+
+    @Test
+    @Tag("performance")
+    @DisplayName("Measures delegate calls saved for a hot key")
+    void measureHotKeyCoalescing() throws Exception {
+        SingleFlightUserRepository coalescing = new SingleFlightUserRepository(new RealUserRepository());
+        coalescing.save(new User("hot", "hot", "hot@example.com"));
+        UserService service = new UserService(coalescing);
+
+        List<Future<User>> results = new ArrayList<>();
+        long startTime = System.currentTimeMillis();
+        for (int i = 0; i < 64; i++) {
+            results.add(executor.submit(() -> service.getUserById("hot")));
+        }
+        for (Future<User> result : results) {
+            result.get();
+        }
+        long elapsed = System.currentTimeMillis() - startTime;
+
+        System.out.println("64 lookups of a hot key took " + elapsed + "ms, "
+                + coalescing.getSharedLookupCount() + " of them shared another caller's lookup");
+        assertTrue(coalescing.getSharedLookupCount() > 0);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.level1;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the hashed TimerWheel.
+ */
+@DisplayName("TimerWheel tests")
+class TimerWheelTest {
+
+    private TimerWheel wheel;
+
+    @BeforeEach
+    void setUp() {
+        // A small wheel, so the longer timeouts need several rounds
+        wheel = new TimerWheel(1, TimeUnit.MILLISECONDS, 8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        wheel.close();
+    }
+
+    @Test
+    @DisplayName("Should fire timeouts no earlier than their delay")
+    void testFiresAfterDelay() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        TimerWheel.Timeout timeout = wheel.schedule(fired::countDown, 30, TimeUnit.MILLISECONDS);
+
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(30));
+        assertFalse(timeout.cancel());
+        assertTrue(timeout.isExpired());
+    }
+
+    @Test
+    @DisplayName("Should never run cancelled timeouts")
+    void testCancel() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch later = new CountDownLatch(1);
+
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(wheel.schedule(runs::incrementAndGet, 10, TimeUnit.MILLISECONDS).cancel());
+        }
+        wheel.schedule(later::countDown, 20, TimeUnit.MILLISECONDS);
+
+        assertTrue(later.await(5, TimeUnit.SECONDS));
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    @DisplayName("Should reject timeouts once closed")
+    void testClose() {
+        wheel.close();
+
+        assertThrows(IllegalStateException.class, () -> wheel.schedule(() -> { }, 1, TimeUnit.MILLISECONDS));
+    }
+}
@@ -2,7 +2,12 @@ package com.example.level1;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -121,6 +126,23 @@ class UserServiceRealTest {
         assertEquals("johnupdated@example.com", retrieved.getEmail());
     }
     
+    @Test
+    @DisplayName("Should reject an update based on a stale version")
+    void testStaleUpdateRejected() {
+        // Given - two copies of the user read at the same version
+        User first = service.getUserById("1");
+        User second = service.getUserById("1");
+        first.setEmail("first@example.com");
+        service.updateUser(first);
+        
+        // When/Then
+        second.setEmail("second@example.com");
+        assertThrows(UserVersionConflictException.class, () -> {
+            service.updateUser(second);
+        });
+        assertEquals("first@example.com", repository.findById("1").getEmail());
+    }
+    
     @Test
     @DisplayName("Should delete a user")
     void testDeleteUser() {
@@ -131,6 +153,121 @@ class UserServiceRealTest {
         assertNull(repository.findById("1"));
     }
     
+    @Test
+    @DisplayName("Should page through users in ID order")
+    void testFindPage() {
+        // When
+        UserPage first = repository.findPage(null, 2);
+        UserPage second = repository.findPage(first.getContinuationToken(), 2);
+        
+        // Then
+        assertEquals(List.of("1", "2"), first.getUsers().stream().map(User::getId).toList());
+        assertEquals(List.of("3"), second.getUsers().stream().map(User::getId).toList());
+        assertFalse(second.hasNext());
+    }
+
+    @Test
+    @DisplayName("Should let exactly one of several concurrent creations win")
+    void testConcurrentCreateUser() throws Exception {
+        // Given
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Callable<Boolean>> attempts = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            String username = "racer" + i;
+            attempts.add(() -> {
+                try {
+                    service.createUser(new User("4", username, username + "@example.com"));
+                    return true;
+                } catch (IllegalArgumentException e) {
+                    return false;
+                }
+            });
+        }
+    
+        // When
+        int created = 0;
+        for (Future<Boolean> attempt : executor.invokeAll(attempts)) {
+            created += attempt.get() ? 1 : 0;
+        }
+        executor.shutdown();
+    
+        // Then
+        assertEquals(1, created);
+        assertNotNull(repository.findById("4"));
+    }
+    
+    @Test
+    @DisplayName("Should reject saves based on a stale version")
+    void testSaveIfVersion() {
+        // Given
+        UserSnapshot read = repository.findSnapshotById("1");
+        repository.save(new User("1", "john", "john@other.org"));
+
+        // When
+        UserSnapshot stale = repository.saveIfVersion(read.withActive(false), read.version());
+        UserSnapshot fresh = repository.findSnapshotById("1");
+
+        // Then
+        assertNull(stale);
+        assertTrue(fresh.version() > read.version());
+        assertNotNull(repository.saveIfVersion(fresh.withActive(false), fresh.version()));
+    }
+
+    @Test
+    @DisplayName("Should retry a conflicting update without losing the other write")
+    void testDeactivateUserRetriesOnConflict() {
+        // Given a repository where another writer changes the email right before the first compare-and-set
+        RealUserRepository racing = new RealUserRepository() {
+            private boolean raced;
+
+            @Override
+            public UserSnapshot saveIfVersion(UserSnapshot snapshot, long expectedVersion) {
+                if (!raced) {
+                    raced = true;
+                    save(new User("1", "john", "john@other.org"));
+                }
+                return super.saveIfVersion(snapshot, expectedVersion);
+            }
+        };
+        racing.save(new User("1", "john", "john@example.com"));
+
+        // When
+        new UserService(racing).deactivateUser("1");
+
+        // Then
+        User user = racing.findById("1");
+        assertFalse(user.isActive());
+        assertEquals("john@other.org", user.getEmail());
+    }
+
+    @Test
+    @DisplayName("Should give up without backing off after the last conflicting attempt")
+    void testNoBackOffAfterLastAttempt() {
+        // Given a repository where every compare-and-set conflicts, and the last one
+        // interrupts the caller so that a backoff after it would fail differently
+        int[] attempts = new int[1];
+        RealUserRepository conflicting = new RealUserRepository() {
+            @Override
+            public UserSnapshot saveIfVersion(UserSnapshot snapshot, long expectedVersion) {
+                if (++attempts[0] == 10) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }
+        };
+        conflicting.save(new User("1", "john", "john@example.com"));
+
+        // When
+        UserServiceException thrown = assertThrows(UserServiceException.class,
+                () -> new UserService(conflicting).deactivateUser("1"));
+        boolean interrupted = Thread.interrupted();
+
+        // Then
+        assertTrue(interrupted);
+        assertEquals(10, attempts[0]);
+        assertTrue(thrown.getMessage().startsWith("Too many concurrent updates"));
+    }
+
     // DEMONSTRATION OF ISSUES WITH REAL DEPENDENCIES
     
     @Test
@@ -0,0 +1,92 @@
+package com.example.level1;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for immutable UserSnapshots and the copy-free repository paths built on them.
+ */
+@DisplayName("UserSnapshot tests")
+class UserSnapshotTest {
+
+    @Test
+    @DisplayName("Should derive modified copies without touching the original")
+    void testWithMethods() {
+        UserSnapshot original = new UserSnapshot("1", "john", "john@example.com", true);
+
+        UserSnapshot inactive = original.withActive(false);
+        UserSnapshot moved = original.withEmail("john@other.org");
+
+        assertTrue(original.active());
+        assertFalse(inactive.active());
+        assertEquals("john@example.com", original.email());
+        assertEquals("john@other.org", moved.email());
+        assertSame(original, original.withActive(true));
+    }
+
+    @Test
+    @DisplayName("Should convert to and from mutable users")
+    void testConversion() {
+        User user = new User("1", "john", "john@example.com", false);
+
+        UserSnapshot snapshot = UserSnapshot.of(user);
+        user.setUsername("changed");
+
+        assertEquals("john", snapshot.username());
+        assertFalse(snapshot.toUser().isActive());
+        assertNotSame(snapshot.toUser(), snapshot.toUser());
+    }
+
+    @Test
+    @DisplayName("Should share stored snapshots instead of copying them")
+    void testRepositorySharesSnapshots() {
+        RealUserRepository repository = new RealUserRepository();
+        UserSnapshot stored = new UserSnapshot("1", "john", "john@example.com", true);
+        repository.saveSnapshot(stored);
+
+        assertEquals(stored.email(), repository.findSnapshotById("1").email());
+        assertSame(repository.findSnapshotById("1"), repository.findSnapshotById("1"));
+        assertNotSame(repository.findById("1"), repository.findById("1"));
+    }
+
+    @Test
+    @Tag("performance")
+    @DisplayName("Measures allocation of findAll against findAllSnapshots")
+    void measureAllocationReduction() throws Exception {
+        RealUserRepository repository = new RealUserRepository();
+        ExecutorService executor = Executors.newFixedThreadPool(64);
+        for (int i = 0; i < 640; i++) {
+            String id = String.valueOf(i);
+            executor.execute(() -> repository.save(new User(id, "user" + id, "user" + id + "@example.com")));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        List<User> copies = repository.findAll();
+        long copyingBytes = threads.getThreadAllocatedBytes(threadId) - before;
+
+        before = threads.getThreadAllocatedBytes(threadId);
+        List<UserSnapshot> shared = repository.findAllSnapshots();
+        long sharingBytes = threads.getThreadAllocatedBytes(threadId) - before;
+
+        System.out.println("findAll allocated " + copyingBytes + " bytes, findAllSnapshots allocated "
+                + sharingBytes + " bytes for " + shared.size() + " users");
+
+        assertEquals(copies.size(), shared.size());
+        assertTrue(sharingBytes < copyingBytes);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.level1;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.StreamSupport;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the snapshot-based UserSpliterator used by streamAll.
+ */
+@DisplayName("UserSpliterator tests")
+class UserSpliteratorTest {
+
+    private static User[] users(int count) {
+        User[] users = new User[count];
+        for (int i = 0; i < count; i++) {
+            users[i] = new User(String.valueOf(i), "user" + i, "user" + i + "@example.com", i % 2 == 0);
+        }
+        return users;
+    }
+
+    @Test
+    @DisplayName("Should split into exactly sized halves")
+    void testSplitsAreSized() {
+        Spliterator<User> spliterator = new UserSpliterator<>(users(10), user -> user);
+
+        Spliterator<User> prefix = spliterator.trySplit();
+
+        assertNotNull(prefix);
+        assertEquals(5, prefix.estimateSize());
+        assertEquals(5, spliterator.estimateSize());
+        assertTrue(prefix.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED));
+    }
+
+    @Test
+    @DisplayName("Should map users lazily as they are traversed")
+    void testLazyMapping() {
+        AtomicInteger mapped = new AtomicInteger();
+        Spliterator<User> spliterator = new UserSpliterator<>(users(100), user -> {
+            mapped.incrementAndGet();
+            return user;
+        });
+
+        long found = StreamSupport.stream(spliterator, false).limit(3).count();
+
+        assertEquals(3, found);
+        assertTrue(mapped.get() <= 3);
+    }
+
+    @Test
+    @DisplayName("Should give the same result in parallel")
+    void testParallelTraversal() {
+        long active = StreamSupport.stream(new UserSpliterator<>(users(10_000), user -> user), true)
+                .filter(User::isActive)
+                .count();
+
+        assertEquals(5_000, active);
+    }
+}
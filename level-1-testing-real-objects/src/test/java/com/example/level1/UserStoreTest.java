@@ -0,0 +1,147 @@
+package com.example.level1;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the compact, off-heap UserStore.
+ */
+@DisplayName("UserStore tests")
+class UserStoreTest {
+
+    private UserStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new UserStore(4);
+        store.save(new User("1", "john", "john@example.com"));
+        store.save(new User("2", "alice", "alice@example.com"));
+        store.save(new User("3", "bob", "bob@other.org", false));
+    }
+
+    @Test
+    @DisplayName("Should not lose concurrent updates made through UserService")
+    void testConcurrentUpdates() throws Exception {
+        // Given
+        UserService service = new UserService(store);
+        int threads = 4;
+        int updatesPerThread = 200;
+        List<Thread> writers = new ArrayList<>();
+
+        // When every writer appends to the username of the same user, retrying when its copy is stale
+        for (int t = 0; t < threads; t++) {
+            writers.add(new Thread(() -> {
+                for (int i = 0; i < updatesPerThread; i++) {
+                    while (true) {
+                        User user = service.getUserById("1");
+                        user.setUsername(user.getUsername() + "+");
+                        try {
+                            service.updateUser(user);
+                            break;
+                        } catch (UserVersionConflictException e) {
+                            // Read again and retry
+                        }
+                    }
+                }
+            }));
+        }
+        writers.forEach(Thread::start);
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        // Then every update is kept
+        assertEquals("john".length() + threads * updatesPerThread, store.findById("1").getUsername().length());
+    }
+
+    @Test
+    @DisplayName("Should round-trip users through the buffers")
+    void testSaveAndFind() {
+        User bob = store.findById("3");
+
+        assertEquals("bob", bob.getUsername());
+        assertEquals("bob@other.org", bob.getEmail());
+        assertFalse(bob.isActive());
+        assertNull(store.findById("missing"));
+    }
+
+    @Test
+    @DisplayName("Should only insert users that do not exist yet")
+    void testSaveIfAbsent() {
+        assertFalse(store.saveIfAbsent(new User("1", "impostor", "impostor@example.com")));
+        assertTrue(store.saveIfAbsent(new User("4", "carol", "carol@example.com")));
+
+        assertEquals("john", store.findById("1").getUsername());
+        assertEquals("carol", store.findById("4").getUsername());
+    }
+
+    @Test
+    @DisplayName("Should keep null and domain-less emails intact")
+    void testUnusualEmails() {
+        store.save(new User("4", "no-email", null));
+        store.save(new User("5", "local-only", "postmaster"));
+        store.save(new User("6", "ünïcode", "ü@exämple.com"));
+
+        assertNull(store.findById("4").getEmail());
+        assertEquals("postmaster", store.findById("5").getEmail());
+        assertEquals("ü@exämple.com", store.findById("6").getEmail());
+        assertEquals("ünïcode", store.findById("6").getUsername());
+    }
+
+    @Test
+    @DisplayName("Should store each email domain once")
+    void testDomainDictionary() {
+        assertEquals(2, store.getDomainCount());
+    }
+
+    @Test
+    @DisplayName("Should update and delete users")
+    void testUpdateAndDelete() {
+        store.save(new User("1", "johnny", "johnny@example.com", false));
+        store.delete("2");
+
+        assertEquals("johnny", store.findById("1").getUsername());
+        assertFalse(store.exists("2"));
+        assertEquals(0, store.countActive());
+        assertEquals(2, store.size());
+        assertEquals(2, store.findAll().size());
+    }
+
+    @Test
+    @DisplayName("Should scan active users through a single flyweight view")
+    void testForEachActive() {
+        List<String> usernames = new ArrayList<>();
+        List<User> views = new ArrayList<>();
+        store.forEachActive(user -> {
+            usernames.add(user.getUsername());
+            views.add(user);
+        });
+
+        assertEquals(List.of("john", "alice"), usernames);
+        assertSame(views.get(0), views.get(1));
+        assertThrows(UnsupportedOperationException.class, () -> views.get(0).setActive(false));
+    }
+
+    @Test
+    @DisplayName("Should grow past its initial capacity")
+    void testGrowth() {
+        for (int i = 0; i < 100_000; i++) {
+            store.save(new User("user-" + i, "user" + i, "user" + i + "@example.com", i % 4 == 0));
+        }
+
+        AtomicInteger active = new AtomicInteger();
+        store.forEachActive(user -> active.incrementAndGet());
+
+        assertEquals(100_003, store.size());
+        assertEquals(25_002, store.countActive());
+        assertEquals(25_002, active.get());
+        assertEquals("user99999@example.com", store.findById("user-99999").getEmail());
+    }
+}
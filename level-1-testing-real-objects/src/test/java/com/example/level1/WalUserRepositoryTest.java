@@ -0,0 +1,210 @@
+package com.example.level1;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for the write-ahead-logged WalUserRepository.
+ */
+@DisplayName("WalUserRepository tests")
+class WalUserRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should restore users by replaying the log")
+    void testReplay() {
+        Path logFile = directory.resolve("users.wal");
+        try (WalUserRepository repository = new WalUserRepository(logFile)) {
+            repository.save(new User("1", "john", "john@example.com"));
+            repository.save(new User("2", "alice", null, false));
+            repository.save(new User("1", "johnny", "johnny@example.com"));
+            repository.delete("3"); // not present, nothing is logged
+        }
+
+        try (WalUserRepository reopened = new WalUserRepository(logFile)) {
+            assertEquals("johnny", reopened.findById("1").getUsername());
+            assertNull(reopened.findById("2").getEmail());
+            assertFalse(reopened.findById("2").isActive());
+
+            reopened.delete("1");
+        }
+
+        try (WalUserRepository reopened = new WalUserRepository(logFile)) {
+            assertNull(reopened.findById("1"));
+            assertEquals(1, reopened.findAll().size());
+        }
+    }
+
+    @Test
+    @DisplayName("Should only log users that are actually inserted")
+    void testSaveIfAbsent() {
+        Path logFile = directory.resolve("users.wal");
+        try (WalUserRepository repository = new WalUserRepository(logFile)) {
+            assertTrue(repository.saveIfAbsent(new User("1", "john", "john@example.com")));
+            assertFalse(repository.saveIfAbsent(new User("1", "impostor", "impostor@example.com")));
+        }
+
+        try (WalUserRepository reopened = new WalUserRepository(logFile)) {
+            assertEquals("john", reopened.findById("1").getUsername());
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject stale versions and keep versions across a restart")
+    void testSaveIfVersion() {
+        Path logFile = directory.resolve("users.wal");
+        UserSnapshot read;
+        try (WalUserRepository repository = new WalUserRepository(logFile)) {
+            repository.save(new User("1", "john", "john@example.com"));
+            read = repository.findSnapshotById("1");
+            repository.save(new User("1", "john", "john@other.org"));
+
+            assertNull(repository.saveIfVersion(read.withActive(false), read.version()));
+            assertTrue(repository.findById("1").getVersion() > read.version());
+        }
+
+        try (WalUserRepository reopened = new WalUserRepository(logFile)) {
+            UserSnapshot fresh = reopened.findSnapshotById("1");
+            assertTrue(fresh.version() > read.version());
+            assertNull(reopened.saveIfVersion(read.withActive(false), read.version()));
+
+            UserSnapshot stored = reopened.saveIfVersion(fresh.withActive(false), fresh.version());
+            assertNotNull(stored);
+            assertTrue(stored.version() > fresh.version());
+            assertFalse(reopened.findById("1").isActive());
+        }
+    }
+
+    @Test
+    @DisplayName("Should cut off a torn record at the end of the log")
+    void testTornTail() throws Exception {
+        Path logFile = directory.resolve("users.wal");
+        try (WalUserRepository repository = new WalUserRepository(logFile)) {
+            repository.save(new User("1", "john", "john@example.com"));
+        }
+        long intactSize = Files.size(logFile);
+        Files.write(logFile, new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (WalUserRepository reopened = new WalUserRepository(logFile)) {
+            assertEquals("john", reopened.findById("1").getUsername());
+            reopened.save(new User("2", "alice", "alice@example.com"));
+        }
+        assertTrue(Files.size(logFile) > intactSize);
+
+        try (WalUserRepository reopened = new WalUserRepository(logFile)) {
+            assertEquals(2, reopened.findAll().size());
+        }
+    }
+
+    @Test
+    @DisplayName("Should share forces between concurrent writers")
+    void testGroupCommit() throws Exception {
+        try (WalUserRepository repository = new WalUserRepository(directory.resolve("users.wal"))) {
+            long writes = runWriters(repository, 16, 50);
+
+            assertEquals(writes, repository.findAll().size());
+            assertTrue(repository.getLog().getSyncCount() < writes);
+        }
+    }
+
+    @Test
+    @DisplayName("Should cover all queued writers with a single force")
+    void testSingleForceForQueuedWriters() throws Exception {
+        int writers = 8;
+        try (WriteAheadLog log = new WriteAheadLog(directory.resolve("group.wal"), SyncPolicy.EVERY_WRITE, 0)) {
+            log.replay((type, payload) -> { });
+            CountDownLatch appended = new CountDownLatch(writers);
+            ExecutorService executor = Executors.newFixedThreadPool(writers);
+            try {
+                // Every writer appends, then waits until all have appended before committing
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < writers; t++) {
+                    futures.add(executor.submit(() -> {
+                        long sequence = log.append((byte) 1, ByteBuffer.wrap(new byte[] {1, 2, 3}));
+                        appended.countDown();
+                        appended.await();
+                        log.commit(sequence);
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get(10, TimeUnit.SECONDS);
+                }
+            } finally {
+                executor.shutdown();
+            }
+
+            assertEquals(1, log.getSyncCount());
+        }
+    }
+
+    @Test
+    @DisplayName("Should force the log on the configured interval")
+    void testIntervalPolicy() throws Exception {
+        try (WalUserRepository repository = new WalUserRepository(directory.resolve("users.wal"),
+                SyncPolicy.INTERVAL, 5)) {
+            repository.save(new User("1", "john", "john@example.com"));
+            Thread.sleep(100);
+
+            assertTrue(repository.getLog().getSyncCount() > 0);
+        }
+    }
+
+    @Test
+    @Tag("performance")
+    @DisplayName("Measures write throughput from 1 to 64 writer threads")
+    void benchmarkWriterThreads() throws Exception {
+        for (int threads = 1; threads <= 64; threads *= 2) {
+            Path logFile = directory.resolve("bench-" + threads + ".wal");
+            try (WalUserRepository repository = new WalUserRepository(logFile)) {
+                long start = System.nanoTime();
+                long writes = runWriters(repository, threads, 400 / threads + 10);
+                long elapsedNanos = System.nanoTime() - start;
+
+                System.out.printf("WAL %2d writers: %8.0f writes/s, %5d writes, %5d forces%n",
+                        threads, writes * 1e9 / elapsedNanos, writes, repository.getLog().getSyncCount());
+            }
+        }
+    }
+
+    private static long runWriters(WalUserRepository repository, int threads, int writesPerThread)
+            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < writesPerThread; i++) {
+                        String id = thread + "-" + i;
+                        repository.save(new User(id, "user" + id, id + "@example.com"));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return (long) threads * writesPerThread;
+    }
+}
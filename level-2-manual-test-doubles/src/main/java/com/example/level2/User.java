@@ -8,6 +8,7 @@ public class User {
     private String username;
     private String email;
     private boolean active;
+    private long version;
 
     /**
      * Default constructor
@@ -88,6 +89,21 @@ public class User {
         this.active = active;
     }
     
+    /**
+     * Gets the version the repository assigned to this user when it was last stored.
+     * Versions are used for optimistic concurrency control and are 0 for users
+     * that were never stored by a versioning repository.
+     * 
+     * @return the stored version
+     */
+    public long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(long version) {
+        this.version = version;
+    }
+    
     @Override
     public String toString() {
         return "User{" +
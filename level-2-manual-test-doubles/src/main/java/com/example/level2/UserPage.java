@@ -0,0 +1,98 @@
+package com.example.level2;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of users returned by a keyset-paginated query.
+ * Pages are ordered by user ID. The continuation token is opaque to callers
+ * and is passed back unchanged to fetch the following page.
+ */
+public class UserPage {
+
+    private final List<User> users;
+    private final String continuationToken;
+
+    /**
+     * Constructs a page of users.
+     *
+     * @param users the users on this page, ordered by ID
+     * @param continuationToken the token for the next page, or null if this is the last page
+     */
+    public UserPage(List<User> users, String continuationToken) {
+        this.users = Collections.unmodifiableList(users);
+        this.continuationToken = continuationToken;
+    }
+
+    /**
+     * Builds a page from the users found after a position.
+     *
+     * @param users the users on this page, ordered by ID
+     * @param hasMore whether more users follow the last one on this page
+     * @return the page
+     */
+    public static UserPage of(List<User> users, boolean hasMore) {
+        String token = hasMore && !users.isEmpty()
+                ? encodeToken(users.get(users.size() - 1).getId())
+                : null;
+        return new UserPage(users, token);
+    }
+
+    /**
+     * Encodes the ID of the last user returned into a continuation token.
+     *
+     * @param lastUserId the ID of the last user on a page
+     * @return the opaque continuation token
+     */
+    public static String encodeToken(String lastUserId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(lastUserId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a continuation token back into the ID to continue after.
+     *
+     * @param continuationToken the token, or null for the first page
+     * @return the ID of the last user already returned, or null for the first page
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static String decodeToken(String continuationToken) {
+        if (continuationToken == null) {
+            return null;
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(continuationToken), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid continuation token: " + continuationToken, e);
+        }
+    }
+
+    /**
+     * Checks a requested page size.
+     *
+     * @param pageSize the requested page size
+     * @throws IllegalArgumentException if the page size is not positive
+     */
+    public static void checkPageSize(int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+    }
+
+    public List<User> getUsers() {
+        return users;
+    }
+
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+
+    /**
+     * @return true if another page can be fetched with the continuation token
+     */
+    public boolean hasNext() {
+        return continuationToken != null;
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.level2;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for User data operations.
@@ -23,6 +24,23 @@ public interface UserRepository {
      */
     List<User> findAll();
     
+    /**
+     * Streams all users from the repository without copying them into a list first
+     * 
+     * @return A sized stream of all users, which may be made parallel
+     */
+    Stream<User> streamAll();
+    
+    /**
+     * Retrieves one page of users ordered by ID
+     * 
+     * @param continuationToken The token from the previous page, or null for the first page
+     * @param pageSize The maximum number of users to return
+     * @return The requested page of users
+     * @throws IllegalArgumentException if the token is malformed or the page size is not positive
+     */
+    UserPage findPage(String continuationToken, int pageSize);
+    
     /**
      * Saves a user to the repository
      * If the user already exists (same ID), it will be updated
@@ -31,6 +49,26 @@ public interface UserRepository {
      */
     void save(User user);
     
+    /**
+     * Saves a user only if the stored user still has the expected version,
+     * in the manner of a compare-and-set. On success the stored user gets a new,
+     * higher version, which is also set on the given user.
+     * 
+     * @param user The user to save
+     * @param expectedVersion The version the stored user must currently have
+     * @return true if the user was saved, false if it does not exist or its version did not match
+     */
+    boolean saveIfVersion(User user, long expectedVersion);
+    
+    /**
+     * Saves a user only if no user with the same ID exists yet.
+     * The check and the insert happen atomically.
+     * 
+     * @param user The user to insert
+     * @return true if the user was inserted, false if a user with the same ID already exists
+     */
+    boolean saveIfAbsent(User user);
+    
     /**
      * Deletes a user from the repository
      * 
@@ -45,4 +83,27 @@ public interface UserRepository {
      * @return true if the user exists, false otherwise
      */
     boolean exists(String userId);
-} 
\ No newline at end of file
+    
+    /**
+     * Finds a user by their username
+     * 
+     * @param username The username to look up
+     * @return A user with that username if found, null otherwise
+     */
+    User findByUsername(String username);
+    
+    /**
+     * Finds a user by their email address
+     * 
+     * @param email The email address to look up
+     * @return A user with that email address if found, null otherwise
+     */
+    User findByEmail(String email);
+    
+    /**
+     * Retrieves all active users from the repository
+     * 
+     * @return A list of the active users
+     */
+    List<User> findActive();
+}
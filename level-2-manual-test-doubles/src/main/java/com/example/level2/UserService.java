@@ -1,7 +1,10 @@
 package com.example.level2;
 
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.UnaryOperator;
 
 /**
  * Service class that contains business logic for user operations.
@@ -9,6 +12,13 @@ import java.util.stream.Collectors;
  */
 public class UserService {
     
+    // Read-modify-write updates are retried this often when they lose a version conflict
+    private static final int MAX_UPDATE_ATTEMPTS = 10;
+    
+    // Bounds of the randomized exponential backoff between conflicting attempts
+    private static final long MIN_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    
     private final UserRepository repository;
     
     /**
@@ -40,6 +50,8 @@ public class UserService {
     
     /**
      * Creates a new user.
+     * The existence check and the insert are a single atomic repository call,
+     * so concurrent creations of the same user can not both succeed.
      * 
      * @param user the user to create
      * @throws IllegalArgumentException if the user already exists
@@ -49,31 +61,42 @@ public class UserService {
             throw new IllegalArgumentException("User and user ID cannot be null");
         }
         
-        if (repository.exists(user.getId())) {
+        if (!repository.saveIfAbsent(user)) {
             throw new IllegalArgumentException("User already exists: " + user.getId());
         }
-        
-        repository.save(user);
     }
     
     /**
      * Updates an existing user.
+     * A user read from the repository carries the version it was read at, and is
+     * only written if the stored user still has that version, so a stale copy can
+     * not overwrite a change made since. A user with version 0 was never read
+     * from the repository and replaces whatever is stored.
+     * Either way the user is only written if it still exists at that point, so an
+     * update racing with a delete can not bring the user back.
      * 
      * @param user the user to update
      * @throws UserNotFoundException if the user does not exist
+     * @throws UserVersionConflictException if the user was changed since its version was read
      */
     public void updateUser(User user) {
         if (user == null || user.getId() == null) {
             throw new IllegalArgumentException("User and user ID cannot be null");
         }
         
-        // Check if user exists
-        User existingUser = repository.findById(user.getId());
-        if (existingUser == null) {
-            throw new UserNotFoundException("Cannot update non-existent user: " + user.getId());
+        long expectedVersion = user.getVersion();
+        if (expectedVersion == 0) {
+            update(user.getId(), existing -> user, "Cannot update non-existent user: ");
+            return;
         }
         
-        repository.save(user);
+        if (!repository.saveIfVersion(user, expectedVersion)) {
+            if (repository.findById(user.getId()) == null) {
+                throw new UserNotFoundException("Cannot update non-existent user: " + user.getId());
+            }
+            throw new UserVersionConflictException("User " + user.getId()
+                    + " was changed after version " + expectedVersion + " was read");
+        }
     }
     
     /**
@@ -95,9 +118,7 @@ public class UserService {
      * @return a list of all active users
      */
     public List<User> getActiveUsers() {
-        return repository.findAll().stream()
-                .filter(User::isActive)
-                .collect(Collectors.toList());
+        return repository.findActive();
     }
     
     /**
@@ -107,9 +128,53 @@ public class UserService {
      * @throws UserNotFoundException if the user is not found
      */
     public void deactivateUser(String userId) {
-        User user = getUserById(userId);
-        user.setActive(false);
-        repository.save(user);
+        update(userId, user -> user.isActive()
+                ? new User(user.getId(), user.getUsername(), user.getEmail(), false)
+                : null, "User not found: ");
+    }
+    
+    /**
+     * Applies a read-modify-write update to a user with optimistic concurrency control.
+     * The user is read, modified and written back with a versioned compare-and-set.
+     * If another writer got there first, the update is applied again to the newer
+     * state after a randomized, exponentially growing backoff, so concurrent writers
+     * neither lose each other's changes nor have to hold a lock.
+     * 
+     * @param userId the ID of the user to update
+     * @param update the modification to apply; returns null if there is nothing to write
+     * @param notFoundMessage the message prefix used if the user does not exist
+     * @throws UserNotFoundException if the user does not exist
+     * @throws UserServiceException if the update kept conflicting with other writers
+     */
+    private void update(String userId, UnaryOperator<User> update, String notFoundMessage) {
+        for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
+            User current = repository.findById(userId);
+            if (current == null) {
+                throw new UserNotFoundException(notFoundMessage + userId);
+            }
+            
+            // Read the version first: the fake may hand out the stored instance itself
+            long version = current.getVersion();
+            User updated = update.apply(current);
+            if (updated == null || repository.saveIfVersion(updated, version)) {
+                return;
+            }
+            
+            // Only back off before another attempt, not before giving up
+            if (attempt + 1 < MAX_UPDATE_ATTEMPTS) {
+                backOff(attempt);
+            }
+        }
+        throw new UserServiceException("Too many concurrent updates of user: " + userId, null);
+    }
+    
+    private static void backOff(int attempt) {
+        long ceiling = Math.min(MAX_BACKOFF_NANOS, MIN_BACKOFF_NANOS << attempt);
+        LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(MIN_BACKOFF_NANOS, ceiling + 1));
+        if (Thread.currentThread().isInterrupted()) {
+            throw new UserServiceException("Interrupted while retrying a conflicting update",
+                    new InterruptedException());
+        }
     }
 }
 
@@ -1,20 +1,51 @@
 package com.example.level2.fake;
 
 import com.example.level2.User;
+import com.example.level2.UserPage;
 import com.example.level2.UserRepository;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 
 /**
  * A fake implementation of UserRepository for testing purposes.
  * This class stores users in memory and provides an isolated environment for tests.
+ *
+ * Secondary indexes on username, email and active status are maintained on every
+ * save and delete, so the corresponding queries only touch matching users.
+ * The indexes reflect the state of a user as of its last save.
+ * Users are kept sorted by ID, which lets paged queries seek directly
+ * to the continuation point.
+ * Writes take no locks: a user is replaced with a single atomic map operation,
+ * and every save assigns it a new version, which saveIfVersion compares and sets
+ * with a lock-free replace. The writer then brings the index entries of the old
+ * and new values in line with whatever is stored by then, and repeats that until
+ * no other writer replaced the user meanwhile, so concurrent writers of one user
+ * can not leave each other's entries missing. Readers take no locks either and
+ * re-check the users the indexes point to.
  */
 public class FakeUserRepository implements UserRepository {
     
-    private final Map<String, User> users = new HashMap<>();
+    // Pages are sized up front, but never beyond this: a huge page size need not mean many users
+    private static final int MAX_PAGE_PRESIZE = 1_024;
+    
+    private final NavigableMap<String, StoredUser> users = new ConcurrentSkipListMap<>();
+    
+    // Secondary indexes: indexed value -> IDs of the users holding it
+    private final Map<String, Set<String>> usernameIndex = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> emailIndex = new ConcurrentHashMap<>();
+    private final Set<String> activeIds = ConcurrentHashMap.newKeySet();
+    
+    // Source of user versions; shared by all IDs so a version is never reused after a delete
+    private final AtomicLong versions = new AtomicLong();
     
     /**
      * Default constructor - creates an empty repository
@@ -31,20 +62,50 @@ public class FakeUserRepository implements UserRepository {
     public FakeUserRepository(boolean prePopulate) {
         if (prePopulate) {
             // Pre-populate with test data
-            users.put("1", new User("1", "testuser1", "test1@example.com"));
-            users.put("2", new User("2", "testuser2", "test2@example.com"));
-            users.put("3", new User("3", "inactive", "inactive@example.com", false));
+            save(new User("1", "testuser1", "test1@example.com"));
+            save(new User("2", "testuser2", "test2@example.com"));
+            save(new User("3", "inactive", "inactive@example.com", false));
         }
     }
     
     @Override
     public User findById(String userId) {
-        return users.get(userId);
+        StoredUser stored = userId != null ? users.get(userId) : null;
+        return stored != null ? stored.user : null;
     }
     
     @Override
     public List<User> findAll() {
-        return new ArrayList<>(users.values());
+        List<User> result = new ArrayList<>(users.size());
+        for (StoredUser stored : users.values()) {
+            result.add(stored.user);
+        }
+        return result;
+    }
+    
+    @Override
+    public Stream<User> streamAll() {
+        // An array snapshot splits evenly and reports exact sizes to parallel streams
+        StoredUser[] snapshot = users.values().toArray(new StoredUser[0]);
+        return Arrays.stream(snapshot).map(stored -> stored.user);
+    }
+    
+    @Override
+    public UserPage findPage(String continuationToken, int pageSize) {
+        UserPage.checkPageSize(pageSize);
+        String afterId = UserPage.decodeToken(continuationToken);
+
+        NavigableMap<String, StoredUser> remaining = afterId != null ? users.tailMap(afterId, false) : users;
+        List<User> page = new ArrayList<>(Math.min(pageSize, MAX_PAGE_PRESIZE));
+        boolean hasMore = false;
+        for (StoredUser stored : remaining.values()) {
+            if (page.size() == pageSize) {
+                hasMore = true;
+                break;
+            }
+            page.add(stored.user);
+        }
+        return UserPage.of(page, hasMore);
     }
     
     @Override
@@ -52,17 +113,79 @@ public class FakeUserRepository implements UserRepository {
         if (user == null || user.getId() == null) {
             throw new IllegalArgumentException("User and user ID cannot be null");
         }
-        users.put(user.getId(), user);
+        StoredUser stored = new StoredUser(user, versions.incrementAndGet());
+        reindex(user.getId(), users.put(user.getId(), stored), stored);
+    }
+    
+    @Override
+    public boolean saveIfAbsent(User user) {
+        if (user == null || user.getId() == null) {
+            throw new IllegalArgumentException("User and user ID cannot be null");
+        }
+        StoredUser stored = new StoredUser(user, versions.incrementAndGet());
+        if (users.putIfAbsent(user.getId(), stored) != null) {
+            return false;
+        }
+        reindex(user.getId(), null, stored);
+        return true;
+    }
+    
+    @Override
+    public boolean saveIfVersion(User user, long expectedVersion) {
+        if (user == null || user.getId() == null) {
+            throw new IllegalArgumentException("User and user ID cannot be null");
+        }
+        StoredUser current = users.get(user.getId());
+        if (current == null || current.version != expectedVersion) {
+            return false;
+        }
+        // Lock-free compare-and-set: fails if any other writer replaced or removed the user meanwhile
+        StoredUser stored = new StoredUser(user, versions.incrementAndGet());
+        if (!users.replace(user.getId(), current, stored)) {
+            return false;
+        }
+        reindex(user.getId(), current, stored);
+        user.setVersion(stored.version);
+        return true;
     }
     
     @Override
     public void delete(String userId) {
-        users.remove(userId);
+        if (userId == null) {
+            return;
+        }
+        StoredUser removed = users.remove(userId);
+        if (removed != null) {
+            reindex(userId, removed, null);
+        }
     }
     
     @Override
     public boolean exists(String userId) {
-        return users.containsKey(userId);
+        return userId != null && users.containsKey(userId);
+    }
+    
+    @Override
+    public User findByUsername(String username) {
+        return findIndexed(usernameIndex, username, true);
+    }
+    
+    @Override
+    public User findByEmail(String email) {
+        return findIndexed(emailIndex, email, false);
+    }
+    
+    @Override
+    public List<User> findActive() {
+        List<User> result = new ArrayList<>(activeIds.size());
+        for (String id : activeIds) {
+            StoredUser stored = users.get(id);
+            // Entries can briefly outlive their user under concurrent writes
+            if (stored != null && stored.active) {
+                result.add(stored.user);
+            }
+        }
+        return result;
     }
     
     /**
@@ -71,6 +194,9 @@ public class FakeUserRepository implements UserRepository {
      */
     public void clear() {
         users.clear();
+        usernameIndex.clear();
+        emailIndex.clear();
+        activeIds.clear();
     }
     
     /**
@@ -84,4 +210,102 @@ public class FakeUserRepository implements UserRepository {
             save(user);
         }
     }
-} 
\ No newline at end of file
+    
+    private User findIndexed(Map<String, Set<String>> index, String value, boolean byUsername) {
+        if (value == null) {
+            return null;
+        }
+        Set<String> ids = index.get(value);
+        if (ids == null) {
+            return null;
+        }
+        for (String id : ids) {
+            StoredUser stored = users.get(id);
+            if (stored != null && value.equals(byUsername ? stored.username : stored.email)) {
+                return stored.user;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Brings the index entries of a user in line with its stored state after a write.
+     * Only the values of the replaced and the new state can have changed, so only
+     * their entries are touched, each made to match the user stored at that point.
+     * If another writer replaced the user meanwhile, that writer may have fixed an
+     * entry just before this one undid it, so it is done again against the newer
+     * state; the last writer to look therefore always leaves the entries right.
+     *
+     * @param id the ID of the user
+     * @param previous the state being replaced, or null if there was none
+     * @param stored the new state, or null if the user was deleted
+     */
+    private void reindex(String id, StoredUser previous, StoredUser stored) {
+        StoredUser current = users.get(id);
+        while (true) {
+            for (StoredUser written : new StoredUser[] {previous, stored}) {
+                if (written != null) {
+                    index(usernameIndex, written.username, id, current != null ? current.username : null);
+                    index(emailIndex, written.email, id, current != null ? current.email : null);
+                }
+            }
+            if (current != null && current.active) {
+                activeIds.add(id);
+            } else {
+                activeIds.remove(id);
+            }
+            StoredUser now = users.get(id);
+            if (now == current) {
+                return;
+            }
+            current = now;
+        }
+    }
+    
+    /**
+     * Adds or removes the index entry of a value for a user, depending on whether
+     * the user currently holds that value.
+     */
+    private static void index(Map<String, Set<String>> index, String value, String id, String currentValue) {
+        if (value == null) {
+            return;
+        }
+        if (value.equals(currentValue)) {
+            index.compute(value, (key, ids) -> {
+                Set<String> result = ids != null ? ids : ConcurrentHashMap.newKeySet();
+                result.add(id);
+                return result;
+            });
+        } else {
+            index.computeIfPresent(value, (key, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+    
+    /**
+     * A stored copy of a user together with the values it was indexed under.
+     * The copy carries the stored version, so the caller's user is left as it was.
+     * The copy is handed out to readers and may be mutated in place,
+     * so the indexed values are captured separately at save time.
+     */
+    private static final class StoredUser {
+        private final User user;
+        private final String id;
+        private final String username;
+        private final String email;
+        private final boolean active;
+        private final long version;
+
+        StoredUser(User user, long version) {
+            this.user = new User(user.getId(), user.getUsername(), user.getEmail(), user.isActive());
+            this.user.setVersion(version);
+            this.version = version;
+            this.id = user.getId();
+            this.username = user.getUsername();
+            this.email = user.getEmail();
+            this.active = user.isActive();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,239 @@
+package com.example.level2;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.example.level2.fake.FakeUserRepository;
+
+/**
+ * Tests for the secondary indexes maintained by FakeUserRepository.
+ */
+@DisplayName("FakeUserRepository index tests")
+class FakeUserRepositoryTest {
+
+    private FakeUserRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new FakeUserRepository(true);
+    }
+
+    @Test
+    @DisplayName("Should find users by username and email")
+    void testFindByUsernameAndEmail() {
+        assertEquals("1", repository.findByUsername("testuser1").getId());
+        assertEquals("2", repository.findByEmail("test2@example.com").getId());
+        assertNull(repository.findByUsername("nobody"));
+        assertNull(repository.findByEmail(null));
+    }
+
+    @Test
+    @DisplayName("Should only return active users")
+    void testFindActive() {
+        List<User> active = repository.findActive();
+
+        assertEquals(2, active.size());
+        assertTrue(active.stream().allMatch(User::isActive));
+    }
+
+    @Test
+    @DisplayName("Should update indexes when a user is saved again")
+    void testIndexesFollowUpdates() {
+        User user = repository.findById("1");
+        user.setEmail("changed@example.com");
+        user.setActive(false);
+        repository.save(user);
+
+        assertNull(repository.findByEmail("test1@example.com"));
+        assertEquals("1", repository.findByEmail("changed@example.com").getId());
+        assertEquals(1, repository.findActive().size());
+    }
+
+    @Test
+    @DisplayName("Should remove deleted users from the indexes")
+    void testIndexesFollowDeletes() {
+        repository.delete("2");
+
+        assertNull(repository.findByUsername("testuser2"));
+        assertNull(repository.findByEmail("test2@example.com"));
+        assertEquals(1, repository.findActive().size());
+    }
+
+    @Test
+    @DisplayName("Should index users without an email")
+    void testUserWithoutEmail() {
+        repository.save(new User("4", "no-email"));
+
+        assertEquals("4", repository.findByUsername("no-email").getId());
+        assertEquals(3, repository.findActive().size());
+    }
+
+    @Test
+    @DisplayName("Should stream all users, also in parallel")
+    void testStreamAll() {
+        for (int i = 10; i < 1_000; i++) {
+            repository.save(new User(String.valueOf(i), "user" + i, "user" + i + "@example.com", i % 2 == 0));
+        }
+
+        assertEquals(993, repository.streamAll().count());
+        assertEquals(497, repository.streamAll().parallel().filter(User::isActive).count());
+    }
+
+    @Test
+    @DisplayName("Should page through users in ID order")
+    void testFindPage() {
+        repository.save(new User("4", "testuser4", "test4@example.com"));
+        repository.save(new User("5", "testuser5", "test5@example.com"));
+
+        List<String> ids = new ArrayList<>();
+        String token = null;
+        int pages = 0;
+        do {
+            UserPage page = repository.findPage(token, 2);
+            page.getUsers().forEach(user -> ids.add(user.getId()));
+            token = page.getContinuationToken();
+            pages++;
+        } while (token != null);
+
+        assertEquals(List.of("1", "2", "3", "4", "5"), ids);
+        assertEquals(3, pages);
+    }
+
+    @Test
+    @DisplayName("Should reject malformed continuation tokens and page sizes")
+    void testInvalidPageRequests() {
+        assertThrows(IllegalArgumentException.class, () -> repository.findPage("not base64!", 2));
+        assertThrows(IllegalArgumentException.class, () -> repository.findPage(null, 0));
+    }
+
+    @Test
+    @DisplayName("Should only insert users that do not exist yet")
+    void testSaveIfAbsent() {
+        assertFalse(repository.saveIfAbsent(new User("1", "impostor", "impostor@example.com")));
+        assertTrue(repository.saveIfAbsent(new User("4", "newuser", "new@example.com")));
+
+        assertEquals("testuser1", repository.findById("1").getUsername());
+        assertNull(repository.findByUsername("impostor"));
+        assertEquals("4", repository.findByUsername("newuser").getId());
+    }
+
+    @Test
+    @DisplayName("Should only save when the stored version matches")
+    void testSaveIfVersion() {
+        long version = repository.findById("1").getVersion();
+        User update = new User("1", "renamed", "test1@example.com");
+
+        assertTrue(repository.saveIfVersion(update, version));
+        assertFalse(repository.saveIfVersion(new User("1", "stale", "stale@example.com"), version));
+        assertEquals("renamed", repository.findById("1").getUsername());
+        assertNotNull(repository.findByUsername("renamed"));
+        assertNull(repository.findByUsername("testuser1"));
+    }
+
+    @Test
+    @DisplayName("Should version the stored copy, not the caller's user")
+    void testSaveLeavesCallerUserAlone() {
+        User user = new User("4", "newuser", "new@example.com");
+
+        repository.save(user);
+
+        assertEquals(0, user.getVersion());
+        assertTrue(repository.findById("4").getVersion() > 0);
+    }
+
+    @Test
+    @DisplayName("Should not reuse versions after a delete")
+    void testVersionsSurviveDelete() {
+        long version = repository.findById("1").getVersion();
+        repository.delete("1");
+        repository.save(new User("1", "testuser1", "test1@example.com"));
+
+        assertFalse(repository.saveIfVersion(new User("1", "stale", "stale@example.com"), version));
+        assertFalse(repository.saveIfVersion(new User("missing", "x", "x@example.com"), 0));
+    }
+
+    @Test
+    @DisplayName("Should not lose concurrent read-modify-write updates")
+    void testConcurrentCompareAndSet() throws InterruptedException {
+        repository.save(new User("counter", "0", "counter@example.com"));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            executor.execute(() -> {
+                for (int n = 0; n < 1_000; n++) {
+                    boolean saved;
+                    do {
+                        User current = repository.findById("counter");
+                        long version = current.getVersion();
+                        int count = Integer.parseInt(current.getUsername());
+                        saved = repository.saveIfVersion(
+                                new User("counter", String.valueOf(count + 1), "counter@example.com"), version);
+                    } while (!saved);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals("8000", repository.findById("counter").getUsername());
+        assertNotNull(repository.findByUsername("8000"));
+    }
+
+    @Test
+    @DisplayName("Should keep a user indexed while it is saved concurrently")
+    void testConcurrentSavesOfSameUser() throws InterruptedException {
+        // Given
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // When - every writer saves the same active user again and again
+        for (int i = 0; i < 8; i++) {
+            executor.execute(() -> {
+                for (int n = 0; n < 5_000; n++) {
+                    repository.save(new User("shared", "shared", "shared@example.com"));
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        // Then
+        assertNotNull(repository.findByUsername("shared"));
+        assertNotNull(repository.findByEmail("shared@example.com"));
+        assertTrue(repository.findActive().stream().anyMatch(user -> user.getId().equals("shared")));
+    }
+
+    @Test
+    @DisplayName("Should index the last state of a user whose values change concurrently")
+    void testConcurrentSavesWithChangingValues() throws InterruptedException {
+        // Given
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // When - writers flip the user between two emails and activity states
+        for (int i = 0; i < 8; i++) {
+            int writer = i;
+            executor.execute(() -> {
+                for (int n = 0; n < 5_000; n++) {
+                    boolean even = (n + writer) % 2 == 0;
+                    repository.save(new User("shared", "shared", even ? "even@example.com" : "odd@example.com", even));
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        // Then - whichever save came last, its values are found and the others are not
+        User last = repository.findById("shared");
+        String otherEmail = last.isActive() ? "odd@example.com" : "even@example.com";
+        assertEquals(last.getEmail(), repository.findByEmail(last.getEmail()).getEmail());
+        assertNull(repository.findByEmail(otherEmail));
+        assertEquals(last.isActive(), repository.findActive().stream().anyMatch(user -> user.getId().equals("shared")));
+    }
+}
@@ -71,6 +71,19 @@ class MaintenanceChallengesTest {
             
             return super.exists(userId);
         }
+        
+        @Override
+        public boolean saveIfAbsent(User user) {
+            if (simulateNetworkFailure) {
+                throw new RuntimeException("Simulated network failure");
+            }
+            
+            if (specialCaseFlag && "special".equals(user.getId())) {
+                return false;
+            }
+            
+            return super.saveIfAbsent(user);
+        }
     }
     
     @Test
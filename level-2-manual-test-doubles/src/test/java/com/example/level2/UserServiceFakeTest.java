@@ -119,6 +119,50 @@ class UserServiceFakeTest {
         assertEquals("john-updated@example.com", user.getEmail());
     }
     
+    @Test
+    @DisplayName("Should reject an update based on a stale version")
+    void testStaleUpdateRejected() {
+        // Given - two writers read the user at the same version
+        long readVersion = fakeRepository.findById("1").getVersion();
+        User first = new User("1", "john-first", "first@example.com");
+        first.setVersion(readVersion);
+        User second = new User("1", "john-second", "second@example.com");
+        second.setVersion(readVersion);
+        userService.updateUser(first);
+        
+        // When, Then
+        assertThrows(UserVersionConflictException.class, () -> userService.updateUser(second));
+        assertEquals("john-first", fakeRepository.findById("1").getUsername());
+    }
+    
+    @Test
+    @DisplayName("Should give up without backing off after the last conflicting attempt")
+    void testNoBackOffAfterLastAttempt() {
+        // Given a repository where every compare-and-set conflicts, and the last one
+        // interrupts the caller so that a backoff after it would fail differently
+        int[] attempts = new int[1];
+        FakeUserRepository conflicting = new FakeUserRepository() {
+            @Override
+            public boolean saveIfVersion(User user, long expectedVersion) {
+                if (++attempts[0] == 10) {
+                    Thread.currentThread().interrupt();
+                }
+                return false;
+            }
+        };
+        conflicting.save(new User("1", "john", "john@example.com"));
+        
+        // When
+        UserServiceException thrown = assertThrows(UserServiceException.class,
+                () -> new UserService(conflicting).deactivateUser("1"));
+        boolean interrupted = Thread.interrupted();
+        
+        // Then
+        assertTrue(interrupted);
+        assertEquals(10, attempts[0]);
+        assertTrue(thrown.getMessage().startsWith("Too many concurrent updates"));
+    }
+    
     @Test
     @DisplayName("Should delete a user")
     void testDeleteUser() {
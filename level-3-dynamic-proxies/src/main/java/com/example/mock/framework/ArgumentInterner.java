@@ -0,0 +1,99 @@
+package com.example.mock.framework;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded table of recorded argument arrays, so that calls with equal arguments
+ * share a single array in the journal instead of each keeping its own copy.
+ * Handy for long, repetitive runs, such as millions of findByEmail calls with a
+ * few hundred emails: the journal then holds one array, and one instance of each
+ * argument value, per distinct call rather than per call.
+ *
+ * The table is direct-mapped: each argument tuple hashes to one slot, and a new
+ * tuple simply replaces whatever the slot held. Memory stays fixed however many
+ * distinct tuples there are, at the price of recording a tuple again after it was
+ * displaced. Interning never changes the order or number of recorded calls, only
+ * which equal instances their arguments refer to: a call's recorded arguments may
+ * be the equal arguments of an earlier call, so this is for arguments that are not
+ * modified after the call. Safe for use by many threads at once.
+ */
+public final class ArgumentInterner {
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    // Written and read without locking; the final fields of Entry make that safe
+    private final Entry[] slots;
+    private final int mask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates an interner.
+     *
+     * @param capacity the number of slots, rounded up to a power of two
+     * @throws IllegalArgumentException if capacity is not between 1 and 2^20
+     */
+    public ArgumentInterner(int capacity) {
+        if (capacity < 1 || capacity > 1 << 20) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^20");
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new Entry[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Returns an array equal to the given arguments, shared with earlier calls if possible.
+     *
+     * @param args the arguments of a call; never modified or kept
+     * @return an array with equal contents that must not be modified
+     */
+    Object[] intern(Object[] args) {
+        if (args.length == 0) {
+            return NO_ARGS;
+        }
+        int hash = Arrays.deepHashCode(args);
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        Entry entry = slots[slot];
+        if (entry != null && entry.hash == hash && Arrays.deepEquals(entry.args, args)) {
+            hits.increment();
+            return entry.args;
+        }
+        misses.increment();
+        Object[] copy = args.clone();
+        slots[slot] = new Entry(hash, copy);
+        return copy;
+    }
+
+    /**
+     * @return the number of slots
+     */
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    /**
+     * @return the number of calls whose arguments were shared with an earlier call
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of calls whose arguments had to be copied
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    private static final class Entry {
+        final int hash;
+        final Object[] args;
+
+        Entry(int hash, Object[] args) {
+            this.hash = hash;
+            this.args = args;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.mock.framework;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * How a stub compares the arguments of a call with the arguments it was stubbed with.
+ * Each stub keeps the mode it was created with, so stubs of one method can mix modes;
+ * a call is matched against the stubs of the strictest mode first, in the order
+ * the modes are declared here.
+ */
+public enum ArgumentMatching {
+
+    /**
+     * Matches only the very same argument instances. Never calls the arguments'
+     * equals or hashCode, which makes it the cheapest mode for arguments that are
+     * expensive to compare and that the test passes on unchanged.
+     */
+    IDENTITY {
+        @Override
+        int hash(Object[] args, Map<Object, Integer> knownHashes) {
+            int hash = 1;
+            for (Object arg : args) {
+                hash = 31 * hash + System.identityHashCode(arg);
+            }
+            return hash;
+        }
+
+        @Override
+        boolean matches(Object[] stubbed, Object[] actual) {
+            if (stubbed.length != actual.length) {
+                return false;
+            }
+            for (int i = 0; i < stubbed.length; i++) {
+                if (stubbed[i] != actual[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    },
+
+    /**
+     * Compares each argument with its own equals and hashCode, one level deep:
+     * array arguments match only the same array instance.
+     */
+    SHALLOW {
+        @Override
+        int hash(Object[] args, Map<Object, Integer> knownHashes) {
+            return Arrays.hashCode(args);
+        }
+
+        @Override
+        boolean matches(Object[] stubbed, Object[] actual) {
+            return Arrays.equals(stubbed, actual);
+        }
+    },
+
+    /**
+     * Matches like {@link #DEEP}, but hashes the stubbed arguments once, when stubbing,
+     * and reuses those hashes whenever a call passes the same instances, so only
+     * arguments the stub has not seen are hashed again. Meant for large or
+     * graph-shaped arguments that are not modified after stubbing.
+     */
+    CACHED_HASH {
+        @Override
+        int hash(Object[] args, Map<Object, Integer> knownHashes) {
+            int hash = 1;
+            for (Object arg : args) {
+                Integer known = arg != null ? knownHashes.get(arg) : null;
+                hash = 31 * hash + (known != null ? known : elementHash(arg));
+            }
+            return hash;
+        }
+
+        @Override
+        boolean matches(Object[] stubbed, Object[] actual) {
+            // Checks for the same instance before calling equals
+            return Arrays.deepEquals(stubbed, actual);
+        }
+    },
+
+    /**
+     * Compares arguments deeply, so arrays match by content. This is the default.
+     */
+    DEEP {
+        @Override
+        int hash(Object[] args, Map<Object, Integer> knownHashes) {
+            return Arrays.deepHashCode(args);
+        }
+
+        @Override
+        boolean matches(Object[] stubbed, Object[] actual) {
+            return Arrays.deepEquals(stubbed, actual);
+        }
+    };
+
+    /**
+     * @param args the arguments of a call or stub
+     * @param knownHashes hashes of argument instances computed earlier, by identity
+     * @return the hash of the arguments, consistent with {@link #matches}
+     */
+    abstract int hash(Object[] args, Map<Object, Integer> knownHashes);
+
+    /**
+     * @param stubbed the arguments of a stub
+     * @param actual the arguments of a call
+     * @return true if the call matches the stub
+     */
+    abstract boolean matches(Object[] stubbed, Object[] actual);
+
+    /**
+     * The hash of a single argument, with arrays hashed by content as in {@link Arrays#deepHashCode}.
+     */
+    static int elementHash(Object arg) {
+        if (arg == null) {
+            return 0;
+        }
+        // Wrapping the rare array argument lets deepHashCode pick the right overload for its type
+        return arg.getClass().isArray() ? Arrays.deepHashCode(new Object[]{arg}) : arg.hashCode();
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.mock.framework;
+
+/**
+ * Hook through which a generated mock reports every call made on it.
+ */
+@FunctionalInterface
+public interface InvocationListener {
+
+    /**
+     * Called before the mock answers a call.
+     *
+     * @param methodName the name of the called method
+     * @param args the arguments of the call; must not be modified
+     */
+    void onInvocation(String methodName, Object[] args);
+}
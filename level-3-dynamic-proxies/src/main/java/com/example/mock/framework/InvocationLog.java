@@ -0,0 +1,355 @@
+package com.example.mock.framework;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The recorded invocations of one mock, in the order they were recorded, each at
+ * a fixed position. Appending is lock-free: a call reserves the next position with
+ * a single atomic increment and stores itself there. The positions live in chunks
+ * that double in size, so a short journal stays small and a long one never copies.
+ *
+ * Queries for the calls of a method, or for the calls with a given argument value,
+ * are answered from indexes of positions. An index is only built by the first query
+ * that needs it; later queries bring it up to date with the calls recorded since,
+ * so a query costs its matches plus the calls recorded since the last query, rather
+ * than a scan of the whole journal. Recording never touches the indexes.
+ */
+final class InvocationLog implements Iterable<MethodInvocation> {
+
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    // Chunk k holds FIRST_CHUNK << k positions; 29 chunks cover every int position
+    private static final int FIRST_CHUNK = 8;
+    private static final int CHUNKS = 29;
+
+    // Takes the place of a removed invocation, so the positions after it stay put
+    private static final Object REMOVED = new Object();
+
+    private final AtomicReferenceArray<Object[]> chunks = new AtomicReferenceArray<>(CHUNKS);
+    private final AtomicInteger reserved = new AtomicInteger();
+
+    // Created by the first query, and only used while holding its lock
+    private Index index;
+
+    /**
+     * Appends an invocation.
+     *
+     * @param invocation the invocation
+     */
+    void append(MethodInvocation invocation) {
+        int position = reserved.getAndIncrement();
+        if (position < 0) {
+            throw new IllegalStateException("Too many recorded invocations");
+        }
+        int chunk = chunkOf(position);
+        SLOTS.setRelease(chunk(chunk), offsetOf(position, chunk), invocation);
+    }
+
+    /**
+     * Removes an invocation; later invocations keep their positions.
+     *
+     * @param invocation the invocation to remove; compared by identity
+     */
+    void remove(MethodInvocation invocation) {
+        // The invocations removed are those just made for stubbing, so search from the end
+        for (int position = reserved.get() - 1; position >= 0; position--) {
+            if (slot(position) == invocation) {
+                int chunk = chunkOf(position);
+                SLOTS.setVolatile(chunks.get(chunk), offsetOf(position, chunk), REMOVED);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Iterates over the invocations recorded so far. A position that is reserved but
+     * not filled yet ends the iteration, so it never skips a call.
+     */
+    @Override
+    public Iterator<MethodInvocation> iterator() {
+        int end = reserved.get();
+        return new Iterator<>() {
+            private int position;
+            private MethodInvocation next = advance();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public MethodInvocation next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                MethodInvocation invocation = next;
+                next = advance();
+                return invocation;
+            }
+
+            private MethodInvocation advance() {
+                while (position < end) {
+                    Object slot = slot(position++);
+                    if (slot == null) {
+                        position = end;
+                    } else if (slot != REMOVED) {
+                        return (MethodInvocation) slot;
+                    }
+                }
+                return null;
+            }
+        };
+    }
+
+    /**
+     * @return the invocations recorded so far
+     */
+    List<MethodInvocation> toList() {
+        List<MethodInvocation> list = new ArrayList<>();
+        forEach(list::add);
+        return list;
+    }
+
+    /**
+     * Finds the invocations of all methods with the given name.
+     *
+     * @param methodName the method name
+     * @return the invocations, in the order they were recorded
+     */
+    List<MethodInvocation> find(String methodName) {
+        List<Positions> found = new ArrayList<>();
+        synchronized (this) {
+            Index current = index();
+            for (Map.Entry<Method, Positions> entry : current.byMethod.entrySet()) {
+                if (entry.getKey().getName().equals(methodName)) {
+                    found.add(entry.getValue());
+                }
+            }
+            return invocationsAt(found, null);
+        }
+    }
+
+    /**
+     * Finds the invocations of the methods with the given name and number of
+     * parameters whose arguments equal the given ones, compared deeply.
+     * Only the calls holding the least common of the arguments are examined.
+     *
+     * @param methodName the method name
+     * @param args the arguments
+     * @return the invocations, in the order they were recorded
+     */
+    List<MethodInvocation> find(String methodName, Object[] args) {
+        List<Positions> found = new ArrayList<>();
+        synchronized (this) {
+            Index current = index();
+            for (Method method : current.byMethod.keySet()) {
+                if (method.getName().equals(methodName) && method.getParameterCount() == args.length) {
+                    found.add(current.narrowest(method, args));
+                }
+            }
+            return invocationsAt(found, args);
+        }
+    }
+
+    private Index index() {
+        if (index == null) {
+            index = new Index();
+        }
+        index.catchUp();
+        return index;
+    }
+
+    private List<MethodInvocation> invocationsAt(List<Positions> found, Object[] args) {
+        Positions positions;
+        if (found.size() == 1) {
+            positions = found.get(0);
+        } else {
+            // Calls of overloads, merged back into the order they were recorded in
+            positions = new Positions();
+            for (Positions each : found) {
+                for (int i = 0; i < each.size; i++) {
+                    positions.add(each.values[i]);
+                }
+            }
+            Arrays.sort(positions.values, 0, positions.size);
+        }
+        List<MethodInvocation> invocations = new ArrayList<>(positions.size);
+        for (int i = 0; i < positions.size; i++) {
+            Object slot = slot(positions.values[i]);
+            if (slot != REMOVED && (args == null || ((MethodInvocation) slot).hasArguments(args))) {
+                invocations.add((MethodInvocation) slot);
+            }
+        }
+        return invocations;
+    }
+
+    /**
+     * @return the first position from start up to end that is reserved but not filled yet, or end
+     */
+    private int published(int start, int end) {
+        for (int position = start; position < end; position++) {
+            if (slot(position) == null) {
+                return position;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * @return the invocation at a position, REMOVED, or null if the position is not filled yet
+     */
+    private Object slot(int position) {
+        int chunk = chunkOf(position);
+        Object[] slots = chunks.get(chunk);
+        return slots != null ? SLOTS.getAcquire(slots, offsetOf(position, chunk)) : null;
+    }
+
+    private Object[] chunk(int chunk) {
+        Object[] slots = chunks.get(chunk);
+        if (slots == null) {
+            chunks.compareAndSet(chunk, null, new Object[FIRST_CHUNK << chunk]);
+            slots = chunks.get(chunk);
+        }
+        return slots;
+    }
+
+    private static int chunkOf(int position) {
+        return 31 - Integer.numberOfLeadingZeros(position / FIRST_CHUNK + 1);
+    }
+
+    private static int offsetOf(int position, int chunk) {
+        return position - FIRST_CHUNK * ((1 << chunk) - 1);
+    }
+
+    /**
+     * The indexes over the log: positions by method, built by the first query, and
+     * positions by argument value, built for each method and argument the first
+     * time a query names them. Each records how far it got, so it only has to look
+     * at what was recorded since.
+     */
+    private final class Index {
+
+        private final Map<Method, Positions> byMethod = new HashMap<>();
+        private final Map<ArgumentSlot, ArgumentIndex> byArgument = new HashMap<>();
+        private int indexedUpTo;
+
+        void catchUp() {
+            int end = published(indexedUpTo, reserved.get());
+            for (int position = indexedUpTo; position < end; position++) {
+                Object slot = slot(position);
+                // Removed calls stay out of the index; positions removed later are skipped when read
+                if (slot != REMOVED) {
+                    byMethod.computeIfAbsent(((MethodInvocation) slot).getMethod(), m -> new Positions()).add(position);
+                }
+            }
+            indexedUpTo = end;
+        }
+
+        /**
+         * @return the positions of the calls of the method with the least common of the arguments
+         */
+        Positions narrowest(Method method, Object[] args) {
+            Positions calls = byMethod.get(method);
+            Positions narrowest = calls;
+            for (int i = 0; i < args.length && narrowest.size > 0; i++) {
+                ArgumentIndex argumentIndex = byArgument.computeIfAbsent(new ArgumentSlot(method, i),
+                        ArgumentIndex::new);
+                Positions matching = argumentIndex.catchUp(calls).get(new ArgumentValue(args[i]));
+                if (matching == null) {
+                    return Positions.NONE;
+                }
+                if (matching.size < narrowest.size) {
+                    narrowest = matching;
+                }
+            }
+            return narrowest;
+        }
+    }
+
+    /**
+     * The positions of the calls of one method by the value of one of their arguments.
+     */
+    private final class ArgumentIndex {
+
+        private final int argument;
+        private final Map<ArgumentValue, Positions> byValue = new HashMap<>();
+
+        // How many of the method's positions have been indexed
+        private int indexedCalls;
+
+        ArgumentIndex(ArgumentSlot slot) {
+            this.argument = slot.argument();
+        }
+
+        Map<ArgumentValue, Positions> catchUp(Positions calls) {
+            for (; indexedCalls < calls.size; indexedCalls++) {
+                int position = calls.values[indexedCalls];
+                Object slot = slot(position);
+                if (slot != REMOVED) {
+                    Object value = ((MethodInvocation) slot).getArgument(argument);
+                    byValue.computeIfAbsent(new ArgumentValue(value), v -> new Positions()).add(position);
+                }
+            }
+            return byValue;
+        }
+    }
+
+    private record ArgumentSlot(Method method, int argument) {
+    }
+
+    /**
+     * An argument as an index key, compared deeply so that arrays match by content.
+     */
+    private static final class ArgumentValue {
+
+        private final Object value;
+        private final int hash;
+
+        ArgumentValue(Object value) {
+            this.value = value;
+            this.hash = ArgumentMatching.elementHash(value);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ArgumentValue
+                    && hash == ((ArgumentValue) o).hash
+                    && Objects.deepEquals(value, ((ArgumentValue) o).value);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * A growing list of positions, in ascending order.
+     */
+    private static final class Positions {
+
+        static final Positions NONE = new Positions();
+
+        int[] values = new int[4];
+        int size;
+
+        void add(int position) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = position;
+        }
+    }
+}
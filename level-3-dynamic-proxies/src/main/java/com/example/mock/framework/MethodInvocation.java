@@ -5,15 +5,45 @@ import java.util.Arrays;
 import java.util.Objects;
 
 /**
- * Stores information about a method invocation including the method and its arguments.
+ * Stores information about a method invocation including the method and its arguments,
+ * and optionally when it was made and by which thread. Two invocations are equal if they
+ * called the same method with equal arguments, whenever and wherever they were made.
  */
 public class MethodInvocation {
     private final Method method;
     private final Object[] arguments;
+    private final long timestampNanos;
+    private final long threadId;
 
+    /**
+     * Creates an invocation made now by the current thread.
+     *
+     * @param method the invoked method
+     * @param arguments the arguments, which are copied
+     */
     public MethodInvocation(Method method, Object[] arguments) {
+        this(method, arguments == null ? null : arguments.clone(), true);
+    }
+
+    private MethodInvocation(Method method, Object[] arguments, boolean timed) {
         this.method = method;
-        this.arguments = arguments != null ? arguments.clone() : new Object[0];
+        this.arguments = arguments == null ? new Object[0] : arguments;
+        // Both cost more than the rest of recording a call, so they are only taken when asked for
+        this.timestampNanos = timed ? System.nanoTime() : 0;
+        this.threadId = timed ? Thread.currentThread().getId() : 0;
+    }
+
+    /**
+     * Creates an invocation that keeps the given arguments array instead of a copy,
+     * so other invocations can share it.
+     *
+     * @param method the invoked method
+     * @param arguments the arguments, which must never be modified
+     * @param timed whether to record when and by which thread the invocation was made
+     * @return the invocation
+     */
+    static MethodInvocation sharing(Method method, Object[] arguments, boolean timed) {
+        return new MethodInvocation(method, arguments, timed);
     }
 
     public Method getMethod() {
@@ -24,10 +54,56 @@ public class MethodInvocation {
         return arguments.clone(); // Return a defensive copy
     }
 
+    /**
+     * @return the number of arguments
+     */
+    public int getArgumentCount() {
+        return arguments.length;
+    }
+
+    /**
+     * Gets one argument without copying the arguments, unlike {@link #getArguments()}.
+     *
+     * @param index the position of the argument
+     * @return the argument
+     */
+    public Object getArgument(int index) {
+        return arguments[index];
+    }
+
+    /**
+     * @param args arguments to compare with
+     * @return true if the arguments of this invocation equal the given ones, compared deeply
+     */
+    boolean hasArguments(Object[] args) {
+        return Arrays.deepEquals(arguments, args);
+    }
+
     public String getMethodName() {
         return method.getName();
     }
 
+    /**
+     * @return true if the time and thread of the invocation were recorded
+     */
+    public boolean isTimed() {
+        return threadId != 0;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} of the invocation, or 0 if it was not recorded
+     */
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    /**
+     * @return the ID of the thread that made the invocation, or 0 if it was not recorded
+     */
+    public long getThreadId() {
+        return threadId;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,27 @@
+package com.example.mock.framework;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for the creation of a mock. Disabled by default; enable
+ * {@code com.example.mock.MockCreation} in a recording to see where mocks are created.
+ */
+@Name("com.example.mock.MockCreation")
+@Label("Mock Creation")
+@Category("Mock Framework")
+@Description("A mock created by a MockProxyFactory")
+@Enabled(false)
+final class MockCreationEvent extends Event {
+
+    @Label("Mocked Type")
+    String mockedType;
+
+    @Label("From Prototype")
+    @Description("True if the mock was derived from a prototype mock")
+    boolean fromPrototype;
+}
@@ -0,0 +1,32 @@
+package com.example.mock.framework;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for a call on a mock, from the start of its dispatch to
+ * the answer. Disabled by default; enable {@code com.example.mock.MockInvocation}
+ * in a recording, with a threshold to see only slow calls. While it is not being
+ * recorded, the JIT removes the event entirely.
+ */
+@Name("com.example.mock.MockInvocation")
+@Label("Mock Invocation")
+@Category("Mock Framework")
+@Description("A call on a mock, answered by a stub or by the default value")
+@Enabled(false)
+final class MockInvocationEvent extends Event {
+
+    @Label("Mocked Type")
+    String mockedType;
+
+    @Label("Method")
+    String method;
+
+    @Label("Stubbed")
+    @Description("True if a stub answered the call, false if it got the default value")
+    boolean stubbed;
+}
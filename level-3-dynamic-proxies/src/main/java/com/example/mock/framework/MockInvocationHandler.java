@@ -4,70 +4,142 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * Handles method invocations for dynamic proxies and provides stubbing capabilities.
+ *
+ * Each method is bound to a dispatcher the first time any mock calls or stubs it.
+ * Methods of Object get a dispatcher that answers them directly; every other
+ * method gets one that knows its precomputed default value. After the first
+ * call, a call is a single map lookup followed by a small, final dispatcher the
+ * JIT can inline, instead of re-examining the method each time.
+ *
+ * The stubs are immutable tables, one per method, held in an immutable map.
+ * Stubbing builds a new table and a new map and publishes them with a single
+ * volatile write, so calls never lock, never contend with stubbing, and always
+ * see either all or none of a stubbing, even while other threads re-stub the mock.
+ * Each stub compares arguments as its {@link ArgumentMatching} mode says; the
+ * stubs of a method are grouped by mode, so a call is hashed once per mode in use.
+ *
+ * Dispatchers are shared by all mocks and the journal is only created by the
+ * first recorded call, so a mock costs a handful of fields. A mock created from
+ * a prototype starts out with the prototype's stub map itself rather than a copy;
+ * its own stubbings replace only its own map, leaving the prototype and its
+ * other derived mocks untouched.
  */
 public class MockInvocationHandler implements InvocationHandler {
     
-    private final List<MethodInvocation> invocations = new CopyOnWriteArrayList<>();
-    private final Map<MethodKey, Object> stubbedResponses = new ConcurrentHashMap<>();
+    // The last call made on any mock by each thread, so when(mock.method(args)) can tell which call to stub.
+    // Each thread reuses one holder, which every call overwrites and taking it clears.
+    private static final ThreadLocal<CapturedInvocation> LAST_INVOCATION =
+            ThreadLocal.withInitial(CapturedInvocation::new);
+    
+    private static final Object[] NO_ARGS = new Object[0];
+    
+    // Dispatchers of the methods of each interface, shared by all mocks; a ClassValue lets unloaded interfaces go
+    private static final ClassValue<Map<Method, Dispatcher>> DISPATCHERS = new ClassValue<>() {
+        @Override
+        protected Map<Method, Dispatcher> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+    
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<MockInvocationHandler, Map> STUB_TABLES =
+            AtomicReferenceFieldUpdater.newUpdater(MockInvocationHandler.class, Map.class, "stubTables");
+    
+    private static final AtomicReferenceFieldUpdater<MockInvocationHandler, InvocationLog> INVOCATIONS =
+            AtomicReferenceFieldUpdater.newUpdater(MockInvocationHandler.class, InvocationLog.class, "invocations");
+    
+    // The factory that created the mock, or null
+    private final MockProxyFactory owner;
+    
+    // Replaced as a whole by every stubbing, with compare-and-set so concurrent stubbings are not lost
+    private volatile Map<StubbedMethod, StubTable> stubTables;
+    
+    // Created by the first recorded call; appending is lock-free and constant-time
+    private volatile InvocationLog invocations;
+    
+    /**
+     * Creates a handler without stubs.
+     */
+    public MockInvocationHandler() {
+        this(null, Map.of());
+    }
+    
+    /**
+     * Creates a handler for a mock of the given factory.
+     *
+     * @param owner the factory creating the mock
+     */
+    MockInvocationHandler(MockProxyFactory owner) {
+        this(owner, Map.of());
+    }
+    
+    /**
+     * Creates a handler that starts out with the stubs a prototype has now.
+     *
+     * @param owner the factory creating the mock
+     * @param prototype the handler of the prototype mock
+     */
+    MockInvocationHandler(MockProxyFactory owner, MockInvocationHandler prototype) {
+        this(owner, prototype.stubTables);
+    }
+    
+    private MockInvocationHandler(MockProxyFactory owner, Map<StubbedMethod, StubTable> stubTables) {
+        this.owner = owner;
+        this.stubTables = stubTables;
+    }
     
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        // Handle Object methods specially
-        if (method.getDeclaringClass() == Object.class) {
-            return handleObjectMethod(proxy, method, args);
-        }
-        
-        // Ensure args is never null for consistent handling
-        if (args == null) {
-            args = new Object[0];
-        }
-        
-        // Record the invocation
-        MethodInvocation invocation = new MethodInvocation(method, args);
-        invocations.add(invocation);
-        
-        // Return stubbed response if available
-        MethodKey key = new MethodKey(method, args);
-        if (stubbedResponses.containsKey(key)) {
-            return stubbedResponses.get(key);
-        }
-        
-        // Check for a no-args stub that might match
-        MethodKey noArgsKey = new MethodKey(method, new Object[0]);
-        if (stubbedResponses.containsKey(noArgsKey)) {
-            return stubbedResponses.get(noArgsKey);
+        return dispatcherFor(method).dispatch(this, proxy, args);
+    }
+    
+    /**
+     * @param factory a mock factory
+     * @return true if the factory created the mock of this handler
+     */
+    boolean isOwnedBy(MockProxyFactory factory) {
+        return owner == factory;
+    }
+    
+    private static Dispatcher dispatcherFor(Method method) {
+        Map<Method, Dispatcher> dispatchers = DISPATCHERS.get(method.getDeclaringClass());
+        Dispatcher dispatcher = dispatchers.get(method);
+        if (dispatcher == null) {
+            dispatcher = dispatchers.computeIfAbsent(method, MockInvocationHandler::bind);
         }
-        
-        // Return default values based on return type
-        Class<?> returnType = method.getReturnType();
-        if (returnType.equals(Void.TYPE)) {
-            return null;
-        } else if (returnType.isPrimitive()) {
-            return getPrimitiveDefaultValue(returnType);
-        } else {
-            return null;
+        return dispatcher;
+    }
+    
+    private void record(MethodInvocation invocation) {
+        InvocationLog journal = invocations;
+        if (journal == null) {
+            INVOCATIONS.compareAndSet(this, null, new InvocationLog());
+            journal = invocations;
         }
+        journal.append(invocation);
     }
     
-    private Object handleObjectMethod(Object proxy, Method method, Object[] args) {
-        String methodName = method.getName();
-        
-        if ("equals".equals(methodName)) {
-            return proxy == args[0];
-        } else if ("hashCode".equals(methodName)) {
-            return System.identityHashCode(proxy);
-        } else if ("toString".equals(methodName)) {
-            return "Mock@" + Integer.toHexString(System.identityHashCode(proxy));
+    private static Dispatcher bind(Method method) {
+        if (method.getDeclaringClass() != Object.class) {
+            return new StubbedMethod(method);
+        }
+        switch (method.getName()) {
+            case "equals":
+                return ObjectMethod.EQUALS;
+            case "hashCode":
+                return ObjectMethod.HASH_CODE;
+            case "toString":
+                return ObjectMethod.TO_STRING;
+            default:
+                return ObjectMethod.OTHER;
         }
-        
-        return null;
     }
     
-    private Object getPrimitiveDefaultValue(Class<?> primitiveType) {
+    private static Object getPrimitiveDefaultValue(Class<?> primitiveType) {
         if (primitiveType == boolean.class) return false;
         if (primitiveType == char.class) return '\u0000';
         if (primitiveType == byte.class) return (byte) 0;
@@ -81,92 +153,366 @@ public class MockInvocationHandler implements InvocationHandler {
     
     /**
      * Stubs a method to return a specified value
-     * 
+     *
      * @param method The method to stub
      * @param args The arguments to match against
      * @param returnValue The value to return when the method is called
      */
     public void when(Method method, Object[] args, Object returnValue) {
+        when(method, args, ArgumentMatching.DEEP, returnValue);
+    }
+    
+    /**
+     * Stubs a method to return a specified value, comparing arguments as the given mode does
+     *
+     * @param method The method to stub
+     * @param args The arguments to match against
+     * @param matching How calls are compared with the arguments
+     * @param returnValue The value to return when the method is called
+     */
+    public void when(Method method, Object[] args, ArgumentMatching matching, Object returnValue) {
         if (method == null) {
             throw new IllegalArgumentException("Method cannot be null");
         }
+        if (matching == null) {
+            throw new IllegalArgumentException("Argument matching cannot be null");
+        }
         
-        if (args == null) {
-            args = new Object[0]; // Ensure we never store null args
+        Dispatcher dispatcher = dispatcherFor(method);
+        if (!(dispatcher instanceof StubbedMethod)) {
+            throw new IllegalArgumentException("Methods of Object can not be stubbed: " + method.getName());
         }
         
         // Create a defensive copy of the args to prevent modification after stubbing
-        Object[] argsCopy = Arrays.copyOf(args, args.length);
+        Object[] argsCopy = args != null ? Arrays.copyOf(args, args.length) : NO_ARGS;
         
-        stubbedResponses.put(new MethodKey(method, argsCopy), returnValue);
+        StubbedMethod stubbed = (StubbedMethod) dispatcher;
+        while (true) {
+            Map<StubbedMethod, StubTable> current = stubTables;
+            Map<StubbedMethod, StubTable> tables = new HashMap<>(current);
+            tables.put(stubbed, tables.getOrDefault(stubbed, StubTable.EMPTY).with(argsCopy, matching, returnValue));
+            if (STUB_TABLES.compareAndSet(this, current, Map.copyOf(tables))) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Takes the last call the current thread made on any mock, so it can be stubbed.
+     * The thread's holder is cleared, so it no longer keeps the call's handler and arguments.
+     *
+     * @return a copy of the last call, or null if the thread made none since the last time this was called
+     */
+    static CapturedInvocation takeLastInvocation() {
+        CapturedInvocation last = LAST_INVOCATION.get();
+        if (last.handler == null) {
+            return null;
+        }
+        CapturedInvocation taken = new CapturedInvocation();
+        taken.capture(last.handler, last.invocation, last.arguments);
+        last.clear();
+        return taken;
+    }
+    
+    /**
+     * Forgets the last call the current thread made on any mock, so it is not taken for one to stub.
+     */
+    static void clearLastInvocation() {
+        LAST_INVOCATION.get().clear();
+    }
+    
+    /**
+     * Removes a recorded invocation, such as a call that was only made to stub the method.
+     *
+     * @param invocation the invocation to remove; compared by identity
+     */
+    void forget(MethodInvocation invocation) {
+        InvocationLog journal = invocations;
+        if (journal != null) {
+            journal.remove(invocation);
+        }
+    }
+    
+    /**
+     * The recorded invocations in the order they were recorded, without copying the journal.
+     * Iterating sees calls recorded in the meantime or not, but never fails because of them.
+     */
+    Iterable<MethodInvocation> recordedInvocations() {
+        InvocationLog journal = invocations;
+        return journal != null ? journal : List.of();
     }
     
     /**
      * Gets all recorded method invocations
      */
     public List<MethodInvocation> getInvocations() {
-        return new ArrayList<>(invocations);
+        InvocationLog journal = invocations;
+        return journal != null ? journal.toList() : new ArrayList<>();
     }
     
     /**
-     * Gets invocations for a specific method
-     * 
+     * Gets invocations for a specific method. Answered from an index of the
+     * journal, built by the first query and kept up to date by later ones.
+     *
      * @param methodName The name of the method to filter by
      * @return List of invocations for the specified method
      */
     public List<MethodInvocation> getInvocationsForMethod(String methodName) {
-        return invocations.stream()
-                .filter(inv -> inv.getMethodName().equals(methodName))
-                .toList();
+        InvocationLog journal = invocations;
+        return journal != null ? journal.find(methodName) : List.of();
     }
     
     /**
-     * Class that serves as a key for the stubbed responses map
+     * Gets the invocations of a method with specific arguments, compared deeply.
+     * Overloads with the same number of parameters all count. Answered from
+     * indexes of the journal by method and argument value, built for the
+     * arguments queried and kept up to date by later queries, so the cost
+     * depends on the number of matching calls rather than the size of the journal.
+     *
+     * @param methodName The name of the method to filter by
+     * @param args The arguments the invocations must have
+     * @return List of matching invocations, in the order they were made
      */
-    private static class MethodKey {
-        private final Method method;
-        private final Object[] args;
+    public List<MethodInvocation> getInvocationsForMethod(String methodName, Object[] args) {
+        InvocationLog journal = invocations;
+        return journal != null ? journal.find(methodName, args != null ? args : NO_ARGS) : List.of();
+    }
+    
+    /**
+     * A call on a mock, remembered together with the handler of the mock. The mock
+     * itself is not kept, so a capture never holds on to more than the call needs.
+     */
+    static final class CapturedInvocation {
+        MockInvocationHandler handler;
+        MethodInvocation invocation;
+        // The caller's own arguments; the recorded ones may be equal instances shared with earlier calls
+        Object[] arguments;
+        
+        void capture(MockInvocationHandler handler, MethodInvocation invocation, Object[] arguments) {
+            this.handler = handler;
+            this.invocation = invocation;
+            this.arguments = arguments;
+        }
         
-        public MethodKey(Method method, Object[] args) {
-            if (method == null) {
-                throw new IllegalArgumentException("Method cannot be null");
+        void clear() {
+            capture(null, null, null);
+        }
+    }
+    
+    /**
+     * Answers the calls of one method, bound once per method.
+     */
+    private interface Dispatcher {
+        Object dispatch(MockInvocationHandler handler, Object proxy, Object[] args);
+    }
+    
+    /**
+     * Methods of Object, which are answered by the mock itself and never recorded or stubbed.
+     */
+    private enum ObjectMethod implements Dispatcher {
+        EQUALS {
+            @Override
+            public Object dispatch(MockInvocationHandler handler, Object proxy, Object[] args) {
+                return proxy == args[0];
+            }
+        },
+        HASH_CODE {
+            @Override
+            public Object dispatch(MockInvocationHandler handler, Object proxy, Object[] args) {
+                return System.identityHashCode(proxy);
+            }
+        },
+        TO_STRING {
+            @Override
+            public Object dispatch(MockInvocationHandler handler, Object proxy, Object[] args) {
+                return "Mock@" + Integer.toHexString(System.identityHashCode(proxy));
+            }
+        },
+        OTHER {
+            @Override
+            public Object dispatch(MockInvocationHandler handler, Object proxy, Object[] args) {
+                return null;
             }
+        }
+    }
+    
+    /**
+     * A mocked interface method: records each call, then answers it from the stubs
+     * for its exact arguments, the stub without arguments, or the default value.
+     */
+    private static final class StubbedMethod implements Dispatcher {
+        
+        private final Method method;
+        private final Object defaultValue;
+        
+        StubbedMethod(Method method) {
             this.method = method;
-            this.args = args != null ? args.clone() : new Object[0];
+            Class<?> returnType = method.getReturnType();
+            this.defaultValue = returnType.isPrimitive() && returnType != Void.TYPE
+                    ? getPrimitiveDefaultValue(returnType)
+                    : null;
         }
         
         @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-            
-            MethodKey methodKey = (MethodKey) o;
+        public Object dispatch(MockInvocationHandler handler, Object proxy, Object[] args) {
+            // Costs nothing unless a recording enables it, as the JIT then drops the event
+            MockInvocationEvent event = new MockInvocationEvent();
+            event.begin();
             
-            if (!Objects.equals(method, methodKey.method)) return false;
+            // Ensure args is never null for consistent handling
+            if (args == null) {
+                args = NO_ARGS;
+            }
             
-            // Compare arg length
-            if (args.length != methodKey.args.length) return false;
+            ArgumentInterner interner = handler.owner != null ? handler.owner.argumentInterner : null;
+            MethodInvocation invocation = MethodInvocation.sharing(method,
+                    interner != null ? interner.intern(args) : args.clone(),
+                    handler.owner != null && handler.owner.recordsTimesAndThreads);
+            handler.record(invocation);
+            LAST_INVOCATION.get().capture(handler, invocation, args);
             
-            // Compare each argument for equality
-            for (int i = 0; i < args.length; i++) {
-                if (!Objects.deepEquals(args[i], methodKey.args[i])) {
-                    return false;
+            StubTable table = handler.stubTables.get(this);
+            Object stub = table != null ? table.lookup(args) : null;
+            if (event.shouldCommit()) {
+                event.mockedType = method.getDeclaringClass().getName();
+                event.method = method.getName();
+                event.stubbed = stub != null;
+                event.commit();
+            }
+            // A stubbed null answers with the default, which is null unless the method returns a primitive
+            return stub == null || stub == StubTable.NULL ? defaultValue : stub;
+        }
+    }
+    
+    /**
+     * The stubs of one method. Immutable: stubbing another call creates a new table.
+     */
+    private static final class StubTable {
+        
+        static final StubTable EMPTY = new StubTable(new ArgumentStubs[0], null);
+        
+        // Marks a stubbed null, since the tables can not hold null values
+        static final Object NULL = new Object();
+        
+        // The stubs with arguments, one group per matching mode in use, strictest mode first
+        private final ArgumentStubs[] byArguments;
+        
+        // The stub without arguments, which also answers calls no other stub matches
+        private final Object anyArguments;
+        
+        private StubTable(ArgumentStubs[] byArguments, Object anyArguments) {
+            this.byArguments = byArguments;
+            this.anyArguments = anyArguments;
+        }
+        
+        StubTable with(Object[] args, ArgumentMatching matching, Object returnValue) {
+            Object value = returnValue != null ? returnValue : NULL;
+            if (args.length == 0) {
+                return new StubTable(byArguments, value);
+            }
+            for (int i = 0; i < byArguments.length; i++) {
+                if (byArguments[i].matching == matching) {
+                    ArgumentStubs[] groups = byArguments.clone();
+                    groups[i] = groups[i].with(args, value);
+                    return new StubTable(groups, anyArguments);
+                }
+            }
+            ArgumentStubs[] groups = Arrays.copyOf(byArguments, byArguments.length + 1);
+            groups[byArguments.length] = ArgumentStubs.EMPTY.get(matching).with(args, value);
+            Arrays.sort(groups, Comparator.comparing(group -> group.matching));
+            return new StubTable(groups, anyArguments);
+        }
+        
+        Object lookup(Object[] args) {
+            if (args.length > 0) {
+                for (ArgumentStubs group : byArguments) {
+                    Object stub = group.lookup(args);
+                    if (stub != null) {
+                        return stub;
+                    }
+                }
+            }
+            return anyArguments;
+        }
+    }
+    
+    /**
+     * The stubs of one method that share a matching mode. Immutable, like the table holding them.
+     */
+    private static final class ArgumentStubs {
+        
+        static final Map<ArgumentMatching, ArgumentStubs> EMPTY = new EnumMap<>(ArgumentMatching.class);
+        
+        static {
+            for (ArgumentMatching matching : ArgumentMatching.values()) {
+                EMPTY.put(matching, new ArgumentStubs(matching, Map.of(), Map.of()));
+            }
+        }
+        
+        final ArgumentMatching matching;
+        private final Map<Arguments, Object> stubs;
+        
+        // Hashes of the stubbed argument instances by identity; only kept for CACHED_HASH
+        private final Map<Object, Integer> knownHashes;
+        
+        private ArgumentStubs(ArgumentMatching matching, Map<Arguments, Object> stubs, Map<Object, Integer> knownHashes) {
+            this.matching = matching;
+            this.stubs = stubs;
+            this.knownHashes = knownHashes;
+        }
+        
+        ArgumentStubs with(Object[] args, Object value) {
+            Map<Object, Integer> hashes = knownHashes;
+            if (matching == ArgumentMatching.CACHED_HASH) {
+                hashes = new IdentityHashMap<>(knownHashes);
+                for (Object arg : args) {
+                    if (arg != null) {
+                        hashes.putIfAbsent(arg, ArgumentMatching.elementHash(arg));
+                    }
                 }
             }
+            Map<Arguments, Object> copy = new HashMap<>(stubs);
+            copy.put(new Arguments(args, matching, matching.hash(args, hashes)), value);
+            return new ArgumentStubs(matching, Map.copyOf(copy), hashes);
+        }
+        
+        Object lookup(Object[] args) {
+            return stubs.get(new Arguments(args, matching, matching.hash(args, knownHashes)));
+        }
+    }
+    
+    /**
+     * Key of a stub; compares arguments the way its matching mode does.
+     */
+    private static final class Arguments {
+    
+        private final Object[] values;
+        private final ArgumentMatching matching;
+        private final int hash;
+        
+        Arguments(Object[] values, ArgumentMatching matching, int hash) {
+            this.values = values;
+            this.matching = matching;
+            this.hash = hash;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
             
-            return true;
+            Arguments other = (Arguments) o;
+            return hash == other.hash && matching == other.matching && matching.matches(values, other.values);
         }
         
         @Override
         public int hashCode() {
-            int result = method != null ? method.hashCode() : 0;
-            result = 31 * result + Arrays.deepHashCode(args);
-            return result;
+            return hash;
         }
         
         @Override
         public String toString() {
-            return method.getName() + Arrays.deepToString(args);
+            return Arrays.deepToString(values);
         }
     }
-} 
\ No newline at end of file
+}
@@ -1,16 +1,59 @@
 package com.example.mock.framework;
 
+import com.example.mock.journal.JournalWriter;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Factory for creating mock objects using Java's Dynamic Proxy API.
+ * The factory keeps no record of its mocks; it finds a mock's handler through
+ * the proxy itself, so mocks are garbage collected as soon as a test drops them.
  */
 public class MockProxyFactory {
     
-    private final Map<Object, MockInvocationHandler> mockHandlers = new HashMap<>();
+    // Shared by the journals of all mocks of this factory, or null to copy every call's arguments
+    final ArgumentInterner argumentInterner;
+    
+    // Whether calls are recorded with their time and thread, for journals and timing checks
+    final boolean recordsTimesAndThreads;
+    
+    /**
+     * Creates a factory whose mocks record a copy of the arguments of every call.
+     */
+    public MockProxyFactory() {
+        this(null, false);
+    }
+    
+    /**
+     * Creates a factory whose mocks record calls with equal arguments in one shared
+     * array, as far as the interner's table holds them. For long runs that call the
+     * mocks over and over with the same few arguments.
+     * 
+     * @param argumentInterner the table of recorded arguments, shared by all mocks
+     *                         of this factory; null records a copy for every call
+     */
+    public MockProxyFactory(ArgumentInterner argumentInterner) {
+        this(argumentInterner, false);
+    }
+    
+    /**
+     * Creates a factory whose mocks can also record when and by which thread each call
+     * was made. Taking the time and thread roughly doubles the cost of a mocked call,
+     * so only ask for it when the invocations are exported to a journal or their order
+     * across threads matters; otherwise {@link MethodInvocation#getTimestampNanos()} and
+     * {@link MethodInvocation#getThreadId()} are 0.
+     * 
+     * @param argumentInterner the table of recorded arguments, shared by all mocks
+     *                         of this factory; null records a copy for every call
+     * @param recordTimesAndThreads whether to record the time and thread of every call
+     */
+    public MockProxyFactory(ArgumentInterner argumentInterner, boolean recordTimesAndThreads) {
+        this.argumentInterner = argumentInterner;
+        this.recordsTimesAndThreads = recordTimesAndThreads;
+    }
     
     /**
      * Creates a mock for the specified interface.
@@ -27,15 +70,51 @@ public class MockProxyFactory {
                     interfaceClass.getName() + " is not an interface");
         }
         
+        MockCreationEvent event = new MockCreationEvent();
+        event.begin();
+        
         ClassLoader classLoader = interfaceClass.getClassLoader();
-        MockInvocationHandler handler = new MockInvocationHandler();
+        MockInvocationHandler handler = new MockInvocationHandler(this);
         
         T mockObject = (T) Proxy.newProxyInstance(
                 classLoader,
                 new Class<?>[]{interfaceClass},
                 handler);
+        commit(event, interfaceClass, false);
         
-        mockHandlers.put(mockObject, handler);
+        // A call left over from earlier use of other mocks must not be mistaken for one to stub
+        MockInvocationHandler.clearLastInvocation();
+        return mockObject;
+    }
+    
+    /**
+     * Creates a mock that starts out with the stubs of a prototype mock.
+     * The stubs are shared, not copied, which makes this the cheap way to create
+     * many mocks with the same stubbing: configure one prototype, then derive the
+     * others from it. Stubbing the new mock only affects the new mock, and later
+     * stubbing of the prototype does not affect mocks already derived from it.
+     * Recorded invocations are never shared.
+     * 
+     * @param prototype A mock created by this factory
+     * @param <T> The interface type
+     * @return A new mock of the same interface as the prototype
+     * @throws IllegalArgumentException if the prototype is not a mock of this factory
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T createMockFrom(T prototype) {
+        MockCreationEvent event = new MockCreationEvent();
+        event.begin();
+        
+        MockInvocationHandler prototypeHandler = getHandlerFor(prototype);
+        Class<?> proxyClass = prototype.getClass();
+        
+        T mockObject = (T) Proxy.newProxyInstance(
+                proxyClass.getClassLoader(),
+                proxyClass.getInterfaces(),
+                new MockInvocationHandler(this, prototypeHandler));
+        commit(event, proxyClass.getInterfaces()[0], true);
+        
+        MockInvocationHandler.clearLastInvocation();
         return mockObject;
     }
     
@@ -109,6 +188,64 @@ public class MockProxyFactory {
         }
     }
     
+    /**
+     * Starts stubbing the method call passed as argument, as in
+     * {@code factory.when(mock.findByEmail("test@example.com")).thenReturn(user)}.
+     * The call on the mock is made first and recorded per thread; this method
+     * picks it up, so the stubbed method is the exact overload that was called
+     * and no method has to be looked up by name. The call made for stubbing is
+     * removed from the mock's recorded invocations.
+     * 
+     * @param methodCall a call on a mock created by this factory; its result is ignored
+     * @param <T> The return type of the method
+     * @return the stubbing to complete with the value to return
+     * @throws IllegalStateException if no method of a mock was called before
+     * @throws IllegalArgumentException if the call was made on a mock of another factory
+     */
+    public <T> OngoingStubbing<T> when(T methodCall) {
+        return when(methodCall, ArgumentMatching.DEEP);
+    }
+    
+    /**
+     * Starts stubbing the method call passed as argument, like {@link #when(Object)},
+     * with the arguments of later calls compared as the given mode does, as in
+     * {@code factory.when(mock.save(user), ArgumentMatching.IDENTITY).thenReturn(user)}.
+     * 
+     * @param methodCall a call on a mock created by this factory; its result is ignored
+     * @param matching how the arguments of later calls are compared with those of this call
+     * @param <T> The return type of the method
+     * @return the stubbing to complete with the value to return
+     * @throws IllegalStateException if no method of a mock was called before
+     * @throws IllegalArgumentException if the call was made on a mock of another factory, or matching is null
+     */
+    public <T> OngoingStubbing<T> when(T methodCall, ArgumentMatching matching) {
+        if (matching == null) {
+            throw new IllegalArgumentException("Argument matching cannot be null");
+        }
+        MockInvocationHandler.CapturedInvocation captured = MockInvocationHandler.takeLastInvocation();
+        if (captured == null) {
+            throw new IllegalStateException("when() requires a method call on a mock, as in when(mock.method(args))");
+        }
+        if (!captured.handler.isOwnedBy(this)) {
+            throw new IllegalArgumentException("Not a mock object of this factory: the last call was made on a mock "
+                    + "of another factory");
+        }
+        
+        captured.handler.forget(captured.invocation);
+        // Stub the instances the caller passed, which IDENTITY matching compares against
+        Method method = captured.invocation.getMethod();
+        Object[] arguments = captured.arguments.clone();
+        return value -> captured.handler.when(method, arguments, matching, value);
+    }
+    
+    private static void commit(MockCreationEvent event, Class<?> mockedType, boolean fromPrototype) {
+        if (event.shouldCommit()) {
+            event.mockedType = mockedType.getName();
+            event.fromPrototype = fromPrototype;
+            event.commit();
+        }
+    }
+    
     private Method findMethodByName(Method[] methods, String methodName) {
         for (Method method : methods) {
             if (method.getName().equals(methodName)) {
@@ -135,10 +272,13 @@ public class MockProxyFactory {
      * @throws IllegalArgumentException if the object is not a mock
      */
     private MockInvocationHandler getHandlerFor(Object mockObject) {
-        if (!mockHandlers.containsKey(mockObject)) {
-            throw new IllegalArgumentException("Not a mock object: " + mockObject);
+        if (mockObject != null && Proxy.isProxyClass(mockObject.getClass())) {
+            InvocationHandler handler = Proxy.getInvocationHandler(mockObject);
+            if (handler instanceof MockInvocationHandler && ((MockInvocationHandler) handler).isOwnedBy(this)) {
+                return (MockInvocationHandler) handler;
+            }
         }
-        return mockHandlers.get(mockObject);
+        throw new IllegalArgumentException("Not a mock object: " + mockObject);
     }
     
     /**
@@ -154,6 +294,48 @@ public class MockProxyFactory {
         return handler.getInvocationsForMethod(methodName).size() == times;
     }
     
+    /**
+     * Verifies that a method on a mock was called with specific arguments a specified number of times.
+     * The calls are found through indexes of the mock's recorded invocations, so
+     * verifying stays cheap however many calls the mock recorded.
+     * 
+     * @param mockObject The mock object
+     * @param methodName The method name to verify
+     * @param args The arguments the calls must have, compared deeply
+     * @param times The expected number of calls
+     * @return true if the method was called with the arguments exactly the specified number of times
+     */
+    public boolean verify(Object mockObject, String methodName, Object[] args, int times) {
+        return getInvocations(mockObject, methodName, args).size() == times;
+    }
+    
+    /**
+     * Gets the invocations of a method on a mock with specific arguments, which
+     * tell when and by which thread each matching call was made.
+     * 
+     * @param mockObject The mock object
+     * @param methodName The method name
+     * @param args The arguments the calls must have, compared deeply
+     * @return List of matching invocations, in the order they were made
+     */
+    public java.util.List<MethodInvocation> getInvocations(Object mockObject, String methodName, Object[] args) {
+        return getHandlerFor(mockObject).getInvocationsForMethod(methodName, args);
+    }
+    
+    /**
+     * Appends all invocations of a mock to a journal file, in the order they were
+     * recorded. The invocations are read straight from the mock, without copying
+     * them first, so calls made meanwhile may or may not be included. Their times
+     * and threads are only known if this factory was created to record them.
+     * 
+     * @param mockObject The mock object
+     * @param journal The journal to write to; invocations of several mocks can share one
+     * @throws IOException if writing the journal fails
+     */
+    public void exportInvocations(Object mockObject, JournalWriter journal) throws IOException {
+        journal.writeAll(getHandlerFor(mockObject).recordedInvocations());
+    }
+    
     /**
      * Gets all invocations for a mock object.
      * 
@@ -0,0 +1,187 @@
+package com.example.mock.framework;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Stubs and call journal of one method of a mock generated at compile time.
+ * Generated mocks have one public field of this type per method, so a method
+ * is stubbed and verified through its field and no method has to be looked up
+ * by name or through reflection.
+ *
+ * A stub for specific arguments takes precedence over a stub for any arguments.
+ * Arguments are compared with {@link java.util.Objects#deepEquals(Object, Object)},
+ * as they are for dynamic proxy mocks.
+ *
+ * @param <R> the return type of the method, boxed; Void for void methods
+ */
+public final class MockedMethod<R> {
+
+    /** The arguments of every call to a method without parameters. */
+    public static final Object[] NO_ARGS = new Object[0];
+
+    // Marks a stub returning null, since the stub map can not hold null values
+    private static final Object NULL = new Object();
+
+    private final String name;
+    private final Map<Arguments, Object> stubs = new ConcurrentHashMap<>();
+    private final Queue<Object[]> calls = new ConcurrentLinkedQueue<>();
+    private volatile Object anyArgsStub;
+
+    /**
+     * @param name the name of the method
+     */
+    public MockedMethod(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Stubs the method to return a value whatever its arguments.
+     *
+     * @param value the value to return
+     */
+    public void thenReturn(R value) {
+        anyArgsStub = value != null ? value : NULL;
+    }
+
+    /**
+     * Starts stubbing the method for specific arguments.
+     *
+     * @param args the arguments to match
+     * @return the stubbing to complete with the value to return
+     */
+    public Stubbing<R> whenCalledWith(Object... args) {
+        Arguments key = new Arguments(args != null ? args.clone() : NO_ARGS);
+        return value -> stubs.put(key, value != null ? value : NULL);
+    }
+
+    /**
+     * Records a call and answers it. Called by the generated mock.
+     *
+     * @param args the arguments of the call
+     * @param defaultValue the value to return if the call is not stubbed
+     * @return the stubbed value, or the default value
+     */
+    @SuppressWarnings("unchecked")
+    public R invoke(Object[] args, R defaultValue) {
+        calls.add(args);
+        Object stub = stubs.isEmpty() ? null : stubs.get(new Arguments(args));
+        if (stub == null) {
+            stub = anyArgsStub;
+        }
+        if (stub == null) {
+            return defaultValue;
+        }
+        // A stubbed null of a primitive method still answers with the primitive default
+        return stub == NULL ? defaultValue : (R) stub;
+    }
+
+    /**
+     * @return the name of the method
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the number of recorded calls
+     */
+    public int getCallCount() {
+        return calls.size();
+    }
+
+    /**
+     * @return copies of the arguments of every recorded call, in order
+     */
+    public List<Object[]> getCalls() {
+        List<Object[]> copies = new ArrayList<>();
+        for (Object[] args : calls) {
+            copies.add(args.clone());
+        }
+        return copies;
+    }
+
+    /**
+     * Verifies that the method was called a specified number of times.
+     *
+     * @param times the expected number of calls
+     * @return true if the method was called exactly that often
+     */
+    public boolean verify(int times) {
+        return calls.size() == times;
+    }
+
+    /**
+     * Verifies that the method was called with specific arguments a specified number of times.
+     *
+     * @param args the arguments to match
+     * @param times the expected number of calls with those arguments
+     * @return true if the method was called with those arguments exactly that often
+     */
+    public boolean verify(Object[] args, int times) {
+        Arguments expected = new Arguments(args != null ? args : NO_ARGS);
+        int count = 0;
+        for (Object[] call : calls) {
+            if (expected.equals(new Arguments(call))) {
+                count++;
+            }
+        }
+        return count == times;
+    }
+
+    /**
+     * Removes all stubs and recorded calls.
+     */
+    public void reset() {
+        stubs.clear();
+        anyArgsStub = null;
+        calls.clear();
+    }
+
+    @Override
+    public String toString() {
+        return name + ": " + calls.size() + " calls";
+    }
+
+    /**
+     * The second half of stubbing a method for specific arguments.
+     *
+     * @param <R> the return type of the method
+     */
+    @FunctionalInterface
+    public interface Stubbing<R> {
+
+        /**
+         * @param value the value to return for the arguments
+         */
+        void thenReturn(R value);
+    }
+
+    /**
+     * Key of a stub; compares the arguments deeply, so arrays match by content.
+     */
+    private static final class Arguments {
+        private final Object[] values;
+
+        Arguments(Object[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Arguments)) return false;
+            return Arrays.deepEquals(values, ((Arguments) o).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.deepHashCode(values);
+        }
+    }
+}
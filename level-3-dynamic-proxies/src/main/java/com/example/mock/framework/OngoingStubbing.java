@@ -0,0 +1,17 @@
+package com.example.mock.framework;
+
+/**
+ * A method call being stubbed, as returned by {@link MockProxyFactory#when(Object)}.
+ * 
+ * @param <T> The return type of the stubbed method
+ */
+@FunctionalInterface
+public interface OngoingStubbing<T> {
+    
+    /**
+     * Makes the stubbed call return a value whenever it is made with the same arguments.
+     * 
+     * @param value The value to return
+     */
+    void thenReturn(T value);
+}
@@ -0,0 +1,55 @@
+package com.example.mock.journal;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Turns invocation arguments into bytes for a journal file and back.
+ * The writer stores each argument with the first of its encoders that can encode
+ * it; the file records the encoders by name, so a reader decodes an argument with
+ * the encoder of the same name. Arguments without a matching encoder on the reader
+ * side can still be skipped, since every encoding is stored with its length.
+ */
+public interface ArgumentEncoder {
+
+    /**
+     * @return the name identifying the encoding in journal files
+     */
+    String name();
+
+    /**
+     * @param value a non-null argument
+     * @return true if this encoder can encode the argument
+     */
+    boolean canEncode(Object value);
+
+    /**
+     * Writes an argument accepted by {@link #canEncode}.
+     *
+     * @param value the argument
+     * @param out where to write its encoding
+     * @throws IOException if writing fails
+     */
+    void encode(Object value, DataOutput out) throws IOException;
+
+    /**
+     * Reads an argument back.
+     *
+     * @param in exactly the bytes written by {@link #encode}, from position 0
+     * @return the argument, or a stand-in for it
+     */
+    Object decode(ByteBuffer in);
+
+    /**
+     * The standard encoders: strings, integers, longs and booleans are stored
+     * compactly and decoded to the same values; any other argument is stored
+     * as its toString and decoded to that string.
+     *
+     * @return the standard encoders, in the order the writer tries them
+     */
+    static List<ArgumentEncoder> defaults() {
+        return List.of(StandardEncoder.values());
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.mock.journal;
+
+import java.nio.ByteBuffer;
+
+/**
+ * An invocation read from a journal file. The arguments stay encoded until
+ * {@link #getArguments()} is called, so entries that are only counted or filtered
+ * by method, time or thread never pay for decoding them.
+ */
+public final class JournalEntry {
+
+    private final JournalMethod method;
+    private final long timestampNanos;
+    private final long threadId;
+    private final int argumentCount;
+    private final byte[] encodedArguments;
+    private final JournalReader.Decoders decoders;
+
+    JournalEntry(JournalMethod method, long timestampNanos, long threadId, int argumentCount,
+            byte[] encodedArguments, JournalReader.Decoders decoders) {
+        this.method = method;
+        this.timestampNanos = timestampNanos;
+        this.threadId = threadId;
+        this.argumentCount = argumentCount;
+        this.encodedArguments = encodedArguments;
+        this.decoders = decoders;
+    }
+
+    public JournalMethod getMethod() {
+        return method;
+    }
+
+    public String getMethodName() {
+        return method.name();
+    }
+
+    /**
+     * @return when the invocation was made, in nanoseconds since the epoch
+     */
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    /**
+     * @return the ID of the thread that made the invocation
+     */
+    public long getThreadId() {
+        return threadId;
+    }
+
+    public int getArgumentCount() {
+        return argumentCount;
+    }
+
+    /**
+     * Decodes the arguments.
+     *
+     * @return the arguments, as returned by the decoders of the reader
+     * @throws IllegalStateException if the reader has no decoder for the encoding of an argument
+     */
+    public Object[] getArguments() {
+        Object[] arguments = new Object[argumentCount];
+        ByteBuffer in = ByteBuffer.wrap(encodedArguments);
+        for (int i = 0; i < argumentCount; i++) {
+            int encoding = JournalFormat.readVarInt(in);
+            if (encoding == JournalFormat.NULL_ARGUMENT) {
+                continue;
+            }
+            int length = JournalFormat.readVarInt(in);
+            ByteBuffer encoded = in.slice(in.position(), length);
+            in.position(in.position() + length);
+            arguments[i] = decoders.decode(encoding - 1, encoded);
+        }
+        return arguments;
+    }
+
+    @Override
+    public String toString() {
+        return method.name() + "@" + timestampNanos + "[thread " + threadId + "]";
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.mock.journal;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Layout of a journal file and the variable-length encodings it is built from.
+ *
+ * A file starts with the magic bytes, the format version and the names of the
+ * argument encoders the writer used. Records follow, each a tag byte, the length
+ * of its body as a varint and the body, so a reader can skip any record whole:
+ * <ul>
+ *   <li>METHOD defines the next method ID: the declaring type, the method name
+ *       and the parameter type names. A method is defined just before its first
+ *       invocation, so the dictionary grows while the file is written.</li>
+ *   <li>INVOCATION holds the method ID, the timestamp as the zigzag-encoded
+ *       difference to the previous one, the thread ID and the arguments, each an
+ *       encoder index (0 for null) and the length and bytes of its encoding.</li>
+ * </ul>
+ * Varints store 7 bits per byte, low bits first, so small numbers take one byte.
+ */
+final class JournalFormat {
+
+    static final byte[] MAGIC = {'M', 'O', 'C', 'K', 'J', 'R', 'N', 'L'};
+    static final int VERSION = 1;
+
+    static final byte METHOD = 1;
+    static final byte INVOCATION = 2;
+
+    // The encoder index of a null argument; encoder i is stored as i + 1
+    static final int NULL_ARGUMENT = 0;
+
+    private JournalFormat() {
+    }
+
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static void putVarLong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint in journal");
+    }
+
+    static int readVarInt(ByteBuffer in) {
+        long value = readVarLong(in);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Malformed length in journal: " + value);
+        }
+        return (int) value;
+    }
+
+    static String readString(ByteBuffer in) {
+        int length = readVarInt(in);
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.mock.journal;
+
+import java.util.List;
+
+/**
+ * A method as stored in a journal file: by name only, so a journal can be read
+ * without the classes of the run that wrote it.
+ *
+ * @param declaringType the name of the interface declaring the method
+ * @param name the name of the method
+ * @param parameterTypes the names of the parameter types
+ */
+public record JournalMethod(String declaringType, String name, List<String> parameterTypes) {
+
+    @Override
+    public String toString() {
+        return declaringType + "." + name + "(" + String.join(", ", parameterTypes) + ")";
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.mock.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads a journal file written by {@link JournalWriter} one invocation at a time.
+ * Only one buffer's worth of the file is held in memory, so files of any size can
+ * be filtered and aggregated, for example with
+ * {@code reader.stream().filter(e -> e.getMethodName().equals("save")).count()}.
+ *
+ * A reader is not thread-safe.
+ */
+public class JournalReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // The tag and the longest varint length of a record
+    private static final int RECORD_HEADER_SIZE = 6;
+
+    private final FileChannel channel;
+    private final List<JournalMethod> methods = new ArrayList<>();
+    private Decoders decoders;
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).limit(0);
+    private boolean endOfFile;
+    private long lastTimestamp;
+
+    private JournalReader(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Opens a journal file, decoding arguments with the standard encoders.
+     *
+     * @param file the file to read
+     * @return the reader, positioned before the first invocation
+     * @throws IOException if the file can not be read or is not a journal
+     */
+    public static JournalReader open(Path file) throws IOException {
+        return open(file, ArgumentEncoder.defaults());
+    }
+
+    /**
+     * Opens a journal file.
+     *
+     * @param file the file to read
+     * @param encoders the encoders to decode arguments with, found by the names
+     *                 stored in the file; arguments of other encodings can not be decoded
+     * @return the reader, positioned before the first invocation
+     * @throws IOException if the file can not be read or is not a journal
+     */
+    public static JournalReader open(Path file, List<ArgumentEncoder> encoders) throws IOException {
+        if (file == null || encoders == null) {
+            throw new IllegalArgumentException("File and encoders cannot be null");
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        JournalReader reader = new JournalReader(channel);
+        try {
+            reader.readHeader(encoders);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return reader;
+    }
+
+    /**
+     * Reads the next invocation.
+     *
+     * @return the invocation, or null at the end of the file
+     * @throws IOException if reading fails or the file is corrupt
+     */
+    public JournalEntry next() throws IOException {
+        while (true) {
+            fill(RECORD_HEADER_SIZE);
+            if (!buffer.hasRemaining()) {
+                return null;
+            }
+            byte tag = buffer.get();
+            int length = JournalFormat.readVarInt(buffer);
+            fill(length);
+            if (buffer.remaining() < length) {
+                throw new IOException("Truncated journal: record of " + length + " bytes ends early");
+            }
+            ByteBuffer body = buffer.slice(buffer.position(), length);
+            buffer.position(buffer.position() + length);
+
+            switch (tag) {
+                case JournalFormat.METHOD:
+                    readMethod(body);
+                    break;
+                case JournalFormat.INVOCATION:
+                    return readInvocation(body);
+                default:
+                    // A record of a later version of the format; its length lets it be skipped
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Streams the remaining invocations. Reading failures are thrown as
+     * {@link UncheckedIOException}; closing the stream does not close the reader.
+     *
+     * @return the remaining invocations, in the order they were written
+     */
+    public Stream<JournalEntry> stream() {
+        Spliterator<JournalEntry> entries = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super JournalEntry> action) {
+                JournalEntry entry;
+                try {
+                    entry = next();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (entry == null) {
+                    return false;
+                }
+                action.accept(entry);
+                return true;
+            }
+        };
+        return StreamSupport.stream(entries, false);
+    }
+
+    /**
+     * @return the methods defined in the part of the file read so far, by method ID
+     */
+    public List<JournalMethod> getMethods() {
+        return Collections.unmodifiableList(methods);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void readHeader(List<ArgumentEncoder> encoders) throws IOException {
+        fill(JournalFormat.MAGIC.length + 10);
+        byte[] magic = new byte[JournalFormat.MAGIC.length];
+        if (buffer.remaining() < magic.length) {
+            throw new IOException("Not a mock journal: file too short");
+        }
+        buffer.get(magic);
+        if (!Arrays.equals(magic, JournalFormat.MAGIC)) {
+            throw new IOException("Not a mock journal: wrong magic bytes");
+        }
+        int version = JournalFormat.readVarInt(buffer);
+        if (version != JournalFormat.VERSION) {
+            throw new IOException("Unsupported journal version: " + version);
+        }
+        int encoderCount = JournalFormat.readVarInt(buffer);
+        String[] names = new String[encoderCount];
+        ArgumentEncoder[] byIndex = new ArgumentEncoder[encoderCount];
+        for (int i = 0; i < encoderCount; i++) {
+            fill(BUFFER_SIZE);
+            names[i] = JournalFormat.readString(buffer);
+            for (ArgumentEncoder encoder : encoders) {
+                if (encoder.name().equals(names[i])) {
+                    byIndex[i] = encoder;
+                    break;
+                }
+            }
+        }
+        decoders = new Decoders(names, byIndex);
+    }
+
+    private void readMethod(ByteBuffer body) throws IOException {
+        int id = JournalFormat.readVarInt(body);
+        if (id != methods.size()) {
+            throw new IOException("Corrupt journal: method " + id + " defined out of order");
+        }
+        String declaringType = JournalFormat.readString(body);
+        String name = JournalFormat.readString(body);
+        int parameterCount = JournalFormat.readVarInt(body);
+        List<String> parameterTypes = new ArrayList<>(parameterCount);
+        for (int i = 0; i < parameterCount; i++) {
+            parameterTypes.add(JournalFormat.readString(body));
+        }
+        methods.add(new JournalMethod(declaringType, name, List.copyOf(parameterTypes)));
+    }
+
+    private JournalEntry readInvocation(ByteBuffer body) throws IOException {
+        int methodId = JournalFormat.readVarInt(body);
+        if (methodId >= methods.size()) {
+            throw new IOException("Corrupt journal: invocation of undefined method " + methodId);
+        }
+        long timestamp = lastTimestamp + JournalFormat.unzigzag(JournalFormat.readVarLong(body));
+        lastTimestamp = timestamp;
+        long threadId = JournalFormat.readVarLong(body);
+        int argumentCount = JournalFormat.readVarInt(body);
+        // Copied, as the buffer is reused for the records that follow
+        byte[] encodedArguments = new byte[body.remaining()];
+        body.get(encodedArguments);
+        return new JournalEntry(methods.get(methodId), timestamp, threadId, argumentCount, encodedArguments, decoders);
+    }
+
+    /**
+     * Makes the buffer hold at least the given number of unread bytes, or all that
+     * are left in the file, growing it for records larger than the buffer.
+     */
+    private void fill(int needed) throws IOException {
+        if (buffer.remaining() >= needed || endOfFile) {
+            return;
+        }
+        if (needed > buffer.capacity()) {
+            ByteBuffer larger = ByteBuffer.allocate(needed);
+            larger.put(buffer);
+            buffer = larger;
+        } else {
+            buffer.compact();
+        }
+        while (buffer.position() < needed) {
+            if (channel.read(buffer) < 0) {
+                endOfFile = true;
+                break;
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * The encoders of the arguments in a file, by the index the writer gave them.
+     */
+    static final class Decoders {
+
+        private final String[] names;
+        private final ArgumentEncoder[] encoders;
+
+        Decoders(String[] names, ArgumentEncoder[] encoders) {
+            this.names = names;
+            this.encoders = encoders;
+        }
+
+        Object decode(int index, ByteBuffer encoded) {
+            if (index < 0 || index >= encoders.length) {
+                throw new IllegalStateException("Corrupt journal: unknown argument encoding " + index);
+            }
+            if (encoders[index] == null) {
+                throw new IllegalStateException("No decoder for argument encoding " + names[index]);
+            }
+            return encoders[index].decode(encoded);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.mock.journal;
+
+import com.example.mock.framework.MethodInvocation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes recorded invocations to a compact binary journal file, for runs that
+ * record far more calls than can be inspected as strings. Each method is written
+ * once, and each invocation after that as a method ID, a timestamp, a thread ID
+ * and its arguments encoded by the first {@link ArgumentEncoder} that accepts them.
+ * Invocations are collected in a direct buffer and written to the file channel
+ * whenever it fills up, so memory use does not grow with the number of calls.
+ * Timestamps are stored as nanoseconds since the epoch. Invocations recorded
+ * without their time and thread, see {@link com.example.mock.framework.MockProxyFactory},
+ * are stored with a timestamp and thread ID of 0.
+ *
+ * A writer is not thread-safe. See {@link JournalReader} for reading the file back.
+ */
+public class JournalWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final List<ArgumentEncoder> encoders;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final Map<Method, Integer> methodIds = new HashMap<>();
+
+    // The body of the record being written, and the encoding of the argument being written
+    private final Scratch record = new Scratch();
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+    private final Scratch argument = new Scratch();
+    private final DataOutputStream argumentOut = new DataOutputStream(argument);
+
+    // Turns System.nanoTime() into nanoseconds since the epoch, to the precision of currentTimeMillis()
+    private final long epochOffsetNanos;
+    private long lastTimestamp;
+    private long count;
+
+    private JournalWriter(FileChannel channel, List<ArgumentEncoder> encoders) {
+        this.channel = channel;
+        this.encoders = encoders;
+        this.epochOffsetNanos = System.currentTimeMillis() * 1_000_000L - System.nanoTime();
+    }
+
+    /**
+     * Creates or replaces a journal file, encoding arguments with the standard encoders.
+     *
+     * @param file the file to write
+     * @return the writer, which must be closed to complete the file
+     * @throws IOException if the file can not be created
+     */
+    public static JournalWriter open(Path file) throws IOException {
+        return open(file, ArgumentEncoder.defaults());
+    }
+
+    /**
+     * Creates or replaces a journal file.
+     *
+     * @param file the file to write
+     * @param encoders the encoders to try on each argument, in order; every
+     *                 non-null argument must be accepted by one of them
+     * @return the writer, which must be closed to complete the file
+     * @throws IOException if the file can not be created
+     */
+    public static JournalWriter open(Path file, List<ArgumentEncoder> encoders) throws IOException {
+        if (file == null || encoders == null) {
+            throw new IllegalArgumentException("File and encoders cannot be null");
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        JournalWriter writer = new JournalWriter(channel, List.copyOf(encoders));
+        try {
+            writer.writeHeader();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return writer;
+    }
+
+    /**
+     * Appends an invocation to the journal.
+     *
+     * @param invocation the invocation
+     * @throws IOException if writing fails
+     * @throws IllegalArgumentException if no encoder accepts one of the arguments
+     */
+    public void write(MethodInvocation invocation) throws IOException {
+        int methodId = methodId(invocation.getMethod());
+
+        // An invocation recorded without its time keeps a timestamp of 0
+        long timestamp = invocation.isTimed() ? invocation.getTimestampNanos() + epochOffsetNanos : 0;
+        try {
+            JournalFormat.writeVarLong(recordOut, methodId);
+            JournalFormat.writeVarLong(recordOut, JournalFormat.zigzag(timestamp - lastTimestamp));
+            JournalFormat.writeVarLong(recordOut, invocation.getThreadId());
+
+            int argumentCount = invocation.getArgumentCount();
+            JournalFormat.writeVarLong(recordOut, argumentCount);
+            for (int i = 0; i < argumentCount; i++) {
+                writeArgument(invocation.getArgument(i));
+            }
+            writeRecord(JournalFormat.INVOCATION);
+        } finally {
+            // Drops whatever a failed invocation left behind, so it does not spill into the next record
+            record.reset();
+            argument.reset();
+        }
+        lastTimestamp = timestamp;
+        count++;
+    }
+
+    /**
+     * Appends invocations to the journal, in iteration order.
+     *
+     * @param invocations the invocations
+     * @throws IOException if writing fails
+     */
+    public void writeAll(Iterable<MethodInvocation> invocations) throws IOException {
+        for (MethodInvocation invocation : invocations) {
+            write(invocation);
+        }
+    }
+
+    /**
+     * @return the number of invocations written so far
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Writes what is still buffered and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        buffer.put(JournalFormat.MAGIC);
+        JournalFormat.writeVarLong(recordOut, JournalFormat.VERSION);
+        JournalFormat.writeVarLong(recordOut, encoders.size());
+        for (ArgumentEncoder encoder : encoders) {
+            JournalFormat.writeString(recordOut, encoder.name());
+        }
+        buffer.put(record.bytes(), 0, record.size());
+        record.reset();
+    }
+
+    private int methodId(Method method) throws IOException {
+        Integer id = methodIds.get(method);
+        if (id != null) {
+            return id;
+        }
+        // Defined right before its first invocation, so a reader knows every method it meets
+        int newId = methodIds.size();
+        JournalFormat.writeVarLong(recordOut, newId);
+        JournalFormat.writeString(recordOut, method.getDeclaringClass().getName());
+        JournalFormat.writeString(recordOut, method.getName());
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        JournalFormat.writeVarLong(recordOut, parameterTypes.length);
+        for (Class<?> parameterType : parameterTypes) {
+            JournalFormat.writeString(recordOut, parameterType.getName());
+        }
+        writeRecord(JournalFormat.METHOD);
+        methodIds.put(method, newId);
+        return newId;
+    }
+
+    private void writeArgument(Object arg) throws IOException {
+        if (arg == null) {
+            JournalFormat.writeVarLong(recordOut, JournalFormat.NULL_ARGUMENT);
+            return;
+        }
+        for (int i = 0; i < encoders.size(); i++) {
+            ArgumentEncoder encoder = encoders.get(i);
+            if (encoder.canEncode(arg)) {
+                encoder.encode(arg, argumentOut);
+                JournalFormat.writeVarLong(recordOut, i + 1);
+                JournalFormat.writeVarLong(recordOut, argument.size());
+                recordOut.write(argument.bytes(), 0, argument.size());
+                argument.reset();
+                return;
+            }
+        }
+        throw new IllegalArgumentException("No encoder for argument of type " + arg.getClass().getName());
+    }
+
+    private void writeRecord(byte tag) throws IOException {
+        int length = record.size();
+        // Room for the tag and the longest varint length
+        if (buffer.remaining() < 6) {
+            flush();
+        }
+        buffer.put(tag);
+        JournalFormat.putVarLong(buffer, length);
+        if (length > buffer.remaining()) {
+            flush();
+        }
+        if (length > buffer.remaining()) {
+            // Larger than the whole buffer; hand it to the channel as it is
+            writeFully(ByteBuffer.wrap(record.bytes(), 0, length));
+        } else {
+            buffer.put(record.bytes(), 0, length);
+        }
+        record.reset();
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    /**
+     * A reusable byte array stream that exposes its contents without copying them.
+     */
+    private static final class Scratch extends ByteArrayOutputStream {
+
+        byte[] bytes() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.mock.journal;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The encoders of {@link ArgumentEncoder#defaults()}, stored in files under their constant names.
+ */
+enum StandardEncoder implements ArgumentEncoder {
+
+    STRING {
+        @Override
+        public boolean canEncode(Object value) {
+            return value instanceof String;
+        }
+
+        @Override
+        public void encode(Object value, DataOutput out) throws IOException {
+            // The length is already stored with every encoding
+            out.write(((String) value).getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public Object decode(ByteBuffer in) {
+            return utf8(in);
+        }
+    },
+
+    INTEGER {
+        @Override
+        public boolean canEncode(Object value) {
+            return value instanceof Integer;
+        }
+
+        @Override
+        public void encode(Object value, DataOutput out) throws IOException {
+            JournalFormat.writeVarLong(out, JournalFormat.zigzag((Integer) value));
+        }
+
+        @Override
+        public Object decode(ByteBuffer in) {
+            return (int) JournalFormat.unzigzag(JournalFormat.readVarLong(in));
+        }
+    },
+
+    LONG {
+        @Override
+        public boolean canEncode(Object value) {
+            return value instanceof Long;
+        }
+
+        @Override
+        public void encode(Object value, DataOutput out) throws IOException {
+            JournalFormat.writeVarLong(out, JournalFormat.zigzag((Long) value));
+        }
+
+        @Override
+        public Object decode(ByteBuffer in) {
+            return JournalFormat.unzigzag(JournalFormat.readVarLong(in));
+        }
+    },
+
+    BOOLEAN {
+        @Override
+        public boolean canEncode(Object value) {
+            return value instanceof Boolean;
+        }
+
+        @Override
+        public void encode(Object value, DataOutput out) throws IOException {
+            out.writeBoolean((Boolean) value);
+        }
+
+        @Override
+        public Object decode(ByteBuffer in) {
+            return in.get() != 0;
+        }
+    },
+
+    TO_STRING {
+        @Override
+        public boolean canEncode(Object value) {
+            return true;
+        }
+
+        @Override
+        public void encode(Object value, DataOutput out) throws IOException {
+            out.write(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public Object decode(ByteBuffer in) {
+            return utf8(in);
+        }
+    };
+
+    private static String utf8(ByteBuffer in) {
+        return new String(in.array(), in.arrayOffset() + in.position(), in.remaining(), StandardCharsets.UTF_8);
+    }
+}
@@ -1,10 +1,13 @@
 package com.example.mock.repository;
 
+import com.example.mock.annotation.GenerateMock;
 import com.example.mock.model.User;
 
 /**
  * User repository interface for testing the mocking framework.
+ * Besides dynamic proxies, it gets a compile-time generated UserRepositoryMock.
  */
+@GenerateMock
 public interface UserRepository {
     User findByEmail(String email);
     void save(User user);
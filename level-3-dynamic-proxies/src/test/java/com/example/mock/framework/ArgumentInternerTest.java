@@ -0,0 +1,110 @@
+package com.example.mock.framework;
+
+import com.example.mock.model.User;
+import com.example.mock.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for recording calls with interned arguments.
+ */
+class ArgumentInternerTest {
+
+    private ArgumentInterner interner;
+    private MockProxyFactory mockFactory;
+    private UserRepository mockRepo;
+
+    @BeforeEach
+    void setUp() {
+        interner = new ArgumentInterner(16);
+        mockFactory = new MockProxyFactory(interner, true);
+        mockRepo = mockFactory.createMock(UserRepository.class);
+    }
+
+    @Test
+    void shouldShareEqualArgumentsBetweenCalls() {
+        // Given - equal emails, but separate instances
+        String first = new String("test@example.com");
+        String second = new String("test@example.com");
+
+        // When
+        mockRepo.findByEmail(first);
+        mockRepo.findByEmail(second);
+        mockRepo.exists(42L);
+
+        // Then - both calls are recorded, in order, with the first instance
+        List<MethodInvocation> invocations = mockFactory.getInvocations(mockRepo);
+        assertThat(invocations).extracting(MethodInvocation::getMethodName)
+                .containsExactly("findByEmail", "findByEmail", "exists");
+        assertThat(invocations.get(0).getArguments()[0]).isSameAs(first);
+        assertThat(invocations.get(1).getArguments()[0]).isSameAs(first);
+        assertThat(invocations.get(1).getTimestampNanos()).isGreaterThanOrEqualTo(invocations.get(0).getTimestampNanos());
+        assertThat(interner.getHitCount()).isEqualTo(1);
+        assertThat(interner.getMissCount()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldShareArgumentsAcrossMocksOfTheFactory() {
+        UserRepository otherRepo = mockFactory.createMock(UserRepository.class);
+        String email = "test@example.com";
+
+        mockRepo.findByEmail(email);
+        otherRepo.findByEmail(new String(email));
+
+        assertThat(mockFactory.getInvocations(otherRepo).get(0).getArguments()[0]).isSameAs(email);
+    }
+
+    @Test
+    void shouldStillMatchStubsAndVerifyCalls() {
+        User user = new User(1L, "test@example.com", "Test User");
+        mockFactory.when(mockRepo.findByEmail("test@example.com")).thenReturn(user);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(mockRepo.findByEmail("test@example.com")).isSameAs(user);
+        }
+
+        assertThat(mockFactory.verify(mockRepo, "findByEmail", 5)).isTrue();
+    }
+
+    @Test
+    void shouldStubTheInstancesPassedWhenMatchingByIdentity() {
+        // Given - an earlier call leaves an equal email in the interner
+        User user = new User(1L, "test@example.com", "Test User");
+        String first = new String("test@example.com");
+        String second = new String("test@example.com");
+        mockRepo.findByEmail(first);
+
+        // When
+        mockFactory.when(mockRepo.findByEmail(second), ArgumentMatching.IDENTITY).thenReturn(user);
+
+        // Then - the stub is for the instance passed, not the equal one recorded earlier
+        assertThat(mockRepo.findByEmail(second)).isSameAs(user);
+        assertThat(mockRepo.findByEmail(first)).isNull();
+        assertThat(mockFactory.getInvocations(mockRepo).get(1).getArguments()[0]).isSameAs(first);
+    }
+
+    @Test
+    void shouldStayBoundedWhenArgumentsKeepChanging() {
+        // When
+        for (long id = 0; id < 1_000; id++) {
+            mockRepo.exists(id);
+        }
+
+        // Then - every call is recorded with its own arguments, though few could be shared
+        List<MethodInvocation> invocations = mockFactory.getInvocations(mockRepo);
+        assertThat(invocations).hasSize(1_000);
+        assertThat(invocations.get(999).getArguments()).containsExactly(999L);
+        assertThat(interner.getCapacity()).isEqualTo(16);
+        assertThat(interner.getMissCount()).isEqualTo(1_000);
+    }
+
+    @Test
+    void shouldRejectInvalidCapacity() {
+        assertThatThrownBy(() -> new ArgumentInterner(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
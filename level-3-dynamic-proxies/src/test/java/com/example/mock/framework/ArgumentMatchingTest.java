@@ -0,0 +1,128 @@
+package com.example.mock.framework;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for the argument matching modes of stubs.
+ */
+class ArgumentMatchingTest {
+
+    interface Catalog {
+        String describe(Item item);
+
+        String describeAll(int[] ids);
+    }
+
+    /**
+     * An argument that counts how often its equals and hashCode are called.
+     */
+    static final class Item {
+        private final String name;
+        int equalsCalls;
+        int hashCodeCalls;
+
+        Item(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            equalsCalls++;
+            return o instanceof Item && Objects.equals(name, ((Item) o).name);
+        }
+
+        @Override
+        public int hashCode() {
+            hashCodeCalls++;
+            return Objects.hashCode(name);
+        }
+    }
+
+    private MockProxyFactory mockFactory;
+    private Catalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        mockFactory = new MockProxyFactory();
+        catalog = mockFactory.createMock(Catalog.class);
+    }
+
+    @Test
+    void shouldMatchEqualArgumentsByDefault() {
+        mockFactory.when(catalog.describe(new Item("book"))).thenReturn("a book");
+        mockFactory.when(catalog.describeAll(new int[]{1, 2})).thenReturn("two items");
+
+        assertThat(catalog.describe(new Item("book"))).isEqualTo("a book");
+        assertThat(catalog.describeAll(new int[]{1, 2})).isEqualTo("two items");
+    }
+
+    @Test
+    void shouldMatchOnlyTheSameInstanceWithoutCallingEqualsOrHashCode() {
+        // Given
+        Item book = new Item("book");
+        mockFactory.when(catalog.describe(book), ArgumentMatching.IDENTITY).thenReturn("a book");
+        Item equalBook = new Item("book");
+
+        // When
+        String same = catalog.describe(book);
+        String equal = catalog.describe(equalBook);
+
+        // Then
+        assertThat(same).isEqualTo("a book");
+        assertThat(equal).isNull();
+        assertThat(book.equalsCalls + book.hashCodeCalls).isZero();
+        assertThat(equalBook.equalsCalls + equalBook.hashCodeCalls).isZero();
+    }
+
+    @Test
+    void shouldCompareArraysByReferenceWhenShallow() {
+        int[] ids = {1, 2};
+        mockFactory.when(catalog.describeAll(ids), ArgumentMatching.SHALLOW).thenReturn("two items");
+
+        assertThat(catalog.describeAll(ids)).isEqualTo("two items");
+        assertThat(catalog.describeAll(new int[]{1, 2})).isNull();
+    }
+
+    @Test
+    void shouldReuseTheStubbedHashForTheSameInstance() {
+        // Given
+        Item book = new Item("book");
+        mockFactory.when(catalog.describe(book), ArgumentMatching.CACHED_HASH).thenReturn("a book");
+        int hashCodeCallsWhenStubbing = book.hashCodeCalls;
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            assertThat(catalog.describe(book)).isEqualTo("a book");
+        }
+
+        // Then - the same instance is neither hashed nor compared again
+        assertThat(book.hashCodeCalls).isEqualTo(hashCodeCallsWhenStubbing);
+        assertThat(book.equalsCalls).isZero();
+        assertThat(catalog.describe(new Item("book"))).isEqualTo("a book");
+        assertThat(catalog.describe(new Item("pen"))).isNull();
+    }
+
+    @Test
+    void shouldTryTheStricterModeFirst() {
+        // Given
+        Item book = new Item("book");
+        mockFactory.when(catalog.describe(new Item("book"))).thenReturn("any book");
+        mockFactory.when(catalog.describe(book), ArgumentMatching.IDENTITY).thenReturn("this book");
+
+        // Then
+        assertThat(catalog.describe(book)).isEqualTo("this book");
+        assertThat(catalog.describe(new Item("book"))).isEqualTo("any book");
+    }
+
+    @Test
+    void shouldRejectMissingMatchingMode() {
+        assertThatThrownBy(() -> mockFactory.when(catalog.describe(null), null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.mock.framework;
+
+import com.example.mock.model.User;
+import com.example.mock.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for stubbing a mock while other threads are calling it.
+ */
+class ConcurrentStubbingTest {
+
+    private MockProxyFactory mockFactory;
+    private UserRepository mockRepo;
+
+    @BeforeEach
+    void setUp() {
+        mockFactory = new MockProxyFactory();
+        mockRepo = mockFactory.createMock(UserRepository.class);
+    }
+
+    @Test
+    void shouldKeepEveryStubWhenStubbingConcurrently() throws Exception {
+        // Given
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> writers = new ArrayList<>();
+
+        // When - 8 threads each stub 100 different arguments at once
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            writers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 100; i++) {
+                    String email = thread + "-" + i + "@example.com";
+                    mockFactory.when(mockRepo, "findByEmail", new Object[]{email},
+                            new User((long) (thread * 100 + i), email, "User"));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> writer : writers) {
+            writer.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Then - no stub was lost to a concurrent copy
+        for (int t = 0; t < 8; t++) {
+            for (int i = 0; i < 100; i++) {
+                assertThat(mockRepo.findByEmail(t + "-" + i + "@example.com").getId()).isEqualTo(t * 100L + i);
+            }
+        }
+    }
+
+    @Test
+    void shouldNeverShowReadersAnOlderStubThanTheyHaveSeen() throws Exception {
+        // Given
+        mockFactory.when(mockRepo, "count", 0);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicBoolean wentBack = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> readers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            readers.add(executor.submit(() -> {
+                int last = 0;
+                while (!done.get()) {
+                    int current = mockRepo.count();
+                    if (current < last) {
+                        wentBack.set(true);
+                    }
+                    last = current;
+                }
+            }));
+        }
+
+        // When - re-stub the method while the readers keep calling it
+        for (int i = 1; i <= 2_000; i++) {
+            mockFactory.when(mockRepo, "count", i);
+        }
+        done.set(true);
+        for (Future<?> reader : readers) {
+            reader.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Then
+        assertThat(wentBack).isFalse();
+        assertThat(mockRepo.count()).isEqualTo(2_000);
+    }
+}
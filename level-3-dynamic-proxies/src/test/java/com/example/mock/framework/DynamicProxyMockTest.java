@@ -105,6 +105,99 @@ class DynamicProxyMockTest {
         assertThat(invocations.get(1).getMethodName()).isEqualTo("findByEmail");
     }
     
+    @Test
+    void shouldStubTheCapturedCall() {
+        // Given
+        mockFactory.when(mockRepo.findByEmail("test@example.com")).thenReturn(testUser);
+        mockFactory.when(mockRepo.findByEmail("other@example.com")).thenReturn(otherUser);
+        mockFactory.when(mockRepo.exists(1L)).thenReturn(true);
+        
+        // When/Then
+        assertThat(mockRepo.findByEmail("test@example.com")).isSameAs(testUser);
+        assertThat(mockRepo.findByEmail("other@example.com")).isSameAs(otherUser);
+        assertThat(mockRepo.findByEmail("unknown@example.com")).isNull();
+        assertThat(mockRepo.exists(1L)).isTrue();
+        assertThat(mockRepo.exists(2L)).isFalse();
+    }
+    
+    @Test
+    void shouldNotRecordCallsMadeForStubbing() {
+        // Given
+        mockRepo.findByEmail("test@example.com");
+        mockFactory.when(mockRepo.findByEmail("test@example.com")).thenReturn(testUser);
+        
+        // Then - only the call made before stubbing remains
+        assertThat(mockFactory.getInvocations(mockRepo)).hasSize(1);
+        assertThat(mockFactory.verify(mockRepo, "findByEmail", 1)).isTrue();
+    }
+    
+    @Test
+    void shouldStubTheExactOverloadCalled() {
+        // Given
+        Lookup lookup = mockFactory.createMock(Lookup.class);
+        mockFactory.when(lookup.find("1")).thenReturn("by name");
+        mockFactory.when(lookup.find(1L)).thenReturn("by id");
+        
+        // When/Then
+        assertThat(lookup.find("1")).isEqualTo("by name");
+        assertThat(lookup.find(1L)).isEqualTo("by id");
+    }
+    
+    @Test
+    void shouldRejectStubbingWithoutACallOnAMock() {
+        assertThatThrownBy(() -> mockFactory.when("not a mock call"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("requires a method call on a mock");
+    }
+    
+    @Test
+    void shouldForgetTheLastCallOnceItIsStubbed() {
+        // Given
+        mockFactory.when(mockRepo.count()).thenReturn(3);
+        
+        // When/Then
+        assertThat(MockInvocationHandler.takeLastInvocation()).isNull();
+        assertThatThrownBy(() -> mockFactory.when(3))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("requires a method call on a mock");
+    }
+    
+    @Test
+    void shouldRejectStubbingMocksOfAnotherFactory() {
+        UserRepository foreignMock = new MockProxyFactory().createMock(UserRepository.class);
+        
+        assertThatThrownBy(() -> mockFactory.when(foreignMock.count()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Not a mock object");
+    }
+    
+    @Test
+    void shouldAnswerObjectMethodsWithoutRecordingThem() {
+        // When
+        boolean equalsItself = mockRepo.equals(mockRepo);
+        int hashCode = mockRepo.hashCode();
+        String description = mockRepo.toString();
+        
+        // Then
+        assertThat(equalsItself).isTrue();
+        assertThat(hashCode).isEqualTo(System.identityHashCode(mockRepo));
+        assertThat(description).startsWith("Mock@");
+        assertThat(mockFactory.getInvocations(mockRepo)).isEmpty();
+    }
+    
+    @Test
+    void shouldStubNullReturnValues() {
+        // Given
+        mockFactory.when(mockRepo, "findByEmail", testUser);
+        mockFactory.when(mockRepo.findByEmail("gone@example.com")).thenReturn(null);
+        mockFactory.when(mockRepo.exists(1L)).thenReturn(null);
+        
+        // When/Then
+        assertThat(mockRepo.findByEmail("gone@example.com")).isNull();
+        assertThat(mockRepo.findByEmail("test@example.com")).isSameAs(testUser);
+        assertThat(mockRepo.exists(1L)).isFalse();
+    }
+    
     @Test
     void shouldReturnPrimitiveDefaults() {
         // When/Then
@@ -127,4 +220,9 @@ class DynamicProxyMockTest {
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessageContaining("Not a mock object");
     }
-} 
\ No newline at end of file
+    
+    interface Lookup {
+        String find(String name);
+        String find(Long id);
+    }
+}
\ No newline at end of file
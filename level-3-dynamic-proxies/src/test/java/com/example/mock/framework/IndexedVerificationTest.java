@@ -0,0 +1,218 @@
+package com.example.mock.framework;
+
+import com.example.mock.model.User;
+import com.example.mock.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for finding and verifying calls by their arguments.
+ */
+class IndexedVerificationTest {
+
+    interface Lookup {
+        String find(String key);
+
+        String find(Long id);
+
+        String find(String key, int version);
+    }
+
+    private MockProxyFactory mockFactory;
+    private UserRepository mockRepo;
+
+    @BeforeEach
+    void setUp() {
+        mockFactory = new MockProxyFactory();
+        mockRepo = mockFactory.createMock(UserRepository.class);
+    }
+
+    @Test
+    void shouldVerifyCallsWithSpecificArguments() {
+        // When
+        mockRepo.exists(42L);
+        mockRepo.exists(7L);
+        mockRepo.exists(42L);
+        mockRepo.findByEmail("test@example.com");
+
+        // Then
+        assertThat(mockFactory.verify(mockRepo, "exists", new Object[]{42L}, 2)).isTrue();
+        assertThat(mockFactory.verify(mockRepo, "exists", new Object[]{7L}, 1)).isTrue();
+        assertThat(mockFactory.verify(mockRepo, "exists", new Object[]{8L}, 0)).isTrue();
+        assertThat(mockFactory.verify(mockRepo, "findByEmail", new Object[]{"test@example.com"}, 1)).isTrue();
+        assertThat(mockFactory.verify(mockRepo, "count", new Object[0], 0)).isTrue();
+    }
+
+    @Test
+    void shouldTellWhenMatchingCallsWereMade() {
+        MockProxyFactory timedFactory = new MockProxyFactory(null, true);
+        UserRepository timedRepo = timedFactory.createMock(UserRepository.class);
+        timedRepo.exists(42L);
+        timedRepo.exists(7L);
+        timedRepo.exists(42L);
+
+        List<MethodInvocation> calls = timedFactory.getInvocations(timedRepo, "exists", new Object[]{42L});
+
+        assertThat(calls).hasSize(2);
+        assertThat(calls).allMatch(MethodInvocation::isTimed);
+        assertThat(calls.get(0).getTimestampNanos()).isLessThanOrEqualTo(calls.get(1).getTimestampNanos());
+        assertThat(calls).extracting(MethodInvocation::getThreadId).containsOnly(Thread.currentThread().getId());
+    }
+
+    @Test
+    void shouldNotRecordTimesAndThreadsUnlessAsked() {
+        mockRepo.exists(42L);
+
+        MethodInvocation call = mockFactory.getInvocations(mockRepo).get(0);
+
+        assertThat(call.isTimed()).isFalse();
+        assertThat(call.getTimestampNanos()).isZero();
+        assertThat(call.getThreadId()).isZero();
+        assertThat(call.getArgumentCount()).isEqualTo(1);
+        assertThat(call.getArgument(0)).isEqualTo(42L);
+    }
+
+    @Test
+    void shouldSeeCallsMadeAfterEarlierQueries() {
+        // Given - the first query builds the indexes
+        mockRepo.exists(1L);
+        assertThat(mockFactory.verify(mockRepo, "exists", new Object[]{1L}, 1)).isTrue();
+        assertThat(mockFactory.verify(mockRepo, "exists", 1)).isTrue();
+
+        // When
+        mockRepo.exists(1L);
+        mockRepo.exists(2L);
+
+        // Then
+        assertThat(mockFactory.verify(mockRepo, "exists", new Object[]{1L}, 2)).isTrue();
+        assertThat(mockFactory.verify(mockRepo, "exists", new Object[]{2L}, 1)).isTrue();
+        assertThat(mockFactory.verify(mockRepo, "exists", 3)).isTrue();
+    }
+
+    @Test
+    void shouldLeaveOutCallsMadeForStubbing() {
+        mockRepo.exists(1L);
+        assertThat(mockFactory.verify(mockRepo, "exists", new Object[]{1L}, 1)).isTrue();
+
+        mockFactory.when(mockRepo.exists(1L)).thenReturn(true);
+        mockRepo.exists(1L);
+
+        assertThat(mockFactory.verify(mockRepo, "exists", new Object[]{1L}, 2)).isTrue();
+        assertThat(mockFactory.getInvocations(mockRepo)).hasSize(2);
+    }
+
+    @Test
+    void shouldMatchAllArgumentsAndOverloads() {
+        // Given
+        Lookup lookup = mockFactory.createMock(Lookup.class);
+
+        // When
+        lookup.find("a");
+        lookup.find(1L);
+        lookup.find("a", 1);
+        lookup.find("a", 2);
+        lookup.find("b", 1);
+
+        // Then
+        assertThat(mockFactory.verify(lookup, "find", new Object[]{"a"}, 1)).isTrue();
+        assertThat(mockFactory.verify(lookup, "find", new Object[]{1L}, 1)).isTrue();
+        assertThat(mockFactory.verify(lookup, "find", new Object[]{"a", 1}, 1)).isTrue();
+        assertThat(mockFactory.verify(lookup, "find", new Object[]{"b", 2}, 0)).isTrue();
+        assertThat(mockFactory.verify(lookup, "find", 5)).isTrue();
+    }
+
+    @Test
+    void shouldMatchArrayAndNullArgumentsByContent() {
+        User user = new User(1L, "test@example.com", "Test User");
+        mockRepo.save(user);
+        mockRepo.save(null);
+
+        assertThat(mockFactory.verify(mockRepo, "save",
+                new Object[]{new User(1L, "test@example.com", "Another Name")}, 1)).isTrue();
+        assertThat(mockFactory.verify(mockRepo, "save", new Object[]{null}, 1)).isTrue();
+    }
+
+    @Test
+    void shouldCountEveryCallWhileOtherThreadsQuery() throws Exception {
+        // Given
+        int threads = 4;
+        int callsPerThread = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        List<Future<?>> callers = new ArrayList<>();
+
+        // When
+        Future<?> verifier = executor.submit(() -> {
+            while (callers.stream().noneMatch(Future::isDone)) {
+                mockFactory.getInvocations(mockRepo, "exists", new Object[]{0L});
+            }
+        });
+        for (int t = 0; t < threads; t++) {
+            callers.add(executor.submit(() -> {
+                for (int i = 0; i < callsPerThread; i++) {
+                    mockRepo.exists((long) (i % 10));
+                }
+            }));
+        }
+        for (Future<?> caller : callers) {
+            caller.get(30, TimeUnit.SECONDS);
+        }
+        verifier.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // Then
+        assertThat(mockFactory.verify(mockRepo, "exists", threads * callsPerThread)).isTrue();
+        for (long value = 0; value < 10; value++) {
+            assertThat(mockFactory.verify(mockRepo, "exists", new Object[]{value}, threads * callsPerThread / 10))
+                    .isTrue();
+        }
+    }
+
+    @Test
+    @Tag("performance")
+    void measureVerificationOnALargeJournal() {
+        // Given
+        int calls = 1_000_000;
+        for (int i = 0; i < calls; i++) {
+            mockRepo.exists((long) (i % 1_000));
+        }
+        Object[] args = {42L};
+
+        // When
+        long scanStart = System.nanoTime();
+        long scanned = mockFactory.getInvocations(mockRepo).stream()
+                .filter(invocation -> invocation.getMethodName().equals("exists")
+                        && Arrays.deepEquals(invocation.getArguments(), args))
+                .count();
+        long scanNanos = System.nanoTime() - scanStart;
+
+        long firstStart = System.nanoTime();
+        mockFactory.verify(mockRepo, "exists", args, 1_000);
+        long firstNanos = System.nanoTime() - firstStart;
+
+        mockRepo.exists(42L);
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 20; round++) {
+            long start = System.nanoTime();
+            mockFactory.verify(mockRepo, "exists", new Object[]{(long) round}, 1_000);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        // Then
+        System.out.printf("Verify exists(42L) in %d calls: full scan %.1f ms, first indexed query %.1f ms, "
+                        + "later queries %.1f us%n",
+                calls, scanNanos / 1e6, firstNanos / 1e6, best / 1e3);
+        assertThat(scanned).isEqualTo(1_000);
+        assertThat(mockFactory.verify(mockRepo, "exists", args, 1_001)).isTrue();
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.mock.framework;
+
+import com.example.mock.model.User;
+import com.example.mock.repository.UserRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures the cost of a call on a proxy mock, stubbed and unstubbed.
+ * Each round uses a fresh mock, so the recorded invocations stay small and the
+ * numbers reflect dispatch rather than a growing journal. The best round is
+ * reported, as the closest a simple loop gets to the steady state.
+ */
+class MockDispatchPerformanceTest {
+
+    private static final int CALLS_PER_ROUND = 5_000;
+    private static final int ROUNDS = 200;
+
+    @Test
+    @Tag("performance")
+    void measureCallCost() {
+        User user = new User(1L, "test@example.com", "Test User");
+
+        double stubbed = bestNanosPerCall(true, user);
+        double unstubbed = bestNanosPerCall(false, user);
+
+        System.out.printf("Proxy mock calls: stubbed %.1f ns, unstubbed %.1f ns%n", stubbed, unstubbed);
+        assertThat(stubbed).isPositive();
+    }
+
+    private static double bestNanosPerCall(boolean stub, User user) {
+        long best = Long.MAX_VALUE;
+        int found = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            MockProxyFactory factory = new MockProxyFactory();
+            UserRepository mock = factory.createMock(UserRepository.class);
+            if (stub) {
+                factory.when(mock, "findByEmail", new Object[]{"test@example.com"}, user);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < CALLS_PER_ROUND; i++) {
+                if (mock.findByEmail("test@example.com") != null) {
+                    found++;
+                }
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        assertThat(found).isEqualTo(stub ? ROUNDS * CALLS_PER_ROUND : 0);
+        return (double) best / CALLS_PER_ROUND;
+    }
+}
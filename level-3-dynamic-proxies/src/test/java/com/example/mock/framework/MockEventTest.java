@@ -0,0 +1,81 @@
+package com.example.mock.framework;
+
+import com.example.mock.model.User;
+import com.example.mock.repository.UserRepository;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the Flight Recorder events of mocks.
+ */
+class MockEventTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldRecordMockCreationAndInvocationsWhenEnabled() throws Exception {
+        // Given
+        MockProxyFactory mockFactory = new MockProxyFactory();
+        List<RecordedEvent> events;
+
+        // When
+        try (Recording recording = new Recording()) {
+            recording.enable("com.example.mock.MockCreation");
+            recording.enable("com.example.mock.MockInvocation");
+            recording.start();
+
+            UserRepository mockRepo = mockFactory.createMock(UserRepository.class);
+            mockFactory.when(mockRepo.findByEmail("test@example.com"))
+                    .thenReturn(new User(1L, "test@example.com", "Test User"));
+            mockRepo.findByEmail("test@example.com");
+            mockRepo.findByEmail("other@example.com");
+            mockFactory.createMockFrom(mockRepo);
+
+            recording.stop();
+            Path file = tempDir.resolve("mocks.jfr");
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        }
+
+        // Then
+        List<RecordedEvent> creations = ofType(events, "com.example.mock.MockCreation");
+        assertThat(creations).extracting(e -> e.getString("mockedType"))
+                .containsOnly(UserRepository.class.getName());
+        assertThat(creations).extracting(e -> e.getBoolean("fromPrototype"))
+                .containsExactlyInAnyOrder(false, true);
+
+        // The call made for stubbing is recorded too, before its stub exists
+        List<RecordedEvent> invocations = ofType(events, "com.example.mock.MockInvocation");
+        assertThat(invocations).extracting(e -> e.getString("method")).containsOnly("findByEmail");
+        assertThat(invocations).extracting(e -> e.getBoolean("stubbed"))
+                .containsExactlyInAnyOrder(false, true, false);
+    }
+
+    @Test
+    void shouldNotRecordWhenNotEnabled() throws Exception {
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.start();
+            new MockProxyFactory().createMock(UserRepository.class).count();
+            recording.stop();
+            Path file = tempDir.resolve("default.jfr");
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        }
+
+        assertThat(events).noneMatch(e -> e.getEventType().getName().startsWith("com.example.mock."));
+    }
+
+    private static List<RecordedEvent> ofType(List<RecordedEvent> events, String name) {
+        return events.stream().filter(e -> e.getEventType().getName().equals(name)).toList();
+    }
+}
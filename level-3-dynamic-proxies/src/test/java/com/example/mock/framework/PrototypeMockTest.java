@@ -0,0 +1,122 @@
+package com.example.mock.framework;
+
+import com.example.mock.model.User;
+import com.example.mock.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for mocks derived from a prototype mock.
+ */
+class PrototypeMockTest {
+
+    private MockProxyFactory mockFactory;
+    private UserRepository prototype;
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        mockFactory = new MockProxyFactory();
+        prototype = mockFactory.createMock(UserRepository.class);
+        testUser = new User(1L, "test@example.com", "Test User");
+        mockFactory.when(prototype.findByEmail("test@example.com")).thenReturn(testUser);
+        mockFactory.when(prototype.count()).thenReturn(3);
+    }
+
+    @Test
+    void shouldInheritThePrototypeStubs() {
+        UserRepository mock = mockFactory.createMockFrom(prototype);
+
+        assertThat(mock).isNotSameAs(prototype);
+        assertThat(mock.findByEmail("test@example.com")).isSameAs(testUser);
+        assertThat(mock.count()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldKeepOverridesToTheDerivedMock() {
+        // Given
+        UserRepository first = mockFactory.createMockFrom(prototype);
+        UserRepository second = mockFactory.createMockFrom(prototype);
+
+        // When
+        mockFactory.when(first.count()).thenReturn(10);
+        mockFactory.when(prototype.exists(1L)).thenReturn(true);
+
+        // Then - each mock only sees its own stubbing on top of what it inherited
+        assertThat(first.count()).isEqualTo(10);
+        assertThat(second.count()).isEqualTo(3);
+        assertThat(prototype.count()).isEqualTo(3);
+        assertThat(prototype.exists(1L)).isTrue();
+        assertThat(first.exists(1L)).isFalse();
+    }
+
+    @Test
+    void shouldRecordInvocationsPerMock() {
+        UserRepository mock = mockFactory.createMockFrom(prototype);
+
+        mock.findByEmail("test@example.com");
+
+        assertThat(mockFactory.verify(mock, "findByEmail", 1)).isTrue();
+        assertThat(mockFactory.getInvocations(prototype)).isEmpty();
+    }
+
+    @Test
+    void shouldRejectPrototypesOfOtherFactories() {
+        assertThatThrownBy(() -> new MockProxyFactory().createMockFrom(prototype))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Not a mock object");
+    }
+
+    @Test
+    @Tag("performance")
+    void measureCreationCost() {
+        // Warm up both paths first
+        createMocks(false, 20_000);
+        createMocks(true, 20_000);
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        int count = 10_000;
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        List<UserRepository> stubbedOneByOne = createMocks(false, count);
+        long oneByOneNanos = System.nanoTime() - start;
+        long oneByOneBytes = threads.getThreadAllocatedBytes(threadId) - before;
+
+        before = threads.getThreadAllocatedBytes(threadId);
+        start = System.nanoTime();
+        List<UserRepository> derived = createMocks(true, count);
+        long derivedNanos = System.nanoTime() - start;
+        long derivedBytes = threads.getThreadAllocatedBytes(threadId) - before;
+
+        System.out.printf("Stubbed one by one: %d ns and %d bytes per mock; from a prototype: %d ns and %d bytes%n",
+                oneByOneNanos / count, oneByOneBytes / count, derivedNanos / count, derivedBytes / count);
+        assertThat(stubbedOneByOne.get(count - 1).count()).isEqualTo(3);
+        assertThat(derived.get(count - 1).count()).isEqualTo(3);
+    }
+
+    private List<UserRepository> createMocks(boolean fromPrototype, int count) {
+        List<UserRepository> mocks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (fromPrototype) {
+                mocks.add(mockFactory.createMockFrom(prototype));
+            } else {
+                UserRepository mock = mockFactory.createMock(UserRepository.class);
+                mockFactory.when(mock.findByEmail("test@example.com")).thenReturn(testUser);
+                mockFactory.when(mock.count()).thenReturn(3);
+                mocks.add(mock);
+            }
+        }
+        return mocks;
+    }
+}
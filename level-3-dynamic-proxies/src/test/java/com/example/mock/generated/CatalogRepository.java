@@ -0,0 +1,42 @@
+package com.example.mock.generated;
+
+import com.example.mock.annotation.GenerateMock;
+
+import java.util.List;
+
+/**
+ * Interface exercising what the mock generator has to cope with:
+ * generics, overloads, varargs, primitives, inherited and default methods, and
+ * methods declared alike by two unrelated parents.
+ */
+@GenerateMock
+public interface CatalogRepository<T> extends Repository<T, Long>, Store<T> {
+    T find(String name);
+    T find(String name, int version);
+    List<T> findAll(String... names);
+    <C extends Comparable<C>> C max(Class<C> type);
+    long size();
+    char grade(T item);
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+}
+
+/**
+ * Parent interface whose methods the generated mock must also implement.
+ */
+interface Repository<T, ID> {
+    T findById(ID id);
+    void save(T item);
+    T find(ID id);
+    long count();
+}
+
+/**
+ * Second parent interface, declaring two of the same methods as Repository.
+ */
+interface Store<E> {
+    void save(E item);
+    long count();
+}
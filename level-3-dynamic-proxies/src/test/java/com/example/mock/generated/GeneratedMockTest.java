@@ -0,0 +1,134 @@
+package com.example.mock.generated;
+
+import com.example.mock.model.User;
+import com.example.mock.repository.UserRepository;
+import com.example.mock.repository.UserRepositoryMock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the mocks generated at compile time by the @GenerateMock processor.
+ */
+class GeneratedMockTest {
+
+    private UserRepositoryMock mock;
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        mock = new UserRepositoryMock();
+        testUser = new User(1L, "test@example.com", "Test User");
+    }
+
+    @Test
+    void shouldReturnDefaultsWhenNotStubbed() {
+        UserRepository repository = mock;
+
+        assertThat(repository.findByEmail("test@example.com")).isNull();
+        assertThat(repository.exists(1L)).isFalse();
+        assertThat(repository.count()).isZero();
+    }
+
+    @Test
+    void shouldPreferStubsForSpecificArguments() {
+        // Given
+        User otherUser = new User(2L, "other@example.com", "Other User");
+        mock.findByEmail.thenReturn(otherUser);
+        mock.findByEmail.whenCalledWith("test@example.com").thenReturn(testUser);
+        mock.count.thenReturn(42);
+
+        // Then
+        assertThat(mock.findByEmail("test@example.com")).isSameAs(testUser);
+        assertThat(mock.findByEmail("anyone@example.com")).isSameAs(otherUser);
+        assertThat(mock.count()).isEqualTo(42);
+    }
+
+    @Test
+    void shouldRecordAndVerifyCalls() {
+        // Given
+        List<String> journal = new ArrayList<>();
+        mock.setInvocationListener((method, args) -> journal.add(method));
+
+        // When
+        mock.findByEmail("test@example.com");
+        mock.save(testUser);
+        mock.findByEmail("other@example.com");
+
+        // Then
+        assertThat(journal).containsExactly("findByEmail", "save", "findByEmail");
+        assertThat(mock.findByEmail.verify(2)).isTrue();
+        assertThat(mock.findByEmail.verify(new Object[]{"test@example.com"}, 1)).isTrue();
+        assertThat(mock.save.getCalls()).hasSize(1);
+        assertThat(mock.save.getCalls().get(0)[0]).isSameAs(testUser);
+        assertThat(mock.exists.verify(0)).isTrue();
+    }
+
+    @Test
+    void shouldResetStubsAndCalls() {
+        mock.exists.thenReturn(true);
+        mock.exists(1L);
+
+        mock.resetMock();
+
+        assertThat(mock.exists.verify(0)).isTrue();
+        assertThat(mock.exists(1L)).isFalse();
+    }
+
+    @Test
+    void shouldStubOverloadsSeparately() {
+        // Given
+        CatalogRepositoryMock<String> catalog = new CatalogRepositoryMock<>();
+        catalog.find_String.thenReturn("by name");
+        catalog.find_String_int.thenReturn("by name and version");
+        catalog.find_Long.whenCalledWith(7L).thenReturn("by id");
+
+        // Then
+        assertThat(catalog.find("a")).isEqualTo("by name");
+        assertThat(catalog.find("a", 2)).isEqualTo("by name and version");
+        assertThat(catalog.find(7L)).isEqualTo("by id");
+        assertThat(catalog.find(8L)).isNull();
+    }
+
+    @Test
+    void shouldMockInheritedGenericVarargsAndDefaultMethods() {
+        // Given
+        CatalogRepositoryMock<String> catalog = new CatalogRepositoryMock<>();
+        catalog.findById.whenCalledWith(1L).thenReturn("first");
+        catalog.findAll.whenCalledWith((Object) new String[]{"a", "b"}).thenReturn(List.of("a", "b"));
+        catalog.max.thenReturn("zzz");
+        catalog.isEmpty.thenReturn(true);
+
+        // Then
+        assertThat(catalog.findById(1L)).isEqualTo("first");
+        assertThat(catalog.findAll("a", "b")).containsExactly("a", "b");
+        String max = catalog.max(String.class);
+        assertThat(max).isEqualTo("zzz");
+        assertThat(catalog.isEmpty()).isTrue();
+        assertThat(catalog.size()).isZero();
+        assertThat(catalog.grade("x")).isEqualTo('\0');
+        assertThat(catalog.size.verify(1)).isTrue();
+    }
+
+    @Test
+    void shouldMockMethodsDeclaredByTwoParentsOnce() {
+        // Given
+        CatalogRepositoryMock<String> catalog = new CatalogRepositoryMock<>();
+        catalog.count.thenReturn(3L);
+
+        // When
+        Repository<String, Long> repository = catalog;
+        Store<String> store = catalog;
+        repository.save("a");
+        store.save("b");
+
+        // Then
+        assertThat(repository.count()).isEqualTo(3L);
+        assertThat(store.count()).isEqualTo(3L);
+        assertThat(catalog.save.verify(2)).isTrue();
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.mock.journal;
+
+import com.example.mock.framework.MockProxyFactory;
+import com.example.mock.model.User;
+import com.example.mock.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for writing invocations to a binary journal and reading them back.
+ */
+class JournalTest {
+
+    /**
+     * Stores a User as its ID and email.
+     */
+    static final class UserEncoder implements ArgumentEncoder {
+
+        @Override
+        public String name() {
+            return "user";
+        }
+
+        @Override
+        public boolean canEncode(Object value) {
+            return value instanceof User;
+        }
+
+        @Override
+        public void encode(Object value, DataOutput out) throws IOException {
+            User user = (User) value;
+            out.writeLong(user.getId());
+            out.writeUTF(user.getEmail());
+        }
+
+        @Override
+        public Object decode(ByteBuffer in) {
+            long id = in.getLong();
+            byte[] email = new byte[in.getShort()];
+            in.get(email);
+            return new User(id, new String(email, StandardCharsets.UTF_8), null);
+        }
+    }
+
+    @TempDir
+    Path tempDir;
+
+    private MockProxyFactory mockFactory;
+    private UserRepository mockRepo;
+    private Path file;
+
+    @BeforeEach
+    void setUp() {
+        mockFactory = new MockProxyFactory(null, true);
+        mockRepo = mockFactory.createMock(UserRepository.class);
+        file = tempDir.resolve("invocations.journal");
+    }
+
+    @Test
+    void shouldReadBackWhatWasRecorded() throws IOException {
+        // Given
+        mockRepo.findByEmail("test@example.com");
+        mockRepo.exists(42L);
+        mockRepo.findByEmail(null);
+        mockRepo.count();
+
+        // When
+        try (JournalWriter journal = JournalWriter.open(file)) {
+            mockFactory.exportInvocations(mockRepo, journal);
+            assertThat(journal.getCount()).isEqualTo(4);
+        }
+        List<JournalEntry> entries = readAll(JournalReader.open(file));
+
+        // Then
+        assertThat(entries).extracting(JournalEntry::getMethodName)
+                .containsExactly("findByEmail", "exists", "findByEmail", "count");
+        assertThat(entries.get(0).getArguments()).containsExactly("test@example.com");
+        assertThat(entries.get(1).getArguments()).containsExactly(42L);
+        assertThat(entries.get(2).getArguments()).containsExactly((Object) null);
+        assertThat(entries.get(3).getArguments()).isEmpty();
+        assertThat(entries.get(0).getMethod().toString())
+                .isEqualTo(UserRepository.class.getName() + ".findByEmail(java.lang.String)");
+        assertThat(entries).extracting(JournalEntry::getThreadId).containsOnly(Thread.currentThread().getId());
+
+        long now = System.currentTimeMillis() * 1_000_000L;
+        assertThat(entries).extracting(JournalEntry::getTimestampNanos)
+                .isSorted()
+                .allMatch(timestamp -> timestamp > now - 60_000_000_000L && timestamp <= now + 1_000_000_000L);
+    }
+
+    @Test
+    void shouldStreamAndAggregateLargeJournals() throws IOException {
+        // Given - enough invocations to refill the reader's buffer many times
+        int calls = 100_000;
+        for (int i = 0; i < calls; i++) {
+            if (i % 4 == 0) {
+                mockRepo.exists((long) i);
+            } else {
+                mockRepo.findByEmail("user-" + i + "@example.com");
+            }
+        }
+        try (JournalWriter journal = JournalWriter.open(file)) {
+            mockFactory.exportInvocations(mockRepo, journal);
+        }
+
+        // When
+        Map<String, Long> callsByMethod;
+        long existsAboveHalf;
+        try (JournalReader reader = JournalReader.open(file)) {
+            callsByMethod = reader.stream()
+                    .collect(Collectors.groupingBy(JournalEntry::getMethodName, Collectors.counting()));
+        }
+        try (JournalReader reader = JournalReader.open(file)) {
+            existsAboveHalf = reader.stream()
+                    .filter(entry -> entry.getMethodName().equals("exists"))
+                    .filter(entry -> (Long) entry.getArguments()[0] >= calls / 2)
+                    .count();
+        }
+
+        // Then
+        assertThat(callsByMethod).containsEntry("exists", 25_000L).containsEntry("findByEmail", 75_000L);
+        assertThat(existsAboveHalf).isEqualTo(12_500L);
+        assertThat(Files.size(file)).isLessThan(calls * 40L);
+    }
+
+    @Test
+    void shouldHandleArgumentsLargerThanTheBuffers() throws IOException {
+        String large = "x".repeat(200_000);
+        mockRepo.findByEmail(large);
+        mockRepo.findByEmail("small");
+        try (JournalWriter journal = JournalWriter.open(file)) {
+            mockFactory.exportInvocations(mockRepo, journal);
+        }
+
+        List<JournalEntry> entries = readAll(JournalReader.open(file));
+
+        assertThat(entries).hasSize(2);
+        assertThat(entries.get(0).getArguments()).containsExactly(large);
+        assertThat(entries.get(1).getArguments()).containsExactly("small");
+    }
+
+    @Test
+    void shouldUseCustomEncoders() throws IOException {
+        // Given
+        User user = new User(7L, "seven@example.com", "Seven");
+        mockRepo.save(user);
+        List<ArgumentEncoder> encoders = new ArrayList<>();
+        encoders.add(new UserEncoder());
+        encoders.addAll(ArgumentEncoder.defaults());
+        try (JournalWriter journal = JournalWriter.open(file, encoders)) {
+            mockFactory.exportInvocations(mockRepo, journal);
+        }
+
+        // When
+        List<JournalEntry> withEncoder = readAll(JournalReader.open(file, encoders));
+        List<JournalEntry> withoutEncoder = readAll(JournalReader.open(file));
+
+        // Then - a reader without the encoder can still read everything but the argument
+        assertThat(withEncoder.get(0).getArguments()).containsExactly(user);
+        assertThat(withoutEncoder.get(0).getMethodName()).isEqualTo("save");
+        assertThatThrownBy(() -> withoutEncoder.get(0).getArguments())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("user");
+    }
+
+    @Test
+    void shouldRejectArgumentsNoEncoderAccepts() throws IOException {
+        mockRepo.save(new User(1L, "a@example.com", "A"));
+        mockRepo.count();
+
+        try (JournalWriter journal = JournalWriter.open(file, List.of(new UserEncoder()))) {
+            journal.writeAll(mockFactory.getInvocations(mockRepo));
+        }
+        mockRepo.findByEmail("a@example.com");
+
+        try (JournalWriter journal = JournalWriter.open(file, List.of(new UserEncoder()))) {
+            assertThatThrownBy(() -> mockFactory.exportInvocations(mockRepo, journal))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("java.lang.String");
+            assertThat(journal.getCount()).isEqualTo(2);
+        }
+        // The rejected invocation leaves the file readable
+        assertThat(readAll(JournalReader.open(file))).extracting(JournalEntry::getMethodName)
+                .containsExactly("save", "count");
+    }
+
+    @Test
+    void shouldRejectFilesThatAreNotJournals() throws IOException {
+        Files.writeString(file, "not a journal at all");
+
+        assertThatThrownBy(() -> JournalReader.open(file))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Not a mock journal");
+    }
+
+    private static List<JournalEntry> readAll(JournalReader reader) throws IOException {
+        try (reader) {
+            List<JournalEntry> entries = new ArrayList<>();
+            for (JournalEntry entry = reader.next(); entry != null; entry = reader.next()) {
+                entries.add(entry);
+            }
+            return entries;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.load;
+
+import com.example.level1.CachingUserRepository;
+import com.example.level1.RealUserRepository;
+import com.example.level1.SingleFlightUserRepository;
+import com.example.level1.UserStore;
+import com.example.level2.fake.FakeUserRepository;
+import com.example.mock.framework.MockProxyFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * The repositories a UserService can be measured against.
+ * Level 1 engines run the real service over real repositories, from the
+ * simulated database to the in-memory store; FAKE runs the level 2 service
+ * over its hand-written fake, and PROXY_MOCK over a level 3 dynamic proxy
+ * stubbed to answer every call, which measures the cost of the mocking
+ * machinery itself.
+ */
+public enum Engine {
+
+    /** The simulated database, with its latency and random failures. */
+    REAL {
+        @Override
+        public ServiceTarget create(int users) {
+            return level1(preloaded(new RealUserRepository(), users));
+        }
+    },
+    /** The simulated database behind a segmented LRU cache large enough for every user. */
+    CACHING {
+        @Override
+        public ServiceTarget create(int users) {
+            return level1(new CachingUserRepository(preloaded(new RealUserRepository(), users), users * 2));
+        }
+    },
+    /** The simulated database behind request coalescing. */
+    SINGLE_FLIGHT {
+        @Override
+        public ServiceTarget create(int users) {
+            return level1(new SingleFlightUserRepository(preloaded(new RealUserRepository(), users)));
+        }
+    },
+    /** The off-heap in-memory store. */
+    STORE {
+        @Override
+        public ServiceTarget create(int users) {
+            return level1(preloaded(new UserStore(users * 2), users));
+        }
+    },
+    /** The level 2 fake repository. */
+    FAKE {
+        @Override
+        public ServiceTarget create(int users) {
+            FakeUserRepository repository = new FakeUserRepository();
+            List<com.example.level2.User> preload = new ArrayList<>(users);
+            for (int key = 0; key < users; key++) {
+                preload.add(new com.example.level2.User(userId(key), "user" + key, email(key)));
+            }
+            repository.addUsers(preload);
+            return level2(repository);
+        }
+    },
+    /** A level 3 dynamic proxy mock of the level 2 repository. */
+    PROXY_MOCK {
+        @Override
+        public ServiceTarget create(int users) {
+            MockProxyFactory factory = new MockProxyFactory();
+            com.example.level2.UserRepository mock = factory.createMock(com.example.level2.UserRepository.class);
+            // Stubs without arguments answer every call of the method, whatever its arguments
+            factory.when(mock, "findById", new com.example.level2.User(userId(0), "user0", email(0)));
+            factory.when(mock, "saveIfAbsent", true);
+            factory.when(mock, "saveIfVersion", true);
+            factory.when(mock, "findActive", List.of());
+            return level2(mock);
+        }
+    };
+
+    // Preloading the simulated database one user at a time would take minutes
+    private static final int PRELOAD_THREADS = 64;
+
+    /**
+     * Creates a service over a fresh repository holding the given number of users,
+     * with IDs from {@link #userId(long) userId(0)} upwards.
+     *
+     * @param users the number of users to preload
+     * @return the service
+     */
+    public abstract ServiceTarget create(int users);
+
+    /**
+     * Looks up an engine by name, ignoring case and accepting dashes for underscores.
+     *
+     * @param name the name of the engine
+     * @return the engine
+     * @throws IllegalArgumentException if no engine has that name
+     */
+    public static Engine fromName(String name) {
+        return valueOf(name.trim().toUpperCase().replace('-', '_'));
+    }
+
+    /**
+     * @param key the number of a user
+     * @return the ID under which the harness stores that user
+     */
+    public static String userId(long key) {
+        return "user-" + key;
+    }
+
+    private static String email(long key) {
+        return "user" + key + "@example.com";
+    }
+
+    private static <R extends com.example.level1.UserRepository> R preloaded(R repository, int users) {
+        parallel(users, key -> () -> {
+            com.example.level1.User user = new com.example.level1.User(userId(key), "user" + key, email(key));
+            repository.saveIfAbsent(user);
+        });
+        return repository;
+    }
+
+    private static void parallel(int count, IntFunction<Runnable> task) {
+        ExecutorService pool = Executors.newFixedThreadPool(PRELOAD_THREADS);
+        try {
+            for (int i = 0; i < count; i++) {
+                pool.execute(task.apply(i));
+            }
+            pool.shutdown();
+            if (!pool.awaitTermination(10, TimeUnit.MINUTES)) {
+                throw new IllegalStateException("Preloading users timed out");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while preloading users", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static ServiceTarget level1(com.example.level1.UserRepository repository) {
+        com.example.level1.UserService service = new com.example.level1.UserService(repository);
+        return new ServiceTarget() {
+            @Override
+            public void get(String userId) {
+                service.getUserById(userId);
+            }
+
+            @Override
+            public void create(String userId) {
+                service.createUser(new com.example.level1.User(userId, userId, userId + "@example.com"));
+            }
+
+            @Override
+            public void update(String userId) {
+                service.updateUser(new com.example.level1.User(userId, userId, "updated-" + userId + "@example.com"));
+            }
+
+            @Override
+            public void deactivate(String userId) {
+                service.deactivateUser(userId);
+            }
+
+            @Override
+            public void activeUsers() {
+                service.getActiveUsers();
+            }
+        };
+    }
+
+    private static ServiceTarget level2(com.example.level2.UserRepository repository) {
+        com.example.level2.UserService service = new com.example.level2.UserService(repository);
+        return new ServiceTarget() {
+            @Override
+            public void get(String userId) {
+                service.getUserById(userId);
+            }
+
+            @Override
+            public void create(String userId) {
+                service.createUser(new com.example.level2.User(userId, userId, userId + "@example.com"));
+            }
+
+            @Override
+            public void update(String userId) {
+                service.updateUser(new com.example.level2.User(userId, userId, "updated-" + userId + "@example.com"));
+            }
+
+            @Override
+            public void deactivate(String userId) {
+                service.deactivateUser(userId);
+            }
+
+            @Override
+            public void activeUsers() {
+                service.getActiveUsers();
+            }
+        };
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.load;
+
+import java.util.Random;
+
+/**
+ * Distribution of the users that operations touch.
+ * A uniform distribution spreads the load evenly; a Zipf distribution
+ * concentrates it on a few hot users, the way real traffic usually does,
+ * which is what exposes contention and makes caches and coalescing pay off.
+ */
+public abstract class KeyDistribution {
+
+    private final int keys;
+
+    private KeyDistribution(int keys) {
+        if (keys < 1) {
+            throw new IllegalArgumentException("Number of keys must be positive");
+        }
+        this.keys = keys;
+    }
+
+    /**
+     * Creates a distribution in which every key is equally likely.
+     *
+     * @param keys the number of keys
+     * @return the distribution
+     */
+    public static KeyDistribution uniform(int keys) {
+        return new Uniform(keys);
+    }
+
+    /**
+     * Creates a Zipf distribution, in which the k-th most popular key is picked
+     * with a probability proportional to 1 / k^exponent. Key 0 is the hottest.
+     *
+     * @param keys the number of keys
+     * @param exponent the skew; 0 is uniform, around 1 is typical of real traffic
+     * @return the distribution
+     */
+    public static KeyDistribution zipf(int keys, double exponent) {
+        return new Zipf(keys, exponent);
+    }
+
+    /**
+     * Parses a distribution such as {@code uniform} or {@code zipf:1.1}.
+     * A bare {@code zipf} uses an exponent of 1.
+     *
+     * @param spec the distribution
+     * @param keys the number of keys
+     * @return the distribution
+     * @throws IllegalArgumentException if the distribution is unknown
+     */
+    public static KeyDistribution parse(String spec, int keys) {
+        String[] parts = spec.trim().split(":", 2);
+        switch (parts[0].toLowerCase()) {
+            case "uniform":
+                return uniform(keys);
+            case "zipf":
+                try {
+                    return zipf(keys, parts.length > 1 ? Double.parseDouble(parts[1]) : 1.0);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid Zipf exponent: " + spec, e);
+                }
+            default:
+                throw new IllegalArgumentException("Unknown key distribution: " + spec);
+        }
+    }
+
+    /**
+     * @return the number of keys
+     */
+    public int keys() {
+        return keys;
+    }
+
+    /**
+     * Picks the next key.
+     *
+     * @param random the source of randomness, normally the caller's ThreadLocalRandom
+     * @return a key between 0 (inclusive) and {@link #keys()} (exclusive)
+     */
+    public abstract int next(Random random);
+
+    private static final class Uniform extends KeyDistribution {
+
+        Uniform(int keys) {
+            super(keys);
+        }
+
+        @Override
+        public int next(Random random) {
+            return random.nextInt(keys());
+        }
+
+        @Override
+        public String toString() {
+            return "uniform";
+        }
+    }
+
+    private static final class Zipf extends KeyDistribution {
+
+        private final double exponent;
+
+        // Cumulative probabilities, searched with a random point; built once so picking is O(log n)
+        private final double[] cdf;
+
+        Zipf(int keys, double exponent) {
+            super(keys);
+            if (exponent < 0) {
+                throw new IllegalArgumentException("Zipf exponent cannot be negative");
+            }
+            this.exponent = exponent;
+            this.cdf = new double[keys];
+            double sum = 0;
+            for (int k = 0; k < keys; k++) {
+                sum += 1 / Math.pow(k + 1, exponent);
+                cdf[k] = sum;
+            }
+            for (int k = 0; k < keys; k++) {
+                cdf[k] /= sum;
+            }
+        }
+
+        @Override
+        public int next(Random random) {
+            double point = random.nextDouble();
+            int low = 0;
+            int high = cdf.length - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (cdf[middle] <= point) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        @Override
+        public String toString() {
+            return "zipf:" + exponent;
+        }
+    }
+}
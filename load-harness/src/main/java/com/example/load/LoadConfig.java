@@ -0,0 +1,284 @@
+package com.example.load;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Settings of a load run. Setters return the config so runs can be set up in one expression;
+ * {@link #fromArgs(String[])} builds one from {@code --name=value} command line arguments.
+ */
+public final class LoadConfig {
+
+    /**
+     * How the load is generated.
+     */
+    public enum Mode {
+        /**
+         * Each thread issues its next operation as soon as the previous one completes.
+         * Measures the throughput the service can sustain; a slow operation holds back
+         * the ones after it, so latencies only reflect service time.
+         */
+        CLOSED,
+        /**
+         * Operations are issued on a fixed schedule at the target rate, whether or not
+         * earlier ones have completed. Response times are measured from the scheduled
+         * start, so time spent queued behind a slow operation is counted instead of
+         * being hidden (coordinated omission).
+         */
+        OPEN
+    }
+
+    private Engine engine = Engine.FAKE;
+    private Mode mode = Mode.CLOSED;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private double rate = 1000;
+    private Duration duration = Duration.ofSeconds(10);
+    private Duration warmup = Duration.ofSeconds(2);
+    private int users = 1000;
+    private OperationMix mix = OperationMix.defaultMix();
+    private String keys = "uniform";
+    private Path csv;
+    private Path json;
+
+    /**
+     * Builds a config from arguments such as {@code --engine=real --mode=open --rate=200
+     * --threads=16 --duration=30s --warmup=5s --users=1000 --mix=get=90,update=10
+     * --keys=zipf:1.1 --csv=results.csv --json=results.json}. Settings left out keep their defaults.
+     *
+     * @param args the command line arguments
+     * @return the config
+     * @throws IllegalArgumentException if an argument is unknown or malformed
+     */
+    public static LoadConfig fromArgs(String[] args) {
+        LoadConfig config = new LoadConfig();
+        for (String arg : args) {
+            int split = arg.indexOf('=');
+            if (!arg.startsWith("--") || split < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            String value = arg.substring(split + 1);
+            try {
+                switch (arg.substring(2, split)) {
+                    case "engine":
+                        config.engine(Engine.fromName(value));
+                        break;
+                    case "mode":
+                        config.mode(Mode.valueOf(value.trim().toUpperCase()));
+                        break;
+                    case "threads":
+                        config.threads(Integer.parseInt(value));
+                        break;
+                    case "rate":
+                        config.rate(Double.parseDouble(value));
+                        break;
+                    case "duration":
+                        config.duration(parseDuration(value));
+                        break;
+                    case "warmup":
+                        config.warmup(parseDuration(value));
+                        break;
+                    case "users":
+                        config.users(Integer.parseInt(value));
+                        break;
+                    case "mix":
+                        config.mix(OperationMix.parse(value));
+                        break;
+                    case "keys":
+                        config.keys(value);
+                        break;
+                    case "csv":
+                        config.csv(Paths.get(value));
+                        break;
+                    case "json":
+                        config.json(Paths.get(value));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown argument: " + arg);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid number in argument: " + arg, e);
+            }
+        }
+        // Fail before preloading rather than after
+        KeyDistribution.parse(config.keys, config.users);
+        return config;
+    }
+
+    /**
+     * Parses a duration such as {@code 500ms}, {@code 30s} or {@code 2m}; a bare number is in seconds.
+     *
+     * @param value the duration
+     * @return the parsed duration
+     * @throws IllegalArgumentException if the duration is malformed
+     */
+    static Duration parseDuration(String value) {
+        String trimmed = value.trim().toLowerCase();
+        try {
+            if (trimmed.endsWith("ms")) {
+                return Duration.ofMillis(Long.parseLong(trimmed.substring(0, trimmed.length() - 2)));
+            }
+            if (trimmed.endsWith("s")) {
+                return Duration.ofSeconds(Long.parseLong(trimmed.substring(0, trimmed.length() - 1)));
+            }
+            if (trimmed.endsWith("m")) {
+                return Duration.ofMinutes(Long.parseLong(trimmed.substring(0, trimmed.length() - 1)));
+            }
+            return Duration.ofSeconds(Long.parseLong(trimmed));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid duration: " + value, e);
+        }
+    }
+
+    public Engine engine() {
+        return engine;
+    }
+
+    public LoadConfig engine(Engine engine) {
+        if (engine == null) {
+            throw new IllegalArgumentException("Engine cannot be null");
+        }
+        this.engine = engine;
+        return this;
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    public LoadConfig mode(Mode mode) {
+        if (mode == null) {
+            throw new IllegalArgumentException("Mode cannot be null");
+        }
+        this.mode = mode;
+        return this;
+    }
+
+    public int threads() {
+        return threads;
+    }
+
+    public LoadConfig threads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive");
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * @return the target rate in operations per second, used in open mode
+     */
+    public double rate() {
+        return rate;
+    }
+
+    public LoadConfig rate(double rate) {
+        if (!(rate > 0)) {
+            throw new IllegalArgumentException("Rate must be positive");
+        }
+        this.rate = rate;
+        return this;
+    }
+
+    public Duration duration() {
+        return duration;
+    }
+
+    public LoadConfig duration(Duration duration) {
+        if (duration == null || duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("Duration must be positive");
+        }
+        this.duration = duration;
+        return this;
+    }
+
+    /**
+     * @return how long load is applied before measuring starts; zero for no warmup
+     */
+    public Duration warmup() {
+        return warmup;
+    }
+
+    public LoadConfig warmup(Duration warmup) {
+        if (warmup == null || warmup.isNegative()) {
+            throw new IllegalArgumentException("Warmup cannot be negative");
+        }
+        this.warmup = warmup;
+        return this;
+    }
+
+    /**
+     * @return the number of users preloaded, which is also the number of keys operations pick from
+     */
+    public int users() {
+        return users;
+    }
+
+    public LoadConfig users(int users) {
+        if (users < 1) {
+            throw new IllegalArgumentException("Number of users must be positive");
+        }
+        this.users = users;
+        return this;
+    }
+
+    public OperationMix mix() {
+        return mix;
+    }
+
+    public LoadConfig mix(OperationMix mix) {
+        if (mix == null) {
+            throw new IllegalArgumentException("Operation mix cannot be null");
+        }
+        this.mix = mix;
+        return this;
+    }
+
+    /**
+     * @return the key distribution, as parsed by {@link KeyDistribution#parse(String, int)}
+     */
+    public String keys() {
+        return keys;
+    }
+
+    public LoadConfig keys(String keys) {
+        if (keys == null || keys.isBlank()) {
+            throw new IllegalArgumentException("Key distribution cannot be empty");
+        }
+        this.keys = keys;
+        return this;
+    }
+
+    /**
+     * @return the file to write CSV results to, or null
+     */
+    public Path csv() {
+        return csv;
+    }
+
+    public LoadConfig csv(Path csv) {
+        this.csv = csv;
+        return this;
+    }
+
+    /**
+     * @return the file to write JSON results to, or null
+     */
+    public Path json() {
+        return json;
+    }
+
+    public LoadConfig json(Path json) {
+        this.json = json;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "engine=" + engine + ", mode=" + mode + ", threads=" + threads
+                + (mode == Mode.OPEN ? ", rate=" + rate + "/s" : "")
+                + ", duration=" + duration.toMillis() + "ms, warmup=" + warmup.toMillis() + "ms"
+                + ", users=" + users + ", keys=" + keys + ", mix=" + mix;
+    }
+}
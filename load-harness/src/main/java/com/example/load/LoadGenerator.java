@@ -0,0 +1,154 @@
+package com.example.load;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a {@link ServiceTarget} with the load described by a {@link LoadConfig}.
+ * A warmup phase with the same load, whose measurements are thrown away, lets
+ * the JIT compile the hot paths and caches fill before measuring starts.
+ *
+ * In closed mode every thread issues operations back to back. In open mode
+ * every thread owns an equal share of the target rate and issues operations on
+ * a fixed schedule; when an operation overruns, the ones scheduled after it are
+ * issued late and their response times include the wait. The schedule never
+ * skips ahead to catch up, as that would hide exactly the stalls the open mode
+ * is there to expose. Operations still queued when the run ends are counted as
+ * dropped rather than issued.
+ */
+public final class LoadGenerator {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final LoadConfig config;
+
+    /**
+     * @param config the load to generate
+     */
+    public LoadGenerator(LoadConfig config) {
+        if (config == null) {
+            throw new IllegalArgumentException("Config cannot be null");
+        }
+        this.config = config;
+    }
+
+    /**
+     * Creates a service over the configured engine, preloads it and runs the load against it.
+     *
+     * @return the measurements
+     */
+    public LoadResult run() {
+        return run(config.engine().create(config.users()));
+    }
+
+    /**
+     * Runs the load against a service whose users are already loaded.
+     *
+     * @param target the service to drive
+     * @return the measurements
+     */
+    public LoadResult run(ServiceTarget target) {
+        KeyDistribution keys = KeyDistribution.parse(config.keys(), config.users());
+        // Creates need IDs nobody has used, starting after the preloaded users
+        AtomicLong newKeys = new AtomicLong(config.users());
+        if (!config.warmup().isZero()) {
+            drive(target, keys, newKeys, config.warmup().toNanos(), new LoadResult(config));
+        }
+        LoadResult result = new LoadResult(config);
+        result.finish(drive(target, keys, newKeys, config.duration().toNanos(), result));
+        return result;
+    }
+
+    private long drive(ServiceTarget target, KeyDistribution keys, AtomicLong newKeys, long durationNanos,
+            LoadResult result) {
+        int threads = config.threads();
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        AtomicLong startNanos = new AtomicLong();
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            int index = i;
+            workers[i] = new Thread(() -> {
+                ready.countDown();
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long start = startNanos.get();
+                if (config.mode() == LoadConfig.Mode.OPEN) {
+                    openLoop(target, keys, newKeys, start, start + durationNanos, index, result);
+                } else {
+                    closedLoop(target, keys, newKeys, start + durationNanos, result);
+                }
+            }, "load-generator-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+
+        try {
+            ready.await();
+            startNanos.set(System.nanoTime());
+            go.countDown();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            for (Thread worker : workers) {
+                worker.interrupt();
+            }
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while generating load", e);
+        }
+        return System.nanoTime() - startNanos.get();
+    }
+
+    private void closedLoop(ServiceTarget target, KeyDistribution keys, AtomicLong newKeys, long endNanos,
+            LoadResult result) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long now;
+        while ((now = System.nanoTime()) < endNanos && !Thread.currentThread().isInterrupted()) {
+            issue(target, keys, newKeys, random, now, now, result);
+        }
+    }
+
+    private void openLoop(ServiceTarget target, KeyDistribution keys, AtomicLong newKeys, long startNanos,
+            long endNanos, int index, LoadResult result) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long intervalNanos = Math.max(1, Math.round(config.threads() * NANOS_PER_SECOND / config.rate()));
+        // Stagger the threads so their schedules interleave instead of firing together
+        long scheduled = startNanos + intervalNanos * index / config.threads();
+        while (scheduled < endNanos) {
+            long now = System.nanoTime();
+            if (now >= endNanos || Thread.currentThread().isInterrupted()) {
+                result.drop((endNanos - scheduled + intervalNanos - 1) / intervalNanos);
+                return;
+            }
+            if (now < scheduled) {
+                LockSupport.parkNanos(scheduled - now);
+                continue;
+            }
+            issue(target, keys, newKeys, random, scheduled, now, result);
+            scheduled += intervalNanos;
+        }
+    }
+
+    private void issue(ServiceTarget target, KeyDistribution keys, AtomicLong newKeys, ThreadLocalRandom random,
+            long scheduledNanos, long startNanos, LoadResult result) {
+        Operation operation = config.mix().next(random);
+        String userId = operation == Operation.CREATE
+                ? Engine.userId(newKeys.getAndIncrement())
+                : Engine.userId(keys.next(random));
+        boolean failed = false;
+        try {
+            target.execute(operation, userId);
+        } catch (RuntimeException e) {
+            // Failures are part of what is measured, not a reason to stop the run
+            failed = true;
+        }
+        result.record(operation, scheduledNanos, startNanos, System.nanoTime(), failed);
+    }
+}
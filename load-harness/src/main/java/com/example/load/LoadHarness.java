@@ -0,0 +1,40 @@
+package com.example.load;
+
+import java.io.IOException;
+
+/**
+ * Command line entry point of the load harness.
+ * Runs one load against one engine, prints a summary and writes the CSV and
+ * JSON files asked for. Compare engines by running it once per engine with
+ * the same settings, for example:
+ *
+ * <pre>
+ * java -cp ... com.example.load.LoadHarness --engine=fake --mode=open --rate=5000 \
+ *     --threads=8 --duration=30s --keys=zipf:1.1 --csv=fake.csv --json=fake.json
+ * </pre>
+ *
+ * See {@link LoadConfig#fromArgs(String[])} for all arguments.
+ */
+public final class LoadHarness {
+
+    private LoadHarness() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        LoadConfig config;
+        try {
+            config = LoadConfig.fromArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        System.out.println("Preloading " + config.users() + " users into " + config.engine());
+        ServiceTarget target = config.engine().create(config.users());
+        System.out.println("Running " + config);
+        LoadResult result = new LoadGenerator(config).run(target);
+        System.out.print(result);
+        result.writeFiles();
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.load;
+
+import com.example.level1.LatencyHistogram;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measurements of a load run, per operation.
+ * Every operation records two latencies: its service time, from the moment it
+ * was actually issued to its completion, and its response time, from the moment
+ * it was scheduled to its completion. In closed mode the two are the same; in
+ * open mode the difference is the time the operation spent waiting behind
+ * slower ones, which a closed-loop measurement would silently leave out.
+ */
+public final class LoadResult {
+
+    // Percentiles reported per operation, as written in the CSV header and JSON keys
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p999"};
+
+    private final LoadConfig config;
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+    private final LongAdder dropped = new LongAdder();
+    private volatile long elapsedNanos;
+
+    LoadResult(LoadConfig config) {
+        this.config = config;
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new Stats());
+        }
+    }
+
+    void record(Operation operation, long scheduledNanos, long startNanos, long endNanos, boolean failed) {
+        Stats operationStats = stats.get(operation);
+        operationStats.responseTimes.record(endNanos - scheduledNanos);
+        operationStats.serviceTimes.record(endNanos - startNanos);
+        if (failed) {
+            operationStats.errors.increment();
+        }
+    }
+
+    void drop(long operations) {
+        dropped.add(operations);
+    }
+
+    void finish(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return the settings of the run
+     */
+    public LoadConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * @param operation an operation
+     * @return the latencies of that operation measured from its scheduled start
+     */
+    public LatencyHistogram getResponseTimes(Operation operation) {
+        return stats.get(operation).responseTimes;
+    }
+
+    /**
+     * @param operation an operation
+     * @return the latencies of that operation measured from its actual start
+     */
+    public LatencyHistogram getServiceTimes(Operation operation) {
+        return stats.get(operation).serviceTimes;
+    }
+
+    /**
+     * @param operation an operation
+     * @return the number of times that operation failed
+     */
+    public long getErrors(Operation operation) {
+        return stats.get(operation).errors.sum();
+    }
+
+    /**
+     * @return the number of completed operations, failed ones included
+     */
+    public long getOperationCount() {
+        return stats.values().stream().mapToLong(operationStats -> operationStats.serviceTimes.getCount()).sum();
+    }
+
+    /**
+     * @return the number of operations an open-loop run had scheduled but never got to issue
+     *         because the run ended while they were still queued
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return the measured duration of the run in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return the completed operations per second over the measured duration
+     */
+    public double getThroughput() {
+        return throughput(getOperationCount());
+    }
+
+    /**
+     * Writes one line per operation and latency kind, preceded by a header.
+     *
+     * @param out where to write
+     * @throws IOException if writing fails
+     */
+    public void writeCsv(Appendable out) throws IOException {
+        out.append("engine,mode,operation,latency,count,errors,throughput_per_s,mean_ms,max_ms");
+        for (String name : PERCENTILE_NAMES) {
+            out.append(',').append(name).append("_ms");
+        }
+        out.append('\n');
+        for (Operation operation : Operation.values()) {
+            Stats operationStats = stats.get(operation);
+            if (operationStats.serviceTimes.getCount() == 0) {
+                continue;
+            }
+            csvLine(out, operation, "response", operationStats.responseTimes, operationStats.errors.sum());
+            csvLine(out, operation, "service", operationStats.serviceTimes, operationStats.errors.sum());
+        }
+    }
+
+    /**
+     * Writes the settings, totals and per-operation latencies as a JSON object.
+     *
+     * @param out where to write
+     * @throws IOException if writing fails
+     */
+    public void writeJson(Appendable out) throws IOException {
+        out.append("{\n");
+        out.append("  \"engine\": \"").append(config.engine().name()).append("\",\n");
+        out.append("  \"mode\": \"").append(config.mode().name()).append("\",\n");
+        out.append("  \"threads\": ").append(Integer.toString(config.threads())).append(",\n");
+        if (config.mode() == LoadConfig.Mode.OPEN) {
+            out.append("  \"targetRate\": ").append(number(config.rate())).append(",\n");
+        }
+        out.append("  \"users\": ").append(Integer.toString(config.users())).append(",\n");
+        out.append("  \"keys\": \"").append(config.keys()).append("\",\n");
+        out.append("  \"mix\": \"").append(config.mix().toString()).append("\",\n");
+        out.append("  \"elapsedMs\": ").append(number(millis(elapsedNanos))).append(",\n");
+        out.append("  \"operations\": ").append(Long.toString(getOperationCount())).append(",\n");
+        out.append("  \"dropped\": ").append(Long.toString(getDroppedCount())).append(",\n");
+        out.append("  \"throughputPerS\": ").append(number(getThroughput())).append(",\n");
+        out.append("  \"results\": {");
+        boolean first = true;
+        for (Operation operation : Operation.values()) {
+            Stats operationStats = stats.get(operation);
+            if (operationStats.serviceTimes.getCount() == 0) {
+                continue;
+            }
+            out.append(first ? "\n" : ",\n");
+            first = false;
+            out.append("    \"").append(operation.key()).append("\": {\n");
+            out.append("      \"count\": ").append(Long.toString(operationStats.serviceTimes.getCount())).append(",\n");
+            out.append("      \"errors\": ").append(Long.toString(operationStats.errors.sum())).append(",\n");
+            out.append("      \"throughputPerS\": ")
+                    .append(number(throughput(operationStats.serviceTimes.getCount()))).append(",\n");
+            out.append("      \"response\": ");
+            jsonLatencies(out, operationStats.responseTimes);
+            out.append(",\n      \"service\": ");
+            jsonLatencies(out, operationStats.serviceTimes);
+            out.append("\n    }");
+        }
+        out.append(first ? "}\n" : "\n  }\n");
+        out.append("}\n");
+    }
+
+    /**
+     * Writes the CSV and JSON files named in the config, if any.
+     *
+     * @throws IOException if writing fails
+     */
+    public void writeFiles() throws IOException {
+        if (config.csv() != null) {
+            try (Writer writer = Files.newBufferedWriter(config.csv(), StandardCharsets.UTF_8)) {
+                writeCsv(writer);
+            }
+        }
+        if (config.json() != null) {
+            try (Writer writer = Files.newBufferedWriter(config.json(), StandardCharsets.UTF_8)) {
+                writeJson(writer);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format(Locale.ROOT, "%s: %d operations in %.1fs, %.1f/s, %d dropped%n",
+                config, getOperationCount(), millis(elapsedNanos) / 1000, getThroughput(), getDroppedCount()));
+        for (Operation operation : Operation.values()) {
+            Stats operationStats = stats.get(operation);
+            if (operationStats.serviceTimes.getCount() == 0) {
+                continue;
+            }
+            builder.append(String.format(Locale.ROOT, "  %-12s errors=%d%n    response: %s%n    service:  %s%n",
+                    operation.key(), operationStats.errors.sum(), operationStats.responseTimes,
+                    operationStats.serviceTimes));
+        }
+        return builder.toString();
+    }
+
+    private void csvLine(Appendable out, Operation operation, String kind, LatencyHistogram latencies, long errors)
+            throws IOException {
+        out.append(config.engine().name()).append(',')
+                .append(config.mode().name()).append(',')
+                .append(operation.key()).append(',')
+                .append(kind).append(',')
+                .append(Long.toString(latencies.getCount())).append(',')
+                .append(Long.toString(errors)).append(',')
+                .append(number(throughput(latencies.getCount()))).append(',')
+                .append(number(millis(latencies.getMean()))).append(',')
+                .append(number(millis(latencies.getMax())));
+        for (double percentile : PERCENTILES) {
+            out.append(',').append(number(millis(latencies.getPercentile(percentile))));
+        }
+        out.append('\n');
+    }
+
+    private static void jsonLatencies(Appendable out, LatencyHistogram latencies) throws IOException {
+        out.append("{\"meanMs\": ").append(number(millis(latencies.getMean())));
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            out.append(", \"").append(PERCENTILE_NAMES[i]).append("Ms\": ")
+                    .append(number(millis(latencies.getPercentile(PERCENTILES[i]))));
+        }
+        out.append(", \"maxMs\": ").append(number(millis(latencies.getMax()))).append('}');
+    }
+
+    private double throughput(long operations) {
+        return elapsedNanos > 0 ? operations * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos : 0;
+    }
+
+    private static double millis(double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static String number(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static final class Stats {
+        private final LatencyHistogram responseTimes = new LatencyHistogram();
+        private final LatencyHistogram serviceTimes = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+    }
+}
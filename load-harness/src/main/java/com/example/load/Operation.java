@@ -0,0 +1,46 @@
+package com.example.load;
+
+/**
+ * The UserService operations a load run can issue.
+ */
+public enum Operation {
+    /** Looks up a user by ID. */
+    GET("get"),
+    /** Creates a user with a new ID. */
+    CREATE("create"),
+    /** Overwrites an existing user, which also reactivates it. */
+    UPDATE("update"),
+    /** Deactivates an existing user. */
+    DEACTIVATE("deactivate"),
+    /** Lists all active users. */
+    ACTIVE_USERS("activeUsers");
+
+    private final String key;
+
+    Operation(String key) {
+        this.key = key;
+    }
+
+    /**
+     * @return the name of the operation in operation mixes and reports
+     */
+    public String key() {
+        return key;
+    }
+
+    /**
+     * Looks up an operation by its key, ignoring case.
+     *
+     * @param key the key of the operation
+     * @return the operation
+     * @throws IllegalArgumentException if no operation has that key
+     */
+    public static Operation fromKey(String key) {
+        for (Operation operation : values()) {
+            if (operation.key.equalsIgnoreCase(key.trim())) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation: " + key);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.load;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Weighted mix of operations, such as 70% gets and 10% each of creates,
+ * updates and deactivations. Picking an operation is a scan over a handful
+ * of cumulative weights, so it costs nothing next to the operation itself.
+ */
+public final class OperationMix {
+
+    private final Map<Operation, Integer> weights;
+    private final Operation[] operations;
+    private final int[] cumulative;
+
+    private OperationMix(Map<Operation, Integer> weights) {
+        this.weights = weights;
+        this.operations = weights.keySet().toArray(new Operation[0]);
+        this.cumulative = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += weights.get(operations[i]);
+            cumulative[i] = total;
+        }
+    }
+
+    /**
+     * Parses a mix such as {@code get=70,create=10,update=10,deactivate=5,activeUsers=5}.
+     * Weights are relative and need not add up to 100; operations left out are never picked.
+     *
+     * @param spec the mix
+     * @return the parsed mix
+     * @throws IllegalArgumentException if the mix is malformed or has no positive weight
+     */
+    public static OperationMix parse(String spec) {
+        if (spec == null || spec.isBlank()) {
+            throw new IllegalArgumentException("Operation mix cannot be empty");
+        }
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : spec.split(",")) {
+            String[] pair = part.split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Expected operation=weight but got: " + part);
+            }
+            int weight;
+            try {
+                weight = Integer.parseInt(pair[1].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid weight: " + part, e);
+            }
+            if (weight < 0) {
+                throw new IllegalArgumentException("Weight cannot be negative: " + part);
+            }
+            if (weight > 0) {
+                weights.merge(Operation.fromKey(pair[0]), weight, Integer::sum);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Operation mix needs at least one positive weight");
+        }
+        return new OperationMix(weights);
+    }
+
+    /**
+     * @return a read-heavy default mix
+     */
+    public static OperationMix defaultMix() {
+        return parse("get=70,create=10,update=10,deactivate=5,activeUsers=5");
+    }
+
+    /**
+     * Picks the next operation.
+     *
+     * @param random the source of randomness, normally the caller's ThreadLocalRandom
+     * @return an operation, chosen with probability proportional to its weight
+     */
+    public Operation next(Random random) {
+        int point = random.nextInt(cumulative[cumulative.length - 1]);
+        for (int i = 0; i < cumulative.length; i++) {
+            if (point < cumulative[i]) {
+                return operations[i];
+            }
+        }
+        throw new IllegalStateException("Unreachable");
+    }
+
+    /**
+     * @param operation an operation
+     * @return the weight of the operation, 0 if it is not part of the mix
+     */
+    public int weightOf(Operation operation) {
+        return weights.getOrDefault(operation, 0);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        weights.forEach((operation, weight) -> {
+            if (builder.length() > 0) {
+                builder.append(',');
+            }
+            builder.append(operation.key()).append('=').append(weight);
+        });
+        return builder.toString();
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.load;
+
+/**
+ * A UserService under load, seen through the operations the harness issues.
+ * Each method maps onto one service call; failures are reported by throwing.
+ */
+public interface ServiceTarget {
+
+    /**
+     * @param userId the ID of an existing user to look up
+     */
+    void get(String userId);
+
+    /**
+     * @param userId a new ID to create a user under
+     */
+    void create(String userId);
+
+    /**
+     * @param userId the ID of an existing user to overwrite
+     */
+    void update(String userId);
+
+    /**
+     * @param userId the ID of an existing user to deactivate
+     */
+    void deactivate(String userId);
+
+    /**
+     * Lists all active users.
+     */
+    void activeUsers();
+
+    /**
+     * Issues a single operation.
+     *
+     * @param operation the operation
+     * @param userId the user it touches; ignored by operations that touch no single user
+     */
+    default void execute(Operation operation, String userId) {
+        switch (operation) {
+            case GET:
+                get(userId);
+                break;
+            case CREATE:
+                create(userId);
+                break;
+            case UPDATE:
+                update(userId);
+                break;
+            case DEACTIVATE:
+                deactivate(userId);
+                break;
+            case ACTIVE_USERS:
+                activeUsers();
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported operation: " + operation);
+        }
+    }
+}
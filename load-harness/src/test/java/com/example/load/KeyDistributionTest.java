@@ -0,0 +1,61 @@
+package com.example.load;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the uniform and Zipf key distributions.
+ */
+@DisplayName("KeyDistribution tests")
+class KeyDistributionTest {
+
+    @Test
+    @DisplayName("Should concentrate Zipf picks on the first keys")
+    void testZipfSkew() {
+        // Given
+        KeyDistribution zipf = KeyDistribution.parse("zipf:1.2", 1000);
+        Random random = new Random(42);
+        int[] hits = new int[1000];
+
+        // When
+        for (int i = 0; i < 100_000; i++) {
+            hits[zipf.next(random)]++;
+        }
+
+        // Then - with s = 1.2 key 0 takes about a quarter of the picks and key 1 less than half of that
+        assertTrue(hits[0] > 20_000 && hits[0] < 27_000, "key 0 picked " + hits[0] + " times");
+        assertTrue(hits[1] < hits[0] / 2, "key 1 picked " + hits[1] + " times");
+        assertTrue(hits[999] < 100, "key 999 picked " + hits[999] + " times");
+    }
+
+    @Test
+    @DisplayName("Should spread uniform picks evenly over all keys")
+    void testUniform() {
+        // Given
+        KeyDistribution uniform = KeyDistribution.parse("uniform", 10);
+        Random random = new Random(42);
+        int[] hits = new int[10];
+
+        // When
+        for (int i = 0; i < 100_000; i++) {
+            hits[uniform.next(random)]++;
+        }
+
+        // Then
+        for (int count : hits) {
+            assertEquals(10_000, count, 500);
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject unknown distributions")
+    void testParseErrors() {
+        assertThrows(IllegalArgumentException.class, () -> KeyDistribution.parse("pareto", 10));
+        assertThrows(IllegalArgumentException.class, () -> KeyDistribution.parse("zipf:abc", 10));
+        assertThrows(IllegalArgumentException.class, () -> KeyDistribution.parse("uniform", 0));
+    }
+}
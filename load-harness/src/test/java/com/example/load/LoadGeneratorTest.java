@@ -0,0 +1,175 @@
+package com.example.load;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the closed- and open-loop load generator.
+ */
+@DisplayName("LoadGenerator tests")
+class LoadGeneratorTest {
+
+    @Test
+    @DisplayName("Should drive every engine without errors on the in-memory doubles")
+    void testClosedLoopAgainstDoubles() {
+        for (Engine engine : new Engine[] {Engine.FAKE, Engine.STORE, Engine.PROXY_MOCK}) {
+            // Given
+            LoadConfig config = new LoadConfig()
+                    .engine(engine)
+                    .threads(4)
+                    .users(100)
+                    .duration(Duration.ofMillis(200))
+                    .warmup(Duration.ofMillis(50));
+
+            // When
+            LoadResult result = new LoadGenerator(config).run();
+
+            // Then
+            assertTrue(result.getOperationCount() > 0, engine + " completed no operations");
+            assertEquals(0, result.getErrors(Operation.GET), engine + " failed lookups");
+            assertEquals(0, result.getErrors(Operation.CREATE), engine + " failed creates");
+            assertTrue(result.getThroughput() > 0);
+        }
+    }
+
+    @Test
+    @DisplayName("Should count time spent queued behind a stall in open-loop response times")
+    void testCoordinatedOmissionCorrection() {
+        // Given - one operation stalls for 200ms while 100 operations per second are scheduled
+        AtomicBoolean stalled = new AtomicBoolean();
+        ServiceTarget target = new NoOpTarget() {
+            @Override
+            public void get(String userId) {
+                if (stalled.compareAndSet(false, true)) {
+                    sleep(200);
+                }
+            }
+        };
+        LoadConfig config = new LoadConfig()
+                .mode(LoadConfig.Mode.OPEN)
+                .rate(100)
+                .threads(1)
+                .users(10)
+                .mix(OperationMix.parse("get=1"))
+                .duration(Duration.ofSeconds(1))
+                .warmup(Duration.ZERO);
+
+        // When
+        LoadResult result = new LoadGenerator(config).run(target);
+
+        // Then - only one operation was slow, but the ~20 queued behind it were late too
+        long serviceP90 = result.getServiceTimes(Operation.GET).getPercentile(90);
+        long responseP90 = result.getResponseTimes(Operation.GET).getPercentile(90);
+        assertTrue(serviceP90 < TimeUnit.MILLISECONDS.toNanos(20), "service p90 " + serviceP90);
+        assertTrue(responseP90 > TimeUnit.MILLISECONDS.toNanos(50), "response p90 " + responseP90);
+        assertEquals(100, result.getOperationCount() + result.getDroppedCount(), 2);
+    }
+
+    @Test
+    @DisplayName("Should write CSV and JSON results")
+    void testOutput() throws IOException {
+        // Given
+        LoadConfig config = new LoadConfig()
+                .threads(2)
+                .users(10)
+                .mix(OperationMix.parse("get=1,activeUsers=1"))
+                .duration(Duration.ofMillis(100))
+                .warmup(Duration.ZERO);
+        LoadResult result = new LoadGenerator(config).run(new NoOpTarget());
+
+        // When
+        StringBuilder csv = new StringBuilder();
+        result.writeCsv(csv);
+        StringBuilder json = new StringBuilder();
+        result.writeJson(json);
+
+        // Then
+        String[] lines = csv.toString().split("\n");
+        assertEquals(5, lines.length);
+        assertTrue(lines[0].startsWith("engine,mode,operation,latency,count,errors"));
+        assertTrue(lines[1].startsWith("FAKE,CLOSED,get,response,"));
+        assertTrue(lines[4].startsWith("FAKE,CLOSED,activeUsers,service,"));
+        assertTrue(json.toString().contains("\"engine\": \"FAKE\""));
+        assertTrue(json.toString().contains("\"activeUsers\": {"));
+        assertTrue(json.toString().contains("\"p999Ms\": "));
+    }
+
+    @Test
+    @DisplayName("Should parse command line arguments")
+    void testArguments() {
+        LoadConfig config = LoadConfig.fromArgs(new String[] {
+                "--engine=single-flight", "--mode=open", "--rate=250", "--threads=3", "--duration=500ms",
+                "--warmup=0", "--users=50", "--mix=get=1", "--keys=zipf:0.9"});
+
+        assertEquals(Engine.SINGLE_FLIGHT, config.engine());
+        assertEquals(LoadConfig.Mode.OPEN, config.mode());
+        assertEquals(250, config.rate());
+        assertEquals(3, config.threads());
+        assertEquals(Duration.ofMillis(500), config.duration());
+        assertEquals(Duration.ZERO, config.warmup());
+        assertEquals(50, config.users());
+        assertEquals("zipf:0.9", config.keys());
+        assertThrows(IllegalArgumentException.class, () -> LoadConfig.fromArgs(new String[] {"--speed=1"}));
+        assertThrows(IllegalArgumentException.class, () -> LoadConfig.fromArgs(new String[] {"--keys=pareto"}));
+    }
+
+    @Test
+    @Tag("performance")
+    @DisplayName("Should compare the fake, the store and proxy mocks under the same load")
+    void testCompareEngines() {
+        for (Engine engine : new Engine[] {Engine.FAKE, Engine.STORE, Engine.PROXY_MOCK}) {
+            LoadConfig config = new LoadConfig()
+                    .engine(engine)
+                    .mode(LoadConfig.Mode.OPEN)
+                    .rate(2000)
+                    .threads(4)
+                    .users(1000)
+                    .keys("zipf:1.1")
+                    .duration(Duration.ofMillis(500))
+                    .warmup(Duration.ofMillis(200));
+
+            LoadResult result = new LoadGenerator(config).run();
+
+            System.out.print(result);
+            assertTrue(result.getOperationCount() > 0);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class NoOpTarget implements ServiceTarget {
+        @Override
+        public void get(String userId) {
+        }
+
+        @Override
+        public void create(String userId) {
+        }
+
+        @Override
+        public void update(String userId) {
+        }
+
+        @Override
+        public void deactivate(String userId) {
+        }
+
+        @Override
+        public void activeUsers() {
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.load;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for parsing and sampling operation mixes.
+ */
+@DisplayName("OperationMix tests")
+class OperationMixTest {
+
+    @Test
+    @DisplayName("Should pick operations in proportion to their weights")
+    void testWeights() {
+        // Given
+        OperationMix mix = OperationMix.parse("get=3, update=1");
+        Random random = new Random(42);
+        Map<Operation, Integer> picks = new EnumMap<>(Operation.class);
+
+        // When
+        for (int i = 0; i < 40_000; i++) {
+            picks.merge(mix.next(random), 1, Integer::sum);
+        }
+
+        // Then
+        assertEquals(30_000, picks.get(Operation.GET), 600);
+        assertEquals(10_000, picks.get(Operation.UPDATE), 600);
+        assertEquals(2, picks.size());
+        assertEquals(0, mix.weightOf(Operation.CREATE));
+        assertEquals("get=3,update=1", mix.toString());
+    }
+
+    @Test
+    @DisplayName("Should reject malformed mixes")
+    void testParseErrors() {
+        assertThrows(IllegalArgumentException.class, () -> OperationMix.parse(""));
+        assertThrows(IllegalArgumentException.class, () -> OperationMix.parse("get"));
+        assertThrows(IllegalArgumentException.class, () -> OperationMix.parse("get=x"));
+        assertThrows(IllegalArgumentException.class, () -> OperationMix.parse("get=-1"));
+        assertThrows(IllegalArgumentException.class, () -> OperationMix.parse("get=0"));
+        assertThrows(IllegalArgumentException.class, () -> OperationMix.parse("scan=1"));
+    }
+}
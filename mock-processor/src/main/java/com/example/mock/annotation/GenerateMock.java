@@ -0,0 +1,21 @@
+package com.example.mock.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an interface for which a mock class is generated at compile time.
+ * For an interface {@code UserRepository} the processor writes a class
+ * {@code UserRepositoryMock} to the same package. It implements the interface
+ * with plain Java code: every method has a public stub field named after it,
+ * through which calls are stubbed and verified, so no proxies or reflection
+ * are involved when the mock is created or called.
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface GenerateMock {
+}
@@ -0,0 +1,366 @@
+package com.example.mock.processor;
+
+import com.example.mock.annotation.GenerateMock;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates a mock class for every interface annotated with {@link GenerateMock}.
+ *
+ * The generated class implements each method of the interface, including inherited
+ * and default ones, by handing its arguments to a {@code MockedMethod} field of its
+ * own. That field holds the method's stubs and call journal, so a call costs one
+ * array allocation and a field read instead of a proxy dispatch, and stubbing
+ * names the method directly instead of looking it up by name. Overloaded methods
+ * get fields suffixed with their parameter types, such as {@code find_String}.
+ *
+ * The generated code depends on {@code com.example.mock.framework.MockedMethod}
+ * and {@code InvocationListener}, which must be on the classpath of the code
+ * being compiled.
+ */
+@SupportedAnnotationTypes("com.example.mock.annotation.GenerateMock")
+public class MockProcessor extends AbstractProcessor {
+
+    private static final String FRAMEWORK_PACKAGE = "com.example.mock.framework";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(GenerateMock.class)) {
+            if (element.getKind() != ElementKind.INTERFACE) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "@GenerateMock can only be applied to interfaces", element);
+                continue;
+            }
+            if (element.getModifiers().contains(Modifier.PRIVATE)) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "@GenerateMock can not be applied to private interfaces", element);
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            try {
+                generate(type);
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Failed to write mock of " + type.getQualifiedName() + ": " + e.getMessage(), element);
+            }
+        }
+        return true;
+    }
+
+    private void generate(TypeElement type) throws IOException {
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+        String packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+        String mockName = mockNameOf(type);
+        String typeParameters = typeParameters(type.getTypeParameters());
+        String typeArguments = type.getTypeParameters().isEmpty() ? ""
+                : type.getTypeParameters().stream()
+                        .map(parameter -> parameter.getSimpleName().toString())
+                        .collect(Collectors.joining(", ", "<", ">"));
+
+        List<MethodModel> methods = mockedMethods(type);
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("import ").append(FRAMEWORK_PACKAGE).append(".InvocationListener;\n");
+        source.append("import ").append(FRAMEWORK_PACKAGE).append(".MockedMethod;\n\n");
+        source.append("/**\n");
+        source.append(" * Mock of {@link ").append(type.getQualifiedName()).append("}, generated at compile time.\n");
+        source.append(" * Stub and verify calls through the public field named after each method.\n");
+        source.append(" */\n");
+        source.append("@javax.annotation.processing.Generated(\"").append(MockProcessor.class.getName()).append("\")\n");
+        source.append("public class ").append(mockName).append(typeParameters)
+                .append(" implements ").append(type.getQualifiedName()).append(typeArguments).append(" {\n\n");
+
+        for (MethodModel method : methods) {
+            source.append("    /** Stubs and calls of {@code ").append(method.signature).append("}. */\n");
+            source.append("    public final MockedMethod<").append(method.stubType).append("> ").append(method.field)
+                    .append(" = new MockedMethod<>(\"").append(method.name).append("\");\n\n");
+        }
+
+        source.append("    private volatile InvocationListener invocationListener;\n\n");
+        source.append("    /**\n");
+        source.append("     * Sets a listener that sees every call on this mock, in order, before it is answered.\n");
+        source.append("     *\n");
+        source.append("     * @param invocationListener the listener, or null for none\n");
+        source.append("     */\n");
+        source.append("    public void setInvocationListener(InvocationListener invocationListener) {\n");
+        source.append("        this.invocationListener = invocationListener;\n");
+        source.append("    }\n\n");
+
+        source.append("    /**\n");
+        source.append("     * Removes all stubs and recorded calls of every method.\n");
+        source.append("     */\n");
+        source.append("    public void resetMock() {\n");
+        for (MethodModel method : methods) {
+            source.append("        ").append(method.field).append(".reset();\n");
+        }
+        source.append("    }\n");
+
+        for (MethodModel method : methods) {
+            source.append('\n');
+            writeMethod(source, method);
+        }
+
+        source.append("\n    @Override\n");
+        source.append("    public String toString() {\n");
+        source.append("        return \"").append(mockName).append("@\" + Integer.toHexString(System.identityHashCode(this));\n");
+        source.append("    }\n");
+        source.append("}\n");
+
+        String qualifiedName = packageName.isEmpty() ? mockName : packageName + "." + mockName;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter()) {
+            writer.write(source.toString());
+        }
+    }
+
+    private void writeMethod(StringBuilder source, MethodModel method) {
+        ExecutableElement element = method.element;
+        ExecutableType executable = method.type;
+        List<String> parameterNames = new ArrayList<>();
+        List<String> parameters = new ArrayList<>();
+        List<? extends TypeMirror> parameterTypes = executable.getParameterTypes();
+        for (int i = 0; i < parameterTypes.size(); i++) {
+            String name = element.getParameters().get(i).getSimpleName().toString();
+            parameterNames.add(name);
+            TypeMirror parameterType = parameterTypes.get(i);
+            if (element.isVarArgs() && i == parameterTypes.size() - 1 && parameterType.getKind() == TypeKind.ARRAY) {
+                parameters.add(((ArrayType) parameterType).getComponentType() + "... " + name);
+            } else {
+                parameters.add(parameterType + " " + name);
+            }
+        }
+
+        TypeMirror returnType = executable.getReturnType();
+        boolean castResult = !element.getTypeParameters().isEmpty() && !returnType.getKind().isPrimitive()
+                && returnType.getKind() != TypeKind.VOID;
+        if (castResult) {
+            source.append("    @SuppressWarnings(\"unchecked\")\n");
+        }
+        source.append("    @Override\n");
+        source.append("    public ");
+        if (!element.getTypeParameters().isEmpty()) {
+            source.append(typeParameters(element.getTypeParameters())).append(' ');
+        }
+        source.append(returnType).append(' ').append(method.name)
+                .append('(').append(String.join(", ", parameters)).append(") {\n");
+        // Locals carry a $ and fields a this. so parameter names can not shadow them
+        source.append("        Object[] $args = ").append(parameterNames.isEmpty()
+                ? "MockedMethod.NO_ARGS" : "{" + String.join(", ", parameterNames) + "}").append(";\n");
+        source.append("        InvocationListener $listener = this.invocationListener;\n");
+        source.append("        if ($listener != null) {\n");
+        source.append("            $listener.onInvocation(\"").append(method.name).append("\", $args);\n");
+        source.append("        }\n");
+        if (returnType.getKind() == TypeKind.VOID) {
+            source.append("        this.").append(method.field).append(".invoke($args, null);\n");
+        } else if (castResult) {
+            source.append("        return (").append(returnType).append(") this.").append(method.field)
+                    .append(".invoke($args, null);\n");
+        } else {
+            source.append("        return this.").append(method.field).append(".invoke($args, ")
+                    .append(defaultValue(returnType)).append(");\n");
+        }
+        source.append("    }\n");
+    }
+
+    private List<MethodModel> mockedMethods(TypeElement type) {
+        DeclaredType declaredType = (DeclaredType) type.asType();
+        // Unrelated parent interfaces may declare the same method; the mock implements it once
+        Map<String, ExecutableElement> bySignature = new LinkedHashMap<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            Element owner = method.getEnclosingElement();
+            if (owner.getKind() != ElementKind.INTERFACE
+                    || method.getModifiers().contains(Modifier.STATIC)
+                    || method.getModifiers().contains(Modifier.PRIVATE)
+                    || redeclaresObjectMethod(method)) {
+                continue;
+            }
+            ExecutableType executable = (ExecutableType) processingEnv.getTypeUtils().asMemberOf(declaredType, method);
+            bySignature.merge(erasedSignature(method, executable), method,
+                    (kept, other) -> returnsSubtype(declaredType, other, kept) ? other : kept);
+        }
+        List<ExecutableElement> candidates = new ArrayList<>(bySignature.values());
+
+        // Count names first, so overloads can be told apart by their field names
+        Map<String, Integer> overloads = new HashMap<>();
+        for (ExecutableElement method : candidates) {
+            overloads.merge(method.getSimpleName().toString(), 1, Integer::sum);
+        }
+
+        List<MethodModel> methods = new ArrayList<>();
+        Set<String> fields = new HashSet<>();
+        for (ExecutableElement method : candidates) {
+            ExecutableType executable = (ExecutableType) processingEnv.getTypeUtils().asMemberOf(declaredType, method);
+            String name = method.getSimpleName().toString();
+            String field = overloads.get(name) > 1 ? name + "_" + parameterSuffix(executable) : name;
+            String unique = field;
+            for (int i = 2; !fields.add(unique); i++) {
+                unique = field + i;
+            }
+            methods.add(new MethodModel(method, executable, unique, stubTypeOf(method, executable)));
+        }
+        return methods;
+    }
+
+    private String erasedSignature(ExecutableElement method, ExecutableType executable) {
+        return executable.getParameterTypes().stream()
+                .map(parameter -> processingEnv.getTypeUtils().erasure(parameter).toString())
+                .collect(Collectors.joining(",", method.getSimpleName() + "(", ")"));
+    }
+
+    /**
+     * @return true if the first method, as a member of the type, returns a proper subtype
+     *         of what the second returns, so implementing it also implements the second
+     */
+    private boolean returnsSubtype(DeclaredType type, ExecutableElement method, ExecutableElement other) {
+        TypeMirror returnType = ((ExecutableType) processingEnv.getTypeUtils().asMemberOf(type, method)).getReturnType();
+        TypeMirror otherType = ((ExecutableType) processingEnv.getTypeUtils().asMemberOf(type, other)).getReturnType();
+        return !processingEnv.getTypeUtils().isSameType(returnType, otherType)
+                && processingEnv.getTypeUtils().isSubtype(returnType, otherType);
+    }
+
+    private static boolean redeclaresObjectMethod(ExecutableElement method) {
+        // The mock inherits these from Object; an interface may only redeclare them to document them
+        String name = method.getSimpleName().toString();
+        int parameters = method.getParameters().size();
+        return (name.equals("equals") && parameters == 1)
+                || (name.equals("hashCode") && parameters == 0)
+                || (name.equals("toString") && parameters == 0);
+    }
+
+    private String stubTypeOf(ExecutableElement method, ExecutableType executable) {
+        TypeMirror returnType = executable.getReturnType();
+        if (returnType.getKind() == TypeKind.VOID) {
+            return "Void";
+        }
+        if (returnType.getKind().isPrimitive()) {
+            return processingEnv.getTypeUtils().boxedClass((PrimitiveType) returnType).getQualifiedName().toString();
+        }
+        // A method's own type variables are out of scope in a field declaration
+        return method.getTypeParameters().isEmpty() ? returnType.toString() : "Object";
+    }
+
+    private String parameterSuffix(ExecutableType executable) {
+        if (executable.getParameterTypes().isEmpty()) {
+            return "noArgs";
+        }
+        return executable.getParameterTypes().stream()
+                .map(this::simpleName)
+                .collect(Collectors.joining("_"));
+    }
+
+    private String simpleName(TypeMirror type) {
+        TypeMirror erased = processingEnv.getTypeUtils().erasure(type);
+        if (erased.getKind() == TypeKind.ARRAY) {
+            return simpleName(((ArrayType) erased).getComponentType()) + "Array";
+        }
+        if (erased.getKind() == TypeKind.DECLARED) {
+            return ((DeclaredType) erased).asElement().getSimpleName().toString();
+        }
+        return erased.toString();
+    }
+
+    private static String mockNameOf(TypeElement type) {
+        // Nested interfaces get their enclosing types' names as a prefix, keeping names unique per package
+        StringBuilder name = new StringBuilder(type.getSimpleName());
+        for (Element enclosing = type.getEnclosingElement(); enclosing instanceof TypeElement;
+                enclosing = enclosing.getEnclosingElement()) {
+            name.insert(0, enclosing.getSimpleName());
+        }
+        return name.append("Mock").toString();
+    }
+
+    private static String typeParameters(List<? extends TypeParameterElement> parameters) {
+        if (parameters.isEmpty()) {
+            return "";
+        }
+        return parameters.stream()
+                .map(parameter -> {
+                    List<String> bounds = parameter.getBounds().stream()
+                            .map(TypeMirror::toString)
+                            .filter(bound -> !bound.equals("java.lang.Object"))
+                            .collect(Collectors.toList());
+                    return bounds.isEmpty() ? parameter.getSimpleName().toString()
+                            : parameter.getSimpleName() + " extends " + String.join(" & ", bounds);
+                })
+                .collect(Collectors.joining(", ", "<", ">"));
+    }
+
+    private static String defaultValue(TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return "false";
+            case CHAR:
+                return "'\\0'";
+            case BYTE:
+                return "(byte) 0";
+            case SHORT:
+                return "(short) 0";
+            case INT:
+                return "0";
+            case LONG:
+                return "0L";
+            case FLOAT:
+                return "0.0f";
+            case DOUBLE:
+                return "0.0d";
+            default:
+                return "null";
+        }
+    }
+
+    private static final class MethodModel {
+        private final ExecutableElement element;
+        private final ExecutableType type;
+        private final String name;
+        private final String field;
+        private final String stubType;
+        private final String signature;
+
+        MethodModel(ExecutableElement element, ExecutableType type, String field, String stubType) {
+            this.element = element;
+            this.type = type;
+            this.name = element.getSimpleName().toString();
+            this.field = field;
+            this.stubType = stubType;
+            this.signature = name + type.getParameterTypes().stream()
+                    .map(TypeMirror::toString)
+                    .collect(Collectors.joining(", ", "(", ")"));
+        }
+    }
+}
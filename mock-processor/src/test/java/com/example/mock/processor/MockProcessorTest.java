@@ -0,0 +1,103 @@
+package com.example.mock.processor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for the @GenerateMock annotation processor, run through the system Java compiler.
+ * The generated mocks are compiled and exercised by the level 3 tests; these tests only
+ * run the processor. The framework classes the mocks depend on are not on the classpath,
+ * so errors reported against the generated sources themselves are ignored.
+ */
+@DisplayName("MockProcessor tests")
+class MockProcessorTest {
+
+    @TempDir
+    Path output;
+
+    @Test
+    @DisplayName("Should generate a mock with one stub field per method")
+    void testGeneratesMock() throws IOException {
+        // Given
+        String source = "package sample;\n"
+                + "@com.example.mock.annotation.GenerateMock\n"
+                + "public interface Greeter {\n"
+                + "    String greet(String name);\n"
+                + "    String greet(String name, int times);\n"
+                + "    void reset();\n"
+                + "    int count();\n"
+                + "    String toString();\n"
+                + "}\n";
+
+        // When
+        DiagnosticCollector<JavaFileObject> diagnostics = process("sample.Greeter", source);
+
+        // Then
+        assertEquals(List.of(), errors(diagnostics));
+        String mock = Files.readString(output.resolve("sample/GreeterMock.java"));
+        assertTrue(mock.contains("public class GreeterMock implements sample.Greeter"));
+        assertTrue(mock.contains("public final MockedMethod<java.lang.String> greet_String = "));
+        assertTrue(mock.contains("public final MockedMethod<java.lang.String> greet_String_int = "));
+        assertTrue(mock.contains("public final MockedMethod<Void> reset = "));
+        assertTrue(mock.contains("return this.count.invoke($args, 0);"));
+        assertFalse(mock.contains("MockedMethod<java.lang.String> toString"));
+        assertFalse(mock.contains("java.lang.reflect"));
+    }
+
+    @Test
+    @DisplayName("Should reject annotated classes")
+    void testRejectsClasses() {
+        String source = "package sample;\n"
+                + "@com.example.mock.annotation.GenerateMock\n"
+                + "public class Greeter {\n"
+                + "}\n";
+
+        DiagnosticCollector<JavaFileObject> diagnostics = process("sample.Greeter", source);
+
+        assertEquals(List.of("@GenerateMock can only be applied to interfaces"), errors(diagnostics));
+    }
+
+    private DiagnosticCollector<JavaFileObject> process(String className, String source) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        JavaFileObject file = new SimpleJavaFileObject(
+                URI.create("string:///" + className.replace('.', '/') + ".java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        List<String> options = List.of("-proc:only", "-s", output.toString(),
+                "-classpath", System.getProperty("java.class.path"));
+        JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics, options, null, List.of(file));
+        task.setProcessors(List.of(new MockProcessor()));
+        task.call();
+        return diagnostics;
+    }
+
+    private static List<String> errors(DiagnosticCollector<JavaFileObject> diagnostics) {
+        return diagnostics.getDiagnostics().stream()
+                .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                .filter(diagnostic -> diagnostic.getSource() == null
+                        || !diagnostic.getSource().getName().endsWith("Mock.java"))
+                .map(diagnostic -> diagnostic.getMessage(null))
+                .collect(Collectors.toList());
+    }
+}